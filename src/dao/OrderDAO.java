@@ -11,17 +11,27 @@ public class OrderDAO {
     /**
      * Creates a new order in the database
      * @param userId user ID who placed the order
-     * @param totalPrice total price of the order
+     * @param totalPrice total price of the order, rounded to the nearest cent
      * @return order ID if successful, -1 otherwise
      */
     public int createOrder(int userId, double totalPrice) {
+        return createOrderCents(userId, Money.fromDouble(totalPrice));
+    }
+
+    /**
+     * Creates a new order in the database
+     * @param userId user ID who placed the order
+     * @param totalCents total price of the order, in cents
+     * @return order ID if successful, -1 otherwise
+     */
+    public int createOrderCents(int userId, long totalCents) {
         String sql = "INSERT INTO Orders (user_id, order_date, total_price) VALUES (?, CURRENT_DATE, ?)";
         
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
             pstmt.setInt(1, userId);
-            pstmt.setDouble(2, totalPrice);
+            pstmt.setBigDecimal(2, Money.toBigDecimal(totalCents));
             
             int rowsAffected = pstmt.executeUpdate();
             
@@ -78,6 +88,65 @@ public class OrderDAO {
         }
     }
     
+    /**
+     * Creates an order and all its details in one transaction, with the details sent as one
+     * batch. Product ids are looked up by the insert itself; items not in the Products table get
+     * no detail row, as with {@link #addOrderDetail}, and are counted as skipped.
+     * @param userId user ID who placed the order
+     * @param totalCents total price of the order, in cents
+     * @param items ordered products; each product's quantity is the quantity ordered
+     * @return order ID
+     * @throws SQLException if any insert fails; nothing is stored then
+     */
+    public int createOrderWithDetails(int userId, long totalCents, List<Product> items) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int orderId;
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT INTO Orders (user_id, order_date, total_price) VALUES (?, CURRENT_DATE, ?)",
+                        Statement.RETURN_GENERATED_KEYS)) {
+                    pstmt.setInt(1, userId);
+                    pstmt.setBigDecimal(2, Money.toBigDecimal(totalCents));
+                    pstmt.executeUpdate();
+                    ResultSet rs = pstmt.getGeneratedKeys();
+                    if (!rs.next()) {
+                        throw new SQLException("No order ID generated");
+                    }
+                    orderId = rs.getInt(1);
+                }
+
+                int skipped = 0;
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT INTO OrderDetails (order_id, product_id, quantity) "
+                        + "SELECT ?, MIN(product_id), ? FROM Products WHERE name = ? AND store_name = ? HAVING COUNT(*) > 0")) {
+                    for (Product item : items) {
+                        pstmt.setInt(1, orderId);
+                        pstmt.setInt(2, item.getQuantity());
+                        pstmt.setString(3, item.getName());
+                        pstmt.setString(4, item.getStore());
+                        pstmt.addBatch();
+                    }
+                    for (int rows : pstmt.executeBatch()) {
+                        if (rows == 0) {
+                            skipped++;
+                        }
+                    }
+                }
+                conn.commit();
+                if (skipped > 0) {
+                    System.err.println("Warning: " + skipped + " item(s) of order " + orderId + " not in the Products table; no detail stored");
+                }
+                return orderId;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
     /**
      * Gets order history for a specific user
      * @param userId user ID to retrieve order history for
@@ -97,9 +166,9 @@ public class OrderDAO {
                 int orderId = rs.getInt("order_id");
                 int uid = rs.getInt("user_id");
                 Date orderDate = rs.getDate("order_date");
-                double totalPrice = rs.getDouble("total_price");
+                long totalCents = Money.fromBigDecimal(rs.getBigDecimal("total_price"));
                 
-                Order order = new Order(orderId, uid, orderDate, totalPrice);
+                Order order = new Order(orderId, uid, orderDate, totalCents);
                 
                 // Load order details for this order
                 List<OrderDetail> orderDetails = getOrderDetails(orderId);
@@ -142,10 +211,10 @@ public class OrderDAO {
                 int productId = rs.getInt("product_id");
                 int quantity = rs.getInt("quantity");
                 String productName = rs.getString("name");
-                double productPrice = rs.getDouble("price");
+                long productPriceCents = Money.fromBigDecimal(rs.getBigDecimal("price"));
                 
                 OrderDetail orderDetail = new OrderDetail(
-                    orderDetailId, oid, productId, quantity, productName, productPrice
+                    orderDetailId, oid, productId, quantity, productName, productPriceCents
                 );
                 
                 orderDetails.add(orderDetail);
@@ -175,9 +244,9 @@ public class OrderDAO {
             if (rs.next()) {
                 int uid = rs.getInt("user_id");
                 Date orderDate = rs.getDate("order_date");
-                double totalPrice = rs.getDouble("total_price");
+                long totalCents = Money.fromBigDecimal(rs.getBigDecimal("total_price"));
                 
-                Order order = new Order(orderId, uid, orderDate, totalPrice);
+                Order order = new Order(orderId, uid, orderDate, totalCents);
                 
                 // Load order details for this order
                 List<OrderDetail> orderDetails = getOrderDetails(orderId);
@@ -209,9 +278,9 @@ public class OrderDAO {
                 int orderId = rs.getInt("order_id");
                 int userId = rs.getInt("user_id");
                 Date orderDate = rs.getDate("order_date");
-                double totalPrice = rs.getDouble("total_price");
+                long totalCents = Money.fromBigDecimal(rs.getBigDecimal("total_price"));
                 
-                Order order = new Order(orderId, userId, orderDate, totalPrice);
+                Order order = new Order(orderId, userId, orderDate, totalCents);
                 
                 // Load order details for this order
                 List<OrderDetail> orderDetails = getOrderDetails(orderId);
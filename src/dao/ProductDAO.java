@@ -1,6 +1,9 @@
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Access Object for Product operations.
@@ -19,6 +22,10 @@ public class ProductDAO {
      * @return product ID if successful, -1 otherwise
      */
     public int addProduct(String name, String category, double price, int quantity, String storeName, String description) {
+        return insertProduct(name, category, Money.fromDouble(price), quantity, storeName, description);
+    }
+
+    private int insertProduct(String name, String category, long priceCents, int quantity, String storeName, String description) {
         String sql = "INSERT INTO Products (name, category, price, quantity, store_name, description) VALUES (?, ?, ?, ?, ?, ?)";
         
         try (Connection conn = DatabaseManager.getConnection();
@@ -26,7 +33,7 @@ public class ProductDAO {
             
             pstmt.setString(1, name);
             pstmt.setString(2, category);
-            pstmt.setDouble(3, price);
+            pstmt.setBigDecimal(3, Money.toBigDecimal(priceCents));
             pstmt.setInt(4, quantity);
             pstmt.setString(5, storeName);
             pstmt.setString(6, description);
@@ -56,10 +63,10 @@ public class ProductDAO {
      * @return product ID if successful, -1 otherwise
      */
     public int addProduct(Product product) {
-        return addProduct(
+        return insertProduct(
             product.getName(),
             product.getCategory().name(),
-            product.getPrice(),
+            product.getPriceCents(),
             product.getQuantity(),
             product.getStore(),
             product.getDescription()
@@ -92,6 +99,27 @@ public class ProductDAO {
         return products;
     }
     
+    /**
+     * Gets every product's quantity, without building Product objects
+     * @return quantity by store name and product name, joined with a tab
+     * @throws SQLException if the query fails
+     */
+    public Map<String, Integer> getQuantities() throws SQLException {
+        Map<String, Integer> quantities = new HashMap<>();
+        String sql = "SELECT store_name, name, quantity FROM Products";
+        
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            while (rs.next()) {
+                quantities.put(rs.getString("store_name") + "\t" + rs.getString("name"), rs.getInt("quantity"));
+            }
+        }
+        
+        return quantities;
+    }
+    
     /**
      * Gets products by category
      * @param category category name to filter by
@@ -190,10 +218,17 @@ public class ProductDAO {
     
     public boolean updateProduct(int productId, String field, String oldValue, String newValue, int userId, String changeReason) {
         String sql = "";
+        long newPriceCents = 0;
         
         // Determine which field to update
         switch (field.toLowerCase()) {
             case "price":
+                try {
+                    newPriceCents = Money.parse(newValue);
+                } catch (NumberFormatException e) {
+                    System.err.println("Invalid price: " + newValue);
+                    return false;
+                }
                 sql = "UPDATE Products SET price = ? WHERE product_id = ?";
                 break;
             case "quantity":
@@ -216,7 +251,11 @@ public class ProductDAO {
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
-            pstmt.setString(1, newValue);
+            if (field.equalsIgnoreCase("price")) {
+                pstmt.setBigDecimal(1, Money.toBigDecimal(newPriceCents));
+            } else {
+                pstmt.setString(1, newValue);
+            }
             pstmt.setInt(2, productId);
             
             int rowsAffected = pstmt.executeUpdate();
@@ -225,17 +264,7 @@ public class ProductDAO {
                 System.out.println("Product updated successfully: " + field + " changed from " + oldValue + " to " + newValue);
                 
                 // Log the change to ChangeLog table
-                try {
-                    ChangeLogDAO changeLogDAO = new ChangeLogDAO();
-                    String changeType = field.substring(0, 1).toUpperCase() + field.substring(1) + " Update";
-                    if (changeReason != null && !changeReason.trim().isEmpty()) {
-                        changeType = changeType + " - " + changeReason.trim();
-                    }
-                    changeLogDAO.logChange(productId, userId, changeType, oldValue, newValue);
-                } catch (SQLException e) {
-                    System.err.println("Warning: Failed to log change: " + e.getMessage());
-                    // Continue execution even if logging fails
-                }
+                logFieldChange(productId, field, oldValue, newValue, userId, changeReason);
                 
                 return true;
             }
@@ -248,6 +277,24 @@ public class ProductDAO {
         }
     }
     
+    /**
+     * Logs a change to one product field in the ChangeLog table, as a "Field Update" entry
+     * (with the reason, if any). A failure is reported but not thrown.
+     */
+    public void logFieldChange(int productId, String field, String oldValue, String newValue, int userId, String changeReason) {
+        try {
+            ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+            String changeType = field.substring(0, 1).toUpperCase() + field.substring(1) + " Update";
+            if (changeReason != null && !changeReason.trim().isEmpty()) {
+                changeType = changeType + " - " + changeReason.trim();
+            }
+            changeLogDAO.logChange(productId, userId, changeType, oldValue, newValue);
+        } catch (SQLException e) {
+            System.err.println("Warning: Failed to log change: " + e.getMessage());
+            // Continue execution even if logging fails
+        }
+    }
+
     /**
      * Updates an entire product record
      * @param productId product ID to update
@@ -270,6 +317,7 @@ public class ProductDAO {
             System.err.println("Product not found: " + productId);
             return false;
         }
+        long priceCents = Money.fromDouble(price);
         
         String sql = "UPDATE Products SET name = ?, category = ?, price = ?, quantity = ?, description = ? WHERE product_id = ?";
         
@@ -278,7 +326,7 @@ public class ProductDAO {
             
             pstmt.setString(1, name);
             pstmt.setString(2, category);
-            pstmt.setDouble(3, price);
+            pstmt.setBigDecimal(3, Money.toBigDecimal(priceCents));
             pstmt.setInt(4, quantity);
             pstmt.setString(5, description);
             pstmt.setInt(6, productId);
@@ -295,9 +343,9 @@ public class ProductDAO {
                     // Log price change
                     String reasonSuffix = (changeReason != null && !changeReason.trim().isEmpty()) ? " - " + changeReason.trim() : "";
                     
-                    if (oldProduct.getPrice() != price) {
+                    if (oldProduct.getPriceCents() != priceCents) {
                         changeLogDAO.logChange(productId, userId, "Price Update" + reasonSuffix,
-                            String.valueOf(oldProduct.getPrice()), String.valueOf(price));
+                            Money.format(oldProduct.getPriceCents()), Money.format(priceCents));
                     }
                     
                     // Log quantity change
@@ -397,6 +445,87 @@ public class ProductDAO {
         return products;
     }
     
+    /**
+     * Applies journaled sales to product quantities in one transaction, together with the
+     * journal's checkpoint (the last sequence number applied). Records at or below the
+     * checkpoint were applied by an earlier call and are skipped, so replaying a journal after
+     * a crash never counts a sale twice.
+     * @param journalId identifies the journal the records come from
+     * @param records journaled sales, in sequence order
+     * @return number of records applied
+     * @throws SQLException if the transaction fails; nothing is applied
+     */
+    public int applyStockJournal(String journalId, List<StockJournal.Record> records) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long checkpoint = 0;
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "SELECT last_seq FROM StockJournalCheckpoint WHERE journal_id = ?")) {
+                    pstmt.setString(1, journalId);
+                    ResultSet rs = pstmt.executeQuery();
+                    if (rs.next()) {
+                        checkpoint = rs.getLong("last_seq");
+                    }
+                }
+
+                // One update per product however many times it sold
+                Map<String, int[]> unitsByProduct = new LinkedHashMap<>();
+                Map<String, StockJournal.Record> productOf = new LinkedHashMap<>();
+                long lastSeq = checkpoint;
+                int applied = 0;
+                for (StockJournal.Record record : records) {
+                    if (record.getSeq() <= checkpoint) {
+                        continue;
+                    }
+                    String key = record.getStoreName() + "\t" + record.getProductName();
+                    unitsByProduct.computeIfAbsent(key, k -> new int[1])[0] += record.getUnits();
+                    productOf.putIfAbsent(key, record);
+                    lastSeq = Math.max(lastSeq, record.getSeq());
+                    applied++;
+                }
+                if (applied == 0) {
+                    conn.rollback();
+                    return 0;
+                }
+
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "UPDATE Products SET quantity = quantity - ? WHERE name = ? AND store_name = ?")) {
+                    for (Map.Entry<String, int[]> entry : unitsByProduct.entrySet()) {
+                        StockJournal.Record record = productOf.get(entry.getKey());
+                        pstmt.setInt(1, entry.getValue()[0]);
+                        pstmt.setString(2, record.getProductName());
+                        pstmt.setString(3, record.getStoreName());
+                        pstmt.addBatch();
+                    }
+                    int[] rows = pstmt.executeBatch();
+                    int index = 0;
+                    for (Map.Entry<String, int[]> entry : unitsByProduct.entrySet()) {
+                        if (rows[index++] == 0) {
+                            // Nothing to apply them to; reported rather than dropped silently
+                            StockJournal.Record record = productOf.get(entry.getKey());
+                            System.err.println("Warning: Stock journal: no product '" + record.getProductName()
+                                + "' in store '" + record.getStoreName() + "'; " + entry.getValue()[0] + " units not applied");
+                        }
+                    }
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "MERGE INTO StockJournalCheckpoint (journal_id, last_seq) KEY (journal_id) VALUES (?, ?)")) {
+                    pstmt.setString(1, journalId);
+                    pstmt.setLong(2, lastSeq);
+                    pstmt.executeUpdate();
+                }
+                conn.commit();
+                return applied;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+    
     /**
      * Gets a product ID by name and store name
      * @param productName product name to search for
@@ -462,10 +591,10 @@ public class ProductDAO {
         try {
             String name = rs.getString("name");
             String categoryStr = rs.getString("category");
-            double price = rs.getDouble("price");
+            long priceCents = Money.fromBigDecimal(rs.getBigDecimal("price"));
             int quantity = rs.getInt("quantity");
-            String storeName = rs.getString("store_name");
-            String description = rs.getString("description");
+            String storeName = StringDictionary.CATALOG.intern(rs.getString("store_name"));
+            String description = StringDictionary.CATALOG.intern(rs.getString("description"));
             
             // Convert category string to ProductCategory enum
             ProductCategory category = ProductCategory.fromString(categoryStr);
@@ -473,7 +602,7 @@ public class ProductDAO {
                 category = ProductCategory.SHOES; // Default fallback
             }
             
-            return new Product(name, quantity, price, description, storeName, category);
+            return Product.ofCents(name, quantity, priceCents, description, storeName, category);
             
         } catch (SQLException e) {
             System.err.println("Error creating product from result set: " + e.getMessage());
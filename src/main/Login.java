@@ -654,18 +654,19 @@ String email = "";
                         if(!trip){
                             System.out.println("You havent bought that product!!");
                         } else {
-                            PrintWriter pw = new PrintWriter(new FileWriter(sellers.get(a).getEmail()));
+                            // Read the header before replacing the file
                             BufferedReader bfr = new BufferedReader(new FileReader(sellers.get(a).getEmail()));
                             String first = bfr.readLine();
-                            pw.write(first + "\n");
+                            bfr.close();
+                            ArrayList<String> lines = new ArrayList<>();
+                            lines.add(first);
                             for(int i = 0; i < sellers.get(a).getStores().size(); i++){
-                                pw.append(sellers.get(a).getStores().get(i).toString() + "\n");
-                                for(int j = 0; j < sellers.get(a).getStores().get(i).getProducts().size(); i++){
-                                    pw.append(sellers.get(a).getStores().get(i).getProducts().get(j).toString() + "\n");
+                                lines.add(sellers.get(a).getStores().get(i).toString());
+                                for(int j = 0; j < sellers.get(a).getStores().get(i).getProducts().size(); j++){
+                                    lines.add(sellers.get(a).getStores().get(i).getProducts().get(j).toString());
                                 }
                             }
-                            pw.close();
-                            bfr.close();
+                            AtomicFileWriter.writeLines(new File(sellers.get(a).getEmail()), lines);
                         }
                         br.close();
 
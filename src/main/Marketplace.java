@@ -1,8 +1,16 @@
 import java.io.*;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Marketplace {
     public static final String WELCOME_PROMPT = "Welcome to our Marketplace!";
@@ -19,86 +27,81 @@ public class Marketplace {
     private static final int MAX_DESCRIPTION_LENGTH = 300;
     private static final int MAX_CHANGE_REASON_LENGTH = 120;
 
-    public static ArrayList<Seller> sellers = new ArrayList<>();
+    public static SellerRegistry sellers = new SellerRegistry();
+    private static final long CATALOG_FLUSH_INTERVAL_MILLIS = Long.getLong("marketplace.flushIntervalMs", 2000L);
+    private static WriteBehindFlusher catalogFlusher;
+    private static final String PROFILE_STARTUP_FLAG = "--profile-startup";
+    private static final String SERVER_FLAG = "--server";
+    private static ExecutorService startupExecutor;
+    private static CompletableFuture<Boolean> databaseReady;
+    private static CompletableFuture<Void> catalogReady;
+    private static volatile CompletableFuture<ArrayList<AccountRecord>> accountsReady;
+    private static final Set<String> usersInDatabase = ConcurrentHashMap.newKeySet();
 
     public static void loadMarket() {
+        long start = System.nanoTime();
+        
+        // Warm start: image of the graph saved at the last clean shutdown, if the catalog is unchanged
+        ArrayList<Seller> image = StartupProfiler.time("loadMarket.image", CatalogSnapshotImage::load);
+        if (image != null) {
+            sellers.addAll(image);
+            IncrementalCatalogWriter.adopt(sellers.getSellers());
+            sellers.add(new Seller(""));
+            System.out.println(String.format("Marketplace loaded from snapshot image in %.1f ms (warm start).",
+                (System.nanoTime() - start) / 1_000_000.0));
+            return;
+        }
+        
+        parseMarket();
+        System.out.println(String.format("Marketplace loaded from seller catalog in %.1f ms (cold start).",
+            (System.nanoTime() - start) / 1_000_000.0));
+    }
+    
+    /**
+     * Builds the marketplace by parsing the seller catalog, migrating legacy lines if needed.
+     */
+    private static void parseMarket() {
         File f = new File(FileConstants.SELLERS_FILE);
-        if (f.exists()) {
-            try (BufferedReader bfr = new BufferedReader(new FileReader(f))) {
-                String line = "";
-                ArrayList<String> allLines = new ArrayList<>();
-                boolean needsMigration = false;
+        if (CatalogEditLog.catalogExists()) {
+            try {
+                // Snapshot plus any edits still waiting in the catalog edit log
+                ArrayList<String> allLines = StartupProfiler.time("loadMarket.readCatalog", CatalogEditLog::readLines);
+                // A stamped catalog was written from migrated data, so no line can be legacy
+                boolean currentFormat = CatalogEditLog.formatVersion() >= CatalogEditLog.FORMAT_VERSION;
                 
-                // First pass: read all lines and check if migration is needed
-                while ((line = bfr.readLine()) != null) {
-                    allLines.add(line);
-                    if (!line.trim().isEmpty() && DataMigrationService.isLegacyFormat(line)) {
-                        needsMigration = true;
+                // First pass: check if migration is needed
+                boolean needsMigration = !currentFormat && StartupProfiler.time("loadMarket.legacyScan", () -> {
+                    for (String line : allLines) {
+                        if (!line.trim().isEmpty() && DataMigrationService.isLegacyFormat(line)) {
+                            return true;
+                        }
                     }
-                }
+                    return false;
+                });
                 
                 // If migration is needed, convert legacy data to new format
                 if (needsMigration) {
                     System.out.println("Migrating existing shoe data to new product format...");
                     try {
-                        migrateDataFile(allLines);
+                        StartupProfiler.time("loadMarket.migrateDataFile", () -> migrateDataFile(allLines));
                     } catch (Exception e) {
                         System.out.println("Warning: Some data migration issues occurred: " + e.getMessage());
                         System.out.println("Continuing with available data...");
                     }
+                } else if (!currentFormat) {
+                    // Unmarked but already current; stamp it so later starts skip the scan
+                    try {
+                        CatalogEditLog.stampFormatVersion();
+                    } catch (IOException e) {
+                        System.out.println("Warning: Unable to stamp the sellers file format: " + e.getMessage());
+                    }
                 }
                 
                 // Process all lines (now in new format)
-                for (String currentLine : allLines) {
-                    if (currentLine.trim().isEmpty()) {
-                        continue;
-                    }
-                    
-                    String[] arr = currentLine.split(",");
-                    
-                    if (arr.length > 2) {
-                        // Line contains product data
-                        String sellerEmail = arr[0].replaceAll(",", "");
-                        String storeName = arr[1].replaceAll(",", "");
-                        
-                        // Find or create seller
-                        Seller seller = findOrCreateSeller(sellerEmail);
-                        
-                        // Find or create store (avoid duplicates)
-                        Store store = findOrCreateStore(seller, storeName);
-                        
-                        // Parse products using migration service
-                        try {
-                            ArrayList<Product> products = DataMigrationService.parseProductsFromLine(currentLine);
-                            for (Product product : products) {
-                                // Ensure product's store name matches the Store object's name
-                                // This prevents mismatches when the CSV has inconsistent store names
-                                product.setStoreName(storeName);
-                                store.addProduct(product);
-                            }
-                        } catch (Exception e) {
-                            System.out.println("Warning: Could not parse products from line: " + currentLine);
-                            System.out.println("Error: " + e.getMessage());
-                            // Continue processing other lines
-                        }
-                        
-                    } else if (arr.length == 2) {
-                        // Line contains only seller and store info (no products)
-                        String sellerEmail = arr[0].replaceAll(",", "");
-                        String storeName = arr[1].replaceAll(",", "");
-                        
-                        // Find or create seller
-                        Seller seller = findOrCreateSeller(sellerEmail);
-                        
-                        // Find or create empty store (avoid duplicates)
-                        findOrCreateStore(seller, storeName);
-                        
-                    } else if (arr.length == 1 && !currentLine.trim().isEmpty()) {
-                        // Line contains only seller info
-                        String sellerEmail = arr[0].replaceAll(",", "");
-                        findOrCreateSeller(sellerEmail);
-                    }
-                }
+                StartupProfiler.time("loadMarket.buildGraph", () -> buildGraph(allLines, currentFormat));
+                
+                // Remember where each store's line sits so persisting only re-serializes changes
+                StartupProfiler.time("loadMarket.indexLines", () -> IncrementalCatalogWriter.index(sellers.getSellers()));
                 
                 // Add empty seller at the end (maintaining original behavior)
                 sellers.add(new Seller(""));
@@ -121,14 +124,13 @@ public class Marketplace {
      * @return The existing or newly created Seller object
      */
     private static Seller findOrCreateSeller(String email) {
-        for (int i = 0; i < sellers.size(); i++) {
-            if (email.equals(sellers.get(i).getEmail())) {
-                return sellers.get(i);
-            }
+        Seller existing = sellers.findSeller(email);
+        if (existing != null) {
+            return existing;
         }
         
         // Seller not found, create new one
-        Seller newSeller = new Seller(email);
+        Seller newSeller = new Seller(StringDictionary.CATALOG.intern(email));
         sellers.add(newSeller);
         return newSeller;
     }
@@ -142,45 +144,100 @@ public class Marketplace {
      */
     private static Store findOrCreateStore(Seller seller, String storeName) {
         // Check if store already exists for this seller
-        for (Store store : seller.getStores()) {
-            if (store.getName().equalsIgnoreCase(storeName)) {
-                return store;
-            }
+        Store existing = seller.searchStore(storeName);
+        if (existing != null) {
+            return existing;
         }
         
         // Store not found, create new one and add to seller
-        Store newStore = new Store(storeName);
+        Store newStore = new Store(StringDictionary.CATALOG.intern(storeName));
         seller.addStores(newStore);
         return newStore;
     }
     
+    /**
+     * Adds the sellers, stores and products of the catalog lines to the marketplace.
+     * @param currentFormat true if the lines are known to be in the current format
+     */
+    private static void buildGraph(ArrayList<String> allLines, boolean currentFormat) {
+        for (String currentLine : allLines) {
+            if (currentLine.trim().isEmpty()) {
+                continue;
+            }
+            
+            String[] arr = currentLine.split(",");
+            
+            if (arr.length > 2) {
+                // Line contains product data
+                String sellerEmail = arr[0].replaceAll(",", "");
+                String storeName = arr[1].replaceAll(",", "");
+                
+                // Find or create seller
+                Seller seller = findOrCreateSeller(sellerEmail);
+                
+                // Find or create store (avoid duplicates)
+                Store store = findOrCreateStore(seller, storeName);
+                
+                // Parse products using migration service
+                try {
+                    ArrayList<Product> products = currentFormat
+                        ? DataMigrationService.parseProductsFromLine(currentLine, false)
+                        : DataMigrationService.parseProductsFromLine(currentLine);
+                    for (Product product : products) {
+                        // Ensure product's store name matches the Store object's name
+                        // This prevents mismatches when the CSV has inconsistent store names,
+                        // and shares the Store's name instance instead of one copy per product
+                        product.setStoreName(store.getName());
+                        store.addProduct(product);
+                    }
+                } catch (Exception e) {
+                    System.out.println("Warning: Could not parse products from line: " + currentLine);
+                    System.out.println("Error: " + e.getMessage());
+                    // Continue processing other lines
+                }
+                
+            } else if (arr.length == 2) {
+                // Line contains only seller and store info (no products)
+                String sellerEmail = arr[0].replaceAll(",", "");
+                String storeName = arr[1].replaceAll(",", "");
+                
+                // Find or create seller
+                Seller seller = findOrCreateSeller(sellerEmail);
+                
+                // Find or create empty store (avoid duplicates)
+                findOrCreateStore(seller, storeName);
+                
+            } else if (arr.length == 1 && !currentLine.trim().isEmpty()) {
+                // Line contains only seller info
+                String sellerEmail = arr[0].replaceAll(",", "");
+                findOrCreateSeller(sellerEmail);
+            }
+        }
+    }
+
     /**
      * Migrates the data file from legacy format to new format.
      * @param lines All lines from the original file
      */
     private static void migrateDataFile(ArrayList<String> lines) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FileConstants.SELLERS_FILE))) {
-            int migratedLines = 0;
-            for (int i = 0; i < lines.size(); i++) {
-                String line = lines.get(i);
-                if (line.trim().isEmpty()) {
-                    writer.write(line);
-                } else {
-                    try {
-                        String convertedLine = DataMigrationService.convertLegacyLineToNewFormat(line);
-                        writer.write(convertedLine);
-                        // Update the line in memory for processing
-                        lines.set(i, convertedLine);
-                        migratedLines++;
-                    } catch (Exception e) {
-                        System.out.println("Warning: Could not migrate line: " + line);
-                        System.out.println("Error: " + e.getMessage());
-                        // Keep original line if migration fails
-                        writer.write(line);
-                    }
+        int migratedLines = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (!line.trim().isEmpty()) {
+                try {
+                    // Update the line in memory for processing
+                    lines.set(i, DataMigrationService.convertLegacyLineToNewFormat(line));
+                    migratedLines++;
+                } catch (Exception e) {
+                    System.out.println("Warning: Could not migrate line: " + line);
+                    System.out.println("Error: " + e.getMessage());
+                    // Keep original line if migration fails
                 }
-                writer.newLine();
             }
+        }
+        
+        try {
+            CatalogEditLog.writeSnapshot(lines);
             System.out.println("Data migration completed successfully. Migrated " + migratedLines + " lines.");
         } catch (IOException e) {
             System.out.println("Error during data migration: " + e.getMessage());
@@ -190,39 +247,96 @@ public class Marketplace {
 
 
     public static void main(String[] args) {
+        if (Arrays.asList(args).contains(PROFILE_STARTUP_FLAG)) {
+            StartupProfiler.enable();
+        }
+        
+        StartupProfiler.time("bootstrapLegacyFiles", FileConstants::bootstrapLegacyFilesIfNeeded);
+        StartupProfiler.time("startBackgroundWriters", () -> {
+            CatalogEditLog.startCompactor();
+            catalogFlusher = new WriteBehindFlusher("catalog-flusher", Marketplace::writeMarketplaceFile, CATALOG_FLUSH_INTERVAL_MILLIS);
+        });
+        // Database, seller catalog and accounts load concurrently; each prompt below waits only
+        // on the phases it needs
+        startStartupPipeline();
+        
+        if (Arrays.asList(args).contains(SERVER_FLAG)) {
+            // Sessions come over the network; the console only controls the server
+            finishStartup();
+            try {
+                MarketplaceServer.run(MarketplaceServer.DEFAULT_PORT);
+            } catch (IOException e) {
+                System.err.println("Error starting the marketplace server: " + e.getMessage());
+            }
+            shutdown();
+            return;
+        }
         
-        FileConstants.bootstrapLegacyFilesIfNeeded();
-// Initialize database on startup
         try {
-            System.out.println("Initializing database...");
-            DatabaseManager.initializeTables();
-            System.out.println("Database initialized successfully.");
-            System.out.println();
-            
             // Check if migration is needed
             File accountsFile = new File(FileConstants.ACCOUNTS_FILE);
             File sellersFile = new File(FileConstants.SELLERS_FILE);
             
-            if (accountsFile.exists() || sellersFile.exists()) {
+            if (accountsFile.exists() || sellersFile.exists() || CatalogEditLog.catalogExists()) {
                 System.out.println("Text files detected. Would you like to migrate data to database? (yes/no)");
                 Scanner migrationScanner = new Scanner(System.in);
                 String migrationResponse = migrationScanner.nextLine();
                 
                 if (migrationResponse.equalsIgnoreCase("yes") || migrationResponse.equalsIgnoreCase("y")) {
-                    System.out.println();
-                    DataMigrationService.migrateAllDataToDatabase();
-                    System.out.println();
+                    // Syncing products into the database needs both the tables and the loaded catalog
+                    if (databaseReady.thenCombine(catalogReady, (db, catalog) -> db).join()) {
+                        System.out.println();
+                        DataMigrationService.migrateAllDataToDatabase();
+                        System.out.println();
+                    }
                 }
             }
             
         } catch (Exception e) {
-            System.err.println("Warning: Database initialization failed: " + e.getMessage());
-            System.err.println("Continuing with file-based operations...");
+            System.err.println("Warning: Data migration failed: " + e.getMessage());
+        }
+        
+        runSession(new Scanner(System.in));
+        shutdown();
+    }
+
+    /**
+     * Flushes the marketplace and closes background writers and the database. Pending changes
+     * are written (only dirty stores), the edit log folded, and the now persisted marketplace
+     * imaged so the next startup can skip parsing.
+     */
+    static void shutdown() {
+        // Flash-sale stock goes back to its products, and the units sold to the journal
+        for (Seller seller : sellers) {
+            for (Store store : seller.getStores()) {
+                store.endFlashSales();
+            }
         }
+        persistMarketplaceToFile();
+        catalogFlusher.close();
+        System.out.println(describeCatalogWrites());
+        CatalogEditLog.stopCompactor();
+        CatalogSnapshotImage.save(sellers.getSellers());
+        StockJournal.stop();
+        FsyncPolicy.syncPending(); // Writes made since the last interval sync
         
+        // Close database connection on application exit
+        try {
+            DatabaseManager.closeConnection();
+            System.out.println("Application shutting down. Goodbye!");
+        } catch (Exception e) {
+            System.err.println("Error closing database connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs one user's session: sign in or create an account, then the customer or seller menus
+     * until the user is done. Used by the console and, once per client, by MarketplaceServer.
+     * @param scanner the user's input
+     */
+    static void runSession(Scanner scanner) {
         String email = "";
         String userType = "";
-        Scanner scanner = new Scanner(System.in);
         boolean authenticated = false;
 
         while (!authenticated) {
@@ -249,7 +363,8 @@ public class Marketplace {
             }
         }
 
-        loadMarket();
+        // The menus need the marketplace and the database
+        finishStartup();
 
 
 
@@ -295,6 +410,7 @@ public class Marketplace {
                 System.out.println("4: Edit a product from one of your Stores");
                 System.out.println("5: View your stores and their details");
                 System.out.println("6: View a product's change history");
+                System.out.println("7: Start or end a flash sale for a product");
                 int choice = scanner.nextInt();
                 scanner.nextLine();
                 switch (choice) {
@@ -374,6 +490,12 @@ public class Marketplace {
                                     System.out.println("Unable to find that product in " + storeName + ".");
                                     break;
                                 }
+                                // The row may lag recent sales; start from the stock buyers see
+                                Store editedStore = findStoreByName(storeName);
+                                Product liveProduct = editedStore == null ? null : editedStore.findProduct(oldProduct.getName());
+                                if (liveProduct != null) {
+                                    oldProduct.setQuantity(liveProduct.getQuantity());
+                                }
 
                                 String newProductName = promptUpdatedText(scanner, "What do you want the new name of the product to be?", oldProduct.getName(), MAX_PRODUCT_NAME_LENGTH);
                                 int newQuantity = promptUpdatedInt(scanner, "What is the new quantity?", oldProduct.getQuantity());
@@ -429,6 +551,25 @@ public class Marketplace {
                             }
                         }
                         break;
+                    case 7:
+                        System.out.println("What is the name of the store with the product?");
+                        storeName = scanner.nextLine();
+                        if (sellers.get(index).checkIfStoreExists(storeName)) {
+                            Store saleStore = sellers.get(index).searchStore(storeName);
+                            String productName = promptLimitedText(scanner, "Enter the product name:", MAX_PRODUCT_NAME_LENGTH, false);
+                            Product saleProduct = saleStore.findProduct(productName);
+                            if (saleProduct == null) {
+                                System.out.println("Unable to locate that product in " + storeName + ".");
+                            } else if (saleProduct.getFlashSale() != null) {
+                                long sold = saleStore.endFlashSale(saleProduct);
+                                System.out.println("Flash sale ended: " + sold + " sold, " + saleProduct.getQuantity() + " left in stock.");
+                            } else {
+                                saleStore.startFlashSale(saleProduct, StripedStock.DEFAULT_STRIPES);
+                                System.out.println("Flash sale started: " + saleProduct.getQuantity() + " in stock, split across "
+                                    + StripedStock.DEFAULT_STRIPES + " counters. Choose this option again to end it.");
+                            }
+                        }
+                        break;
                     default:
                         System.out.println("");
                 }
@@ -606,7 +747,7 @@ public class Marketplace {
                                 }
                                 break;
                             case 4:
-                                System.out.println("What is the description of product you wish to purchase?");
+                                System.out.println("Enter keywords from the description of the product you wish to purchase:");
                                 String searchDescription = scanner.nextLine();
                                 
                                 // Ask if they want to filter by category
@@ -632,10 +773,7 @@ public class Marketplace {
                                 }
                                 
                                 try {
-                                    ArrayList<Product> searchResults = ProductSearchService.searchByDescriptionAsProducts(searchDescription);
-                                    if (selectedCategory4 != null) {
-                                        searchResults = ProductSearchService.filterByCategory(searchResults, selectedCategory4);
-                                    }
+                                    ArrayList<Product> searchResults = ProductSearchService.searchByDescriptionAsProducts(searchDescription, selectedCategory4);
                                     
                                     if (searchResults.isEmpty()) {
                                         System.out.println("No products found matching your criteria.");
@@ -783,22 +921,18 @@ public class Marketplace {
                                     }
                                 }
 
-                                if (found) {
-                                    int maxQty = foundProduct.getQuantity();
+                                // Units already in the cart count against the stock
+                                int maxQty = found ? foundProduct.getQuantity() - customer.getShoppingCart().getQuantity(foundProduct) : 0;
+                                if (found && maxQty <= 0) {
+                                    System.out.println("[X] All available units of '" + foundProduct.getName() + "' are already in your cart.");
+                                } else if (found) {
                                     int qtyToAdd = readIntInRange(scanner, "How many would you like? (1-" + maxQty + "): ", 1, maxQty);
 
-                                    // Add a *cart item* with the purchase quantity (not the store inventory quantity)
-                                    Product cartItem = new Product(
-                                            foundProduct.getName(),
-                                            qtyToAdd,
-                                            foundProduct.getPrice(),
-                                            foundProduct.getDescription(),
-                                            foundProduct.getStore(),
-                                            foundProduct.getCategory());
-
-                                    customer.addToCart(cartItem);
-                                    System.out.println("[OK] Added to cart: " + cartItem.getName() + " x" + qtyToAdd);
-                                    System.out.println("Price each: $" + String.format("%.2f", cartItem.getPrice()));
+                                    // The cart refers to the catalog product; only the purchase quantity is its own
+                                    ShoppingCart.Line cartLine = customer.addToCart(foundProduct, qtyToAdd);
+                                    System.out.println("[OK] Added to cart: " + cartLine.getName() + " x" + qtyToAdd
+                                        + " (" + cartLine.getQuantity() + " in cart)");
+                                    System.out.println("Price each: $" + String.format("%.2f", cartLine.getUnitPrice()));
                                 } else {
                                     System.out.println("[X] Product '" + item + "' not found.");
                                     System.out.println("Search the marketplace first to see available products.");
@@ -851,18 +985,18 @@ public class Marketplace {
                             if (!trip) {
                                 System.out.println("You havent bought that product!!");
                             } else {
-                                PrintWriter pw = new PrintWriter(new FileWriter(sellers.get(a).getEmail()));
                                 BufferedReader bfr = new BufferedReader(new FileReader(sellers.get(a).getEmail()));
                                 String first = bfr.readLine();
-                                pw.write(first + "\n");
+                                bfr.close();
+                                ArrayList<String> lines = new ArrayList<>();
+                                lines.add(first);
                                 for (int i = 0; i < sellers.get(a).getStores().size(); i++) {
-                                    pw.append(sellers.get(a).getStores().get(i).toString() + "\n");
-                                    for (int j = 0; j < sellers.get(a).getStores().get(i).getProducts().size(); i++) {
-                                        pw.append(sellers.get(a).getStores().get(i).getProducts().get(j).toString() + "\n");
+                                    lines.add(sellers.get(a).getStores().get(i).toString());
+                                    for (int j = 0; j < sellers.get(a).getStores().get(i).getProducts().size(); j++) {
+                                        lines.add(sellers.get(a).getStores().get(i).getProducts().get(j).toString());
                                     }
                                 }
-                                pw.close();
-                                bfr.close();
+                                AtomicFileWriter.writeLines(new File(sellers.get(a).getEmail()), lines);
                             }
                             br.close();
 
@@ -877,13 +1011,94 @@ public class Marketplace {
                 keepGoing = scanner.nextLine();
             } while (keepGoing.equalsIgnoreCase("yes") || keepGoing.equalsIgnoreCase("y"));
         }
-        
-        // Close database connection on application exit
+    }
+
+    /**
+     * Waits for the catalog and the database, then, the first time only, stops the startup
+     * threads and reports the startup profile.
+     */
+    static synchronized void finishStartup() {
+        catalogReady.join();
+        databaseReady.join();
+        if (!startupExecutor.isShutdown()) {
+            startupExecutor.shutdown();
+            // Time spent waiting on the sign-in prompt is not part of any phase
+            StartupProfiler.printSummary();
+            StartupProfiler.writeJson(new File(FileConstants.STARTUP_PROFILE_FILE));
+        }
+    }
+
+    /**
+     * Starts the independent startup phases on a small executor:
+     * database tables, the seller catalog (loadMarket) and the accounts file.
+     * databaseReady completes with false if the database could not be initialized.
+     */
+    static void startStartupPipeline() {
+        AtomicInteger threadCount = new AtomicInteger();
+        startupExecutor = Executors.newFixedThreadPool(3, r -> {
+            Thread thread = new Thread(r, "startup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        System.out.println("Initializing database...");
+        databaseReady = CompletableFuture.supplyAsync(() -> {
+            try {
+                StartupProfiler.time("initializeTables", () -> {
+                    DatabaseManager.initializeTables();
+                    System.out.println("Database initialized successfully.");
+                });
+            } catch (Exception e) {
+                System.err.println("Warning: Database initialization failed: " + e.getMessage());
+                System.err.println("Continuing with file-based operations...");
+                return false;
+            }
+            // Sales from before a crash reach the database before any new ones
+            StartupProfiler.time("recoverStockJournal", StockJournal::recover);
+            return true;
+        }, startupExecutor);
+
+        // The catalog files are written behind and may lag the sales the database already has
+        // (including those just replayed from the journal), so stock is taken from the database
+        catalogReady = CompletableFuture
+            .runAsync(() -> StartupProfiler.time("loadMarket", Marketplace::loadMarket), startupExecutor)
+            .thenAcceptBothAsync(databaseReady, (loaded, database) -> {
+                if (database) {
+                    StartupProfiler.time("loadStockFromDatabase", Marketplace::loadStockFromDatabase);
+                }
+            }, startupExecutor);
+
+        accountsReady = CompletableFuture.supplyAsync(
+            () -> StartupProfiler.time("loadAccountRecords", Marketplace::readAccountRecords), startupExecutor);
+    }
+
+    /**
+     * Sets each loaded product's stock to its quantity in the Products table, which holds every
+     * sale applied so far. Products not in the table keep the quantity from the catalog files.
+     */
+    static void loadStockFromDatabase() {
+        Map<String, Integer> quantities;
         try {
-            DatabaseManager.closeConnection();
-            System.out.println("Application shutting down. Goodbye!");
-        } catch (Exception e) {
-            System.err.println("Error closing database connection: " + e.getMessage());
+            quantities = new ProductDAO().getQuantities();
+        } catch (SQLException e) {
+            System.err.println("Warning: Unable to load stock from the database: " + e.getMessage());
+            return;
+        }
+        int updated = 0;
+        for (Seller seller : sellers) {
+            for (Store store : seller.getStores()) {
+                for (Product product : store.getProducts()) {
+                    Integer quantity = quantities.get(store.getName() + "\t" + product.getName());
+                    if (quantity != null && quantity != product.getQuantity()) {
+                        product.setQuantity(quantity);
+                        store.markDirty();
+                        updated++;
+                    }
+                }
+            }
+        }
+        if (updated > 0) {
+            System.out.println("Stock: " + updated + " product quantities updated from the database.");
         }
     }
 
@@ -1078,6 +1293,16 @@ public class Marketplace {
     }
 
     private static ArrayList<AccountRecord> loadAccountRecords() {
+        // The first read is done during startup; later reads see accounts created since
+        CompletableFuture<ArrayList<AccountRecord>> preloaded = accountsReady;
+        if (preloaded != null) {
+            accountsReady = null;
+            return preloaded.join();
+        }
+        return readAccountRecords();
+    }
+
+    private static ArrayList<AccountRecord> readAccountRecords() {
         ArrayList<AccountRecord> accounts = new ArrayList<>();
         File accountsFile = new File(FileConstants.ACCOUNTS_FILE);
         if (!accountsFile.exists()) {
@@ -1163,6 +1388,8 @@ public class Marketplace {
         }
 
         if ("SELLER".equals(role)) {
+            // Must not race the background catalog load, which also fills the sellers list
+            catalogReady.join();
             Seller seller = new Seller(email);
             sellers.add(seller);
             appendSellerRecord(email);
@@ -1223,7 +1450,14 @@ public class Marketplace {
         }
     }
 
-    private static boolean saveAccountRecord(AccountRecord record) {
+    private static synchronized boolean saveAccountRecord(AccountRecord record) {
+        // Another session may have taken the e-mail since this one was prompted
+        for (AccountRecord existing : readAccountRecords()) {
+            if (existing.email.equalsIgnoreCase(record.email)) {
+                System.out.println("This e-mail has already been taken.");
+                return false;
+            }
+        }
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(FileConstants.ACCOUNTS_FILE, true))) {
             writer.write(record.email + "," + record.password + "," + record.role + System.lineSeparator());
             return true;
@@ -1234,11 +1468,7 @@ public class Marketplace {
     }
 
     private static void appendSellerRecord(String email) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FileConstants.SELLERS_FILE, true))) {
-            writer.write(email + "," + System.lineSeparator());
-        } catch (IOException e) {
-            System.out.println("Error writing to the seller file.");
-        }
+        CatalogEditLog.appendSeller(email);
     }
 
     private static boolean isValidEmail(String email) {
@@ -1278,84 +1508,106 @@ public class Marketplace {
     }
 
     private static Store findStoreByName(String storeName) {
-        if (storeName == null) return null;
-        for (Seller s : sellers) {
-            for (Store st : s.getStores()) {
-                if (st.getName().equalsIgnoreCase(storeName)) {
-                    return st;
-                }
-            }
-        }
-        return null;
+        return sellers.findStore(storeName);
     }
 
     private static void checkoutCart(Customer customer) {
-        ArrayList<Product> cart = customer.getShoppingCart();
+        ShoppingCart cart = customer.getShoppingCart();
 
-        if (cart == null || cart.isEmpty()) {
+        if (cart.isEmpty()) {
             System.out.println("There is nothing in your shopping cart.");
             return;
         }
 
         System.out.println("\n--- Checkout ---");
-        double total = 0.0;
-
-        // First, validate all items exist + in stock
-        for (Product item : cart) {
-            total += item.getPrice() * item.getQuantity();
+        // Stock for every line is reserved before anything is charged; a failure releases it
+        CheckoutPipeline.Result result = new CheckoutPipeline(Marketplace::findStoreByName).run(customer);
+        for (String problem : result.getProblems()) {
+            System.out.println((result.isSuccess() ? "[!] " : "[X] ") + problem);
         }
-
-        // Process purchases (updates inventory + reward points)
-        for (Product item : cart) {
-            Store store = findStoreByName(item.getStore());
-            store.processPurchase(item.getName(), item.getQuantity(), customer);
+        if (!result.isSuccess()) {
+            // Bring the cart in line with the catalog so the next checkout can go through
+            for (ShoppingCart.Line line : result.getRejected()) {
+                Product product = line.getProduct();
+                if (product == null || product.getQuantity() <= 0) {
+                    cart.remove(line.getId());
+                } else if (result.getFailedStage() == CheckoutPipeline.Stage.PRICE) {
+                    line.acceptPrice(); // The new price was shown above; checking out again confirms it
+                } else {
+                    cart.setQuantity(product, Math.min(line.getQuantity(), product.getQuantity()));
+                }
+            }
+            System.out.println("Nothing was charged." + (result.getRejected().isEmpty() ? ""
+                : " Your cart was updated to current stock and prices; review it and check out again."));
+            return;
         }
-
-        // Record order in DB (Order + OrderDetails)
-        customer.processPurchase(total);
+        long totalCents = result.getTotalCents();
+        System.out.println("Order #" + result.getOrderId() + " created successfully!");
 
         // Write purchase history file + clear cart
-        customer.writePurchaseHistory(new ArrayList<>(cart));
+        customer.writePurchaseHistory(result.getItems());
         customer.clearShoppingCart();
 
         System.out.println("\n[OK] Checkout complete!");
-        System.out.println("Total charged: $" + String.format("%.2f", total));
-        System.out.println("Reward points earned: " + (int) Math.floor(total) + " (1 point per $1)\n");
+        System.out.println("Total charged: $" + Money.format(totalCents));
+        System.out.println("Reward points earned: " + (totalCents / 100) + " (1 point per $1)\n");
+    }
+
+    /**
+     * @return the catalog flusher's write counts and times, for the server console and shutdown
+     */
+    static String describeCatalogWrites() {
+        WriteBehindFlusher flusher = catalogFlusher;
+        return flusher == null ? "catalog-flusher: not started" : flusher.toString();
     }
 
     /**
      * Persist the in-memory marketplace (sellers/stores/products) back to Sellers.txt
      * so quantity changes from checkout remain after restarting the program.
+     * While the app is running this only marks the marketplace dirty; the catalog flusher
+     * coalesces changes into one write per interval and flushes the rest at shutdown.
      */
     private static void persistMarketplaceToFile() {
+        if (catalogFlusher != null) {
+            catalogFlusher.markDirty();
+            return;
+        }
         try {
-            FileConstants.ensureDataDir();
-            try (PrintWriter pw = new PrintWriter(new FileWriter(FileConstants.SELLERS_FILE, false))) {
-                for (Seller seller : sellers) {
-                    for (Store store : seller.getStores()) {
-                        StringBuilder sb = new StringBuilder();
-                        sb.append(seller.getEmail()).append(",").append(store.getName());
-                        for (Product product : store.getProducts()) {
-                            sb.append(",").append(product.toCSV());
-                        }
-                        pw.println(sb.toString());
-                    }
-                }
-            }
+            writeMarketplaceFile();
         } catch (Exception e) {
             System.err.println("Warning: Unable to persist Sellers file: " + e.getMessage());
         }
     }
 
+    /**
+     * Rewrites Sellers.txt from the in-memory marketplace. Only stores changed since the last
+     * write are re-serialized; unchanged lines are copied from the current file.
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeMarketplaceFile() throws IOException {
+        // The in-memory model already includes every logged edit, so this also folds the log
+        IncrementalCatalogWriter.write(sellers.getSellers());
+    }
+
 private static void ensureUserExistsInDatabase(String username, String password, String role) {
-        try {
-            UserDAO userDAO = new UserDAO();
-            int userId = userDAO.getUserId(username);
-            if (userId <= 0) {
-                userDAO.createUser(username, password, username, role.toLowerCase());
+        if (databaseReady != null && !databaseReady.join()) {
+            return; // Database unavailable; running on the text files only
+        }
+        if (usersInDatabase.contains(username)) {
+            return;
+        }
+        // Sessions signing in to the same account at once must not both create it
+        synchronized (usersInDatabase) {
+            try {
+                UserDAO userDAO = new UserDAO();
+                int userId = userDAO.getUserId(username);
+                if (userId <= 0) {
+                    userDAO.createUser(username, password, username, role.toLowerCase());
+                }
+                usersInDatabase.add(username);
+            } catch (Exception e) {
+                System.err.println("Warning: Unable to sync account with database: " + e.getMessage());
             }
-        } catch (Exception e) {
-            System.err.println("Warning: Unable to sync account with database: " + e.getMessage());
         }
     }
 }
\ No newline at end of file
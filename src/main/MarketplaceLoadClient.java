@@ -0,0 +1,196 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local load client for MarketplaceServer: opens many customer sessions at once, signs them
+ * all in and holds them open together, then has each browse the entire marketplace a few
+ * times and sign off. Reports how many sessions were connected at the same time, the
+ * sign-in and browse latencies, and the overall session throughput.
+ *
+ * Usage: java -cp "out:lib/h2.jar" MarketplaceLoadClient [sessions] [rounds] [port] [email] [password]
+ * The account must exist as a CUSTOMER; the default is the bundled test@example.com.
+ */
+public class MarketplaceLoadClient {
+    private static final String DEFAULT_EMAIL = "test@example.com";
+    private static final String DEFAULT_PASSWORD = "password123";
+    private static final String MENU_MARKER = "Customer Menu";
+    private static final String[] SIGN_IN_FAILURES = {
+        "Incorrect password.", "does not exist in our database", "No accounts exist yet"
+    };
+
+    private final int port;
+    private final String email;
+    private final String password;
+    private final int rounds;
+
+    /**
+     * @param port server port on localhost
+     * @param email customer account each session signs in with
+     * @param password the account's password
+     * @param rounds times each session browses the marketplace
+     */
+    public MarketplaceLoadClient(int port, String email, String password, int rounds) {
+        this.port = port;
+        this.email = email;
+        this.password = password;
+        this.rounds = rounds;
+    }
+
+    /** Outcome of one load run. */
+    public static class Result {
+        public int sessions;
+        public int signedIn;
+        public int completed;
+        public long bytesReceived;
+        public double signInMillis;
+        public double totalMillis;
+        public long[] browseNanos;
+
+        public double sessionsPerSecond() {
+            return completed * 1000.0 / totalMillis;
+        }
+
+        /**
+         * @param fraction e.g. 0.5 for the median
+         * @return browse latency at that percentile, in milliseconds
+         */
+        public double browsePercentileMillis(double fraction) {
+            long[] done = Arrays.stream(browseNanos).filter(n -> n > 0).sorted().toArray();
+            if (done.length == 0) {
+                return 0;
+            }
+            return done[Math.min(done.length - 1, (int) (done.length * fraction))] / 1_000_000.0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : MarketplaceServer.DEFAULT_PORT;
+        String email = args.length > 3 ? args[3] : DEFAULT_EMAIL;
+        String password = args.length > 4 ? args[4] : DEFAULT_PASSWORD;
+
+        System.out.println("=== Marketplace Load (" + sessions + " sessions, " + rounds + " browses each, port " + port + ") ===");
+        Result result = new MarketplaceLoadClient(port, email, password, rounds).run(sessions);
+        System.out.println(String.format("Signed in %d/%d sessions concurrently in %.1f ms",
+            result.signedIn, result.sessions, result.signInMillis));
+        System.out.println(String.format("Completed %d sessions in %.1f ms (%.1f sessions/s, %,d KB received)",
+            result.completed, result.totalMillis, result.sessionsPerSecond(), result.bytesReceived / 1024));
+        System.out.println(String.format("Browse latency: p50 %.1f ms, p99 %.1f ms",
+            result.browsePercentileMillis(0.5), result.browsePercentileMillis(0.99)));
+        if (result.completed < result.sessions) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the given number of sessions concurrently and waits for all of them.
+     * @param sessions number of simultaneous client connections
+     * @return counts and timings
+     */
+    public Result run(int sessions) throws InterruptedException {
+        Result result = new Result();
+        result.sessions = sessions;
+        result.browseNanos = new long[sessions];
+        AtomicInteger signedIn = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        AtomicLong bytes = new AtomicLong();
+        CountDownLatch loggedIn = new CountDownLatch(sessions);
+        CountDownLatch finished = new CountDownLatch(sessions);
+
+        ExecutorService clients = MarketplaceServer.newVirtualThreadExecutor();
+        if (clients == null) {
+            clients = MarketplaceServer.newPlatformThreadExecutor("load-client");
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < sessions; i++) {
+            int id = i;
+            clients.execute(() -> {
+                boolean arrived = false;
+                try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                    socket.setTcpNoDelay(true);
+                    PrintStream out = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+                    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+                    out.println("1");
+                    out.println(email);
+                    out.println(password);
+                    if (!readUntil(in, MENU_MARKER, bytes, SIGN_IN_FAILURES)) {
+                        return;
+                    }
+                    signedIn.incrementAndGet();
+                    // Every session stays connected until all have signed in
+                    loggedIn.countDown();
+                    arrived = true;
+                    loggedIn.await();
+
+                    long browseStart = System.nanoTime();
+                    for (int round = 0; round < rounds; round++) {
+                        out.println("1");
+                        out.println("7");
+                        out.println(round + 1 < rounds ? "yes" : "no");
+                        if (round + 1 < rounds && !readUntil(in, MENU_MARKER, bytes)) {
+                            return;
+                        }
+                    }
+                    // The server ends the session after "no"
+                    readUntil(in, null, bytes);
+                    result.browseNanos[id] = System.nanoTime() - browseStart;
+                    completed.incrementAndGet();
+                } catch (IOException e) {
+                    // Counted as not completed
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    if (!arrived) {
+                        loggedIn.countDown();
+                    }
+                    finished.countDown();
+                }
+            });
+        }
+        loggedIn.await();
+        result.signInMillis = (System.nanoTime() - start) / 1_000_000.0;
+        finished.await();
+        result.totalMillis = (System.nanoTime() - start) / 1_000_000.0;
+        clients.shutdown();
+        clients.awaitTermination(5, TimeUnit.SECONDS);
+
+        result.signedIn = signedIn.get();
+        result.completed = completed.get();
+        result.bytesReceived = bytes.get();
+        return result;
+    }
+
+    /**
+     * Reads lines until one contains the marker, or to the end of the stream if marker is null.
+     * @param failures lines that mean the marker will not come, so the session gives up
+     * @return true if the marker (or the end, when none was given) was reached
+     */
+    private static boolean readUntil(BufferedReader in, String marker, AtomicLong bytes, String... failures) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            bytes.addAndGet(line.length() + 1);
+            if (marker != null && line.contains(marker)) {
+                return true;
+            }
+            for (String failure : failures) {
+                if (line.contains(failure)) {
+                    return false;
+                }
+            }
+        }
+        return marker == null;
+    }
+}
@@ -0,0 +1,248 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server mode: serves the marketplace's customer and seller menus to many clients at once over
+ * a line protocol on a localhost TCP port.
+ *
+ * Each connection is one session, exactly as at the console: the client sends the lines a
+ * user would type and receives the text the menus print. Sessions run Marketplace.runSession
+ * on their own thread, a virtual thread on Java 21+ and a small-stack platform thread before
+ * that, with System.out routed to the session's socket by {@link SessionConsole}.
+ *
+ * Start with {@code java -cp "out:lib/h2.jar" Marketplace --server}; the port is
+ * -Dmarketplace.server.port (default 7070). Typing "stop" (or closing standard input) shuts
+ * the server down and flushes the marketplace like a console exit.
+ */
+public class MarketplaceServer implements Closeable {
+    public static final int DEFAULT_PORT = Integer.getInteger("marketplace.server.port", 7070);
+
+    // Enough for the menus, the DAOs and H2; the JVM default of 1 MB limits how many fit
+    private static final long SESSION_STACK_BYTES = 512 * 1024;
+    private static final int BACKLOG = 4096;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions;
+    private final boolean virtualThreads;
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final AtomicLong sessionsServed = new AtomicLong();
+    private Thread acceptor;
+
+    /**
+     * Binds the server to the loopback interface.
+     * @param port TCP port, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public MarketplaceServer(int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.sessions = virtual != null ? virtual : newPlatformThreadExecutor("session");
+    }
+
+    /**
+     * Runs the server until "stop" is typed at the console or standard input closes.
+     * The marketplace must already be loaded.
+     * @param port TCP port
+     * @throws IOException if the port cannot be bound
+     */
+    static void run(int port) throws IOException {
+        try (MarketplaceServer server = new MarketplaceServer(port)) {
+            server.start();
+            System.out.println("Marketplace server listening on " + serverAddress(server)
+                + " (" + (server.usesVirtualThreads() ? "virtual" : "platform") + " session threads)."
+                + " Type 'status' for session counts or 'stop' to shut down.");
+            BufferedReader console = new BufferedReader(new InputStreamReader(System.in));
+            String line;
+            while ((line = console.readLine()) != null && !line.trim().equalsIgnoreCase("stop")) {
+                if (line.trim().equalsIgnoreCase("status")) {
+                    System.out.println(server.getActiveSessions() + " active sessions, "
+                        + server.getSessionsServed() + " served");
+                    System.out.println(CheckoutPipeline.describeStageTimes());
+                    System.out.println(Marketplace.describeCatalogWrites());
+                }
+            }
+            System.out.println("Stopping server; " + server.getActiveSessions() + " sessions still open will be closed.");
+        }
+    }
+
+    /**
+     * Starts accepting connections on a background thread.
+     */
+    public synchronized void start() {
+        if (acceptor != null) {
+            return;
+        }
+        SessionConsole.install();
+        acceptor = new Thread(this::acceptLoop, "marketplace-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return sessions currently connected
+     */
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    /**
+     * @return sessions finished since the server started
+     */
+    public long getSessionsServed() {
+        return sessionsServed.get();
+    }
+
+    /**
+     * Stops accepting, disconnects open sessions and waits briefly for their threads to end.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : openSockets) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already gone
+            }
+        }
+        sessions.shutdown();
+        try {
+            sessions.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                openSockets.add(socket);
+                sessions.execute(() -> serve(socket));
+            } catch (SocketException e) {
+                return; // Server socket closed
+            } catch (IOException e) {
+                System.err.println("Warning: Failed to accept a connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        activeSessions.incrementAndGet();
+        try (Socket client = socket) {
+            client.setTcpNoDelay(true);
+            PrintStream out = new PrintStream(new BufferedOutputStream(client.getOutputStream()), false, StandardCharsets.UTF_8);
+            SessionConsole.bind(out);
+            try {
+                // Output is buffered and sent whenever the session waits for the client's next line
+                Marketplace.runSession(new Scanner(new FlushingInputStream(client.getInputStream(), out), StandardCharsets.UTF_8));
+            } catch (NoSuchElementException e) {
+                // The client disconnected, or sent a non-number where a menu number was expected
+            } catch (RuntimeException e) {
+                System.err.println("Warning: Session ended by an error: " + e);
+            } finally {
+                try {
+                    DatabaseManager.closeConnection();
+                } catch (Exception e) {
+                    // The connection was this session's alone
+                }
+                out.flush();
+                SessionConsole.bind(null);
+            }
+        } catch (IOException e) {
+            // Connection reset by the client
+        } finally {
+            openSockets.remove(socket);
+            activeSessions.decrementAndGet();
+            sessionsServed.incrementAndGet();
+        }
+    }
+
+    private static String serverAddress(MarketplaceServer server) {
+        return server.serverSocket.getInetAddress().getHostAddress() + ":" + server.getPort();
+    }
+
+    /**
+     * @return an executor starting a virtual thread per task (Java 21+), or null before that
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return an executor starting a small-stack daemon thread per concurrent task
+     */
+    static ExecutorService newPlatformThreadExecutor(String namePrefix) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(null, r, namePrefix + "-" + count.incrementAndGet(), SESSION_STACK_BYTES);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Flushes the session's output before blocking for input, so prompts reach the client
+     * without flushing on every line printed.
+     */
+    private static class FlushingInputStream extends FilterInputStream {
+        private final PrintStream out;
+
+        FlushingInputStream(InputStream in, PrintStream out) {
+            super(in);
+            this.out = out;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (in.available() == 0) {
+                out.flush();
+            }
+            return in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (in.available() == 0) {
+                out.flush();
+            }
+            return in.read(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Catalog ids for products that carts refer to, and the product each id currently resolves to.
+ *
+ * A product gets an id the first time it is put in a cart; products nobody has referenced
+ * cost nothing here, so loading the catalog does not touch this registry. The id belongs to
+ * the product's identity (store and name, case-insensitive), not to one Product object:
+ * stores report products they list and delist ({@link Store} calls {@link #listed} and
+ * {@link #delisted}), so when a seller's edit replaces a product the id moves to the
+ * replacement, and when the product is removed the id resolves to nothing.
+ */
+public final class CatalogEntries {
+    private static final ConcurrentHashMap<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Integer, Product> LISTED = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private CatalogEntries() {}
+
+    /**
+     * Returns the product's catalog id, assigning one on first use. Only the product its store
+     * lists becomes the one the id resolves to; a copy with the same name and store gets the
+     * same id and resolves to the listed product once that has been referenced.
+     * @param product a product as listed by its store, or a copy of one
+     * @return id, at least 1
+     */
+    public static int idOf(Product product) {
+        CatalogEntry entry = product.getEntry();
+        if (entry != null) {
+            return entry.getId();
+        }
+        int id = IDS.computeIfAbsent(key(product), k -> NEXT_ID.incrementAndGet());
+        if (product.isListed()) {
+            product.publishEntry(id);
+            LISTED.put(id, product);
+            if (!product.isListed()) {
+                LISTED.remove(id, product); // Delisted meanwhile
+            }
+        }
+        return id;
+    }
+
+    /**
+     * @return the product's catalog id, or -1 if it was never referenced
+     */
+    public static int find(Product product) {
+        CatalogEntry entry = product.getEntry();
+        if (entry != null) {
+            return entry.getId();
+        }
+        Integer id = IDS.get(key(product));
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return the product an id resolves to now, or null if it is no longer listed
+     */
+    public static Product product(int id) {
+        return LISTED.get(id);
+    }
+
+    /**
+     * @return the current entry for an id, or null if it is no longer listed
+     */
+    public static CatalogEntry entry(int id) {
+        Product product = LISTED.get(id);
+        return product == null ? null : product.getEntry();
+    }
+
+    /**
+     * Called by a store when a product becomes the one found under its name.
+     */
+    static void listed(Product product) {
+        product.setListed(true);
+        CatalogEntry entry = product.getEntry();
+        int id;
+        if (entry != null) {
+            id = entry.getId();
+        } else if (IDS.isEmpty()) {
+            return; // Nothing referenced yet, e.g. while the catalog loads
+        } else {
+            Integer known = IDS.get(key(product));
+            if (known == null) {
+                return;
+            }
+            id = known;
+            product.publishEntry(id);
+        }
+        LISTED.put(id, product);
+    }
+
+    /**
+     * Called by a store when a product is no longer found under its name.
+     */
+    static void delisted(Product product) {
+        product.setListed(false);
+        CatalogEntry entry = product.getEntry();
+        if (entry != null) {
+            LISTED.remove(entry.getId(), product);
+        }
+    }
+
+    /**
+     * Called by a store before an edit replaces a product, so a renamed replacement keeps the id.
+     */
+    static void replaced(Product oldProduct, Product newProduct) {
+        CatalogEntry entry = oldProduct.getEntry();
+        if (entry != null && newProduct.getEntry() == null) {
+            String oldKey = key(oldProduct);
+            String newKey = key(newProduct);
+            if (!oldKey.equals(newKey) && IDS.putIfAbsent(newKey, entry.getId()) == null) {
+                // A product added later under the old name is a different product
+                IDS.remove(oldKey, entry.getId());
+            }
+            newProduct.publishEntry(entry.getId());
+        }
+    }
+
+    private static String key(Product product) {
+        String store = product.getStore() == null ? "" : product.getStore().toLowerCase(Locale.ROOT);
+        return store + '\n' + product.getName().toLowerCase(Locale.ROOT);
+    }
+}
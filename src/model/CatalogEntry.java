@@ -0,0 +1,53 @@
+/**
+ * An immutable view of a listed product: what carts and orders show and charge for it.
+ *
+ * Every cart that holds a product refers to the same entry instance instead of a copy of the
+ * product. An edit to the product (price, description, ...) publishes a new entry with the same
+ * id, so carts see the change the next time they resolve the id through {@link CatalogEntries}.
+ * Stock is not part of the entry; it stays on the live product.
+ */
+public final class CatalogEntry {
+    private final int id;
+    private final String name;
+    private final String storeName;
+    private final String description;
+    private final ProductCategory category;
+    private final long priceCents;
+
+    CatalogEntry(int id, Product product) {
+        this.id = id;
+        this.name = product.getName();
+        this.storeName = product.getStore();
+        this.description = product.getDescription();
+        this.category = product.getCategory();
+        this.priceCents = product.getPriceCents();
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getStore() {
+        return storeName;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public ProductCategory getCategory() {
+        return category;
+    }
+
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    public double getPrice() {
+        return Money.toDouble(priceCents);
+    }
+}
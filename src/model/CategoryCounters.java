@@ -0,0 +1,48 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running sale count and revenue (in cents) per product category.
+ *
+ * Updated once per sale, so dashboards read totals in O(categories) however many sales there
+ * have been. LongAdder keeps concurrent purchases from contending on one counter.
+ */
+public class CategoryCounters {
+    private final LongAdder[] sales = new LongAdder[ProductCategory.values().length];
+    private final LongAdder[] cents = new LongAdder[ProductCategory.values().length];
+
+    public CategoryCounters() {
+        for (int i = 0; i < sales.length; i++) {
+            sales[i] = new LongAdder();
+            cents[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Counts one sale.
+     * @param categoryOrdinal ProductCategory ordinal
+     * @param amountCents revenue of the sale
+     */
+    public void record(int categoryOrdinal, long amountCents) {
+        sales[categoryOrdinal].increment();
+        cents[categoryOrdinal].add(amountCents);
+    }
+
+    public long getSales(int categoryOrdinal) {
+        return sales[categoryOrdinal].sum();
+    }
+
+    public long getCents(int categoryOrdinal) {
+        return cents[categoryOrdinal].sum();
+    }
+
+    /**
+     * Adds (sign 1) or subtracts (sign -1) another set of totals, e.g. when a store joins or
+     * leaves a seller.
+     */
+    void add(CategoryCounters other, int sign) {
+        for (int i = 0; i < sales.length; i++) {
+            sales[i].add(sign * other.getSales(i));
+            cents[i].add(sign * other.getCents(i));
+        }
+    }
+}
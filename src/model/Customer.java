@@ -6,7 +6,7 @@ import java.util.Scanner;
 import java.io.*;
 
 public class Customer {
-    private ArrayList<Product> shoppingCart = new ArrayList<>();
+    private final ShoppingCart shoppingCart = new ShoppingCart();
 
     public Customer(String email) {
         this.email = email;
@@ -18,51 +18,57 @@ public class Customer {
 
 
     public void viewCart(String email) {
-        if (shoppingCart == null || shoppingCart.isEmpty()) {
+        if (shoppingCart.isEmpty()) {
             System.out.println("There is nothing in your shopping cart.");
             return;
         }
 
         System.out.println("\n--- Your Shopping Cart ---");
-        double total = 0.0;
-        for (int i = 0; i < shoppingCart.size(); i++) {
-            Product product = shoppingCart.get(i);
-            double lineTotal = product.getPrice() * product.getQuantity();
-            total += lineTotal;
+        int i = 0;
+        for (ShoppingCart.Line line : shoppingCart.getLines()) {
             System.out.println(String.format("%d) %s x%d | %s | $%.2f each | Line: $%.2f",
-                    (i + 1),
-                    product.getName(),
-                    product.getQuantity(),
-                    (product.getCategory() != null ? product.getCategory().getDisplayName() : "Uncategorized"),
-                    product.getPrice(),
-                    lineTotal));
+                    (++i),
+                    line.getName(),
+                    line.getQuantity(),
+                    (line.getCategory() != null ? line.getCategory().getDisplayName() : "Uncategorized"),
+                    line.getUnitPrice(),
+                    line.getLineTotal()));
         }
-        System.out.println("Cart Total: $" + String.format("%.2f", total));
+        System.out.println("Cart Total: $" + String.format("%.2f", shoppingCart.getTotal()));
     }
 
-    public void addToCart(Product product) {
-        shoppingCart.add(product);
+    /**
+     * Adds a cart item: the product's quantity is the number of units wanted. Units of a
+     * product already in the cart are added to its line.
+     * @return the product's cart line
+     */
+    public ShoppingCart.Line addToCart(Product product) {
+        return addToCart(product, product.getQuantity());
+    }
+
+    /**
+     * Adds units of a catalog product; the cart refers to the product rather than copying it.
+     * @return the product's cart line
+     */
+    public ShoppingCart.Line addToCart(Product product, int quantity) {
+        return shoppingCart.add(product, quantity);
     }
 
     public void removeProduct(Product product) {
-        for (int i = 0; i < shoppingCart.size(); i++) {
-            if (shoppingCart.get(i).equals(product)) {
-                shoppingCart.remove(shoppingCart.get(i));
-            }
-        }
+        shoppingCart.remove(product);
     }
 
     public void writeCart() {
         try {
             File f = new File(email);
             if (!f.isDirectory()) {
-                PrintWriter pw = new PrintWriter(new FileOutputStream(f), true);
-                pw.append("Shopping cart: \n");
-                for (int i = 0; i < shoppingCart.size(); i++) {
+                ArrayList<String> lines = new ArrayList<>();
+                lines.add("Shopping cart: ");
+                for (ShoppingCart.Line line : shoppingCart.getLines()) {
                     // Write product with category information in the new format
-                    pw.append(shoppingCart.get(i).toString() + "\n");
+                    lines.add(line.toProduct().toString());
                 }
-
+                AtomicFileWriter.writeLines(f, lines);
             }
         } catch (IOException e){
             e.printStackTrace();
@@ -85,7 +91,7 @@ public class Customer {
 
     //Done
     public void addToShoppingCart(Product product) {
-        this.shoppingCart.add(product);
+        addToCart(product);
     }
 
     /**
@@ -180,9 +186,9 @@ public class Customer {
 
     /**
      * Gets the shopping cart for processing purchases.
-     * @return ArrayList of products in the shopping cart
+     * @return the customer's cart
      */
-    public ArrayList<Product> getShoppingCart() {
+    public ShoppingCart getShoppingCart() {
         return shoppingCart;
     }
 
@@ -252,10 +258,10 @@ public class Customer {
     
     /**
      * Processes a purchase by creating database records for the order
-     * @param totalPrice total price of the order
+     * @param totalCents total price of the order, in cents
      * @return order ID if successful, -1 otherwise
      */
-    public int processPurchase(double totalPrice) {
+    public int processPurchase(long totalCents) {
         try {
             UserDAO userDAO = new UserDAO();
             int userId = userDAO.getUserId(this.email);
@@ -267,7 +273,7 @@ public class Customer {
             
             // Create the order
             OrderDAO orderDAO = new OrderDAO();
-            int orderId = orderDAO.createOrder(userId, totalPrice);
+            int orderId = orderDAO.createOrderCents(userId, totalCents);
             
             if (orderId <= 0) {
                 System.err.println("Failed to create order");
@@ -275,13 +281,13 @@ public class Customer {
             }
             
             // Add order details for each item in shopping cart
-            for (Product product : shoppingCart) {
-                int productId = getProductId(product);
+            for (ShoppingCart.Line line : shoppingCart.getLines()) {
+                int productId = getProductId(line.getName(), line.getStore());
                 
                 if (productId > 0) {
-                    orderDAO.addOrderDetail(orderId, productId, product.getQuantity());
+                    orderDAO.addOrderDetail(orderId, productId, line.getQuantity());
                 } else {
-                    System.err.println("Warning: Could not find product ID for " + product.getName());
+                    System.err.println("Warning: Could not find product ID for " + line.getName());
                 }
             }
             
@@ -297,13 +303,14 @@ public class Customer {
     
     /**
      * Helper method to get product ID from database
-     * @param product Product object to find
+     * @param name product name
+     * @param storeName store the product is sold in
      * @return product ID if found, -1 otherwise
      */
-    private int getProductId(Product product) {
+    private int getProductId(String name, String storeName) {
         try {
             ProductDAO productDAO = new ProductDAO();
-            return productDAO.getProductId(product.getName(), product.getStore());
+            return productDAO.getProductId(name, storeName);
         } catch (Exception e) {
             System.err.println("Error getting product ID: " + e.getMessage());
             return -1;
@@ -0,0 +1,110 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money amounts as whole cents in a primitive long.
+ *
+ * Prices, totals and revenue are kept in cents so sums and products are exact and cost no
+ * allocation. Doubles only appear at the edges (console input, legacy callers), and are
+ * rounded to the nearest cent once on the way in. The DECIMAL(10,2) database columns map to
+ * cents through {@link #toBigDecimal} and {@link #fromBigDecimal}.
+ */
+public final class Money {
+
+    private Money() {
+    }
+
+    /**
+     * Parses a decimal amount such as "19.99", "5", "-0.5" or "1e2" into cents. Digits past
+     * the second decimal place are rounded half-up.
+     * @param text amount in dollars
+     * @return amount in cents
+     * @throws NumberFormatException if the text is not a number
+     */
+    public static long parse(String text) {
+        String s = text.trim();
+        int i = 0;
+        boolean negative = false;
+        if (i < s.length() && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+        long whole = 0;
+        int digits = 0;
+        while (i < s.length() && Character.isDigit(s.charAt(i)) && digits < 16) {
+            whole = whole * 10 + (s.charAt(i) - '0');
+            digits++;
+            i++;
+        }
+        long fraction = 0;
+        int fractionDigits = 0;
+        if (i < s.length() && s.charAt(i) == '.') {
+            i++;
+            while (i < s.length() && Character.isDigit(s.charAt(i)) && fractionDigits < 2) {
+                fraction = fraction * 10 + (s.charAt(i) - '0');
+                fractionDigits++;
+                i++;
+            }
+        }
+        if (i != s.length() || digits + fractionDigits == 0) {
+            // Exponents, extra decimal places and very large amounts take the slow path
+            return fromBigDecimal(new BigDecimal(s));
+        }
+        long cents = whole * 100 + (fractionDigits == 1 ? fraction * 10 : fraction);
+        return negative ? -cents : cents;
+    }
+
+    /**
+     * @return the amount rounded to the nearest cent
+     */
+    public static long fromDouble(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * @return the amount with exactly two decimal places and no grouping, e.g. "1234.50",
+     * whatever the default locale
+     */
+    public static String format(long cents) {
+        long abs = Math.abs(cents);
+        long fraction = abs % 100;
+        StringBuilder sb = new StringBuilder(24);
+        if (cents < 0) {
+            sb.append('-');
+        }
+        sb.append(abs / 100).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction).toString();
+    }
+
+    /**
+     * @return the amount as a scale-2 decimal, for DECIMAL(10,2) columns
+     */
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * @return the decimal rounded half-up to cents; null reads as zero, like ResultSet.getDouble
+     */
+    public static long fromBigDecimal(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * @return unit price times quantity
+     * @throws ArithmeticException on overflow
+     */
+    public static long times(long cents, int quantity) {
+        return Math.multiplyExact(cents, (long) quantity);
+    }
+}
@@ -10,7 +10,7 @@ public class Order {
     private int orderId;
     private int userId;
     private Date orderDate;
-    private double totalPrice;
+    private long totalCents;
     private List<OrderDetail> orderDetails;
     
     /**
@@ -18,24 +18,24 @@ public class Order {
      * @param orderId unique identifier for the order
      * @param userId user ID who placed the order
      * @param orderDate date when the order was placed
-     * @param totalPrice total price of the order
+     * @param totalCents total price of the order, in cents
      */
-    public Order(int orderId, int userId, Date orderDate, double totalPrice) {
+    public Order(int orderId, int userId, Date orderDate, long totalCents) {
         this.orderId = orderId;
         this.userId = userId;
         this.orderDate = orderDate;
-        this.totalPrice = totalPrice;
+        this.totalCents = totalCents;
         this.orderDetails = new ArrayList<>();
     }
     
     /**
      * Constructor for creating a new Order without orderId (for new orders)
      * @param userId user ID who placed the order
-     * @param totalPrice total price of the order
+     * @param totalCents total price of the order, in cents
      */
-    public Order(int userId, double totalPrice) {
+    public Order(int userId, long totalCents) {
         this.userId = userId;
-        this.totalPrice = totalPrice;
+        this.totalCents = totalCents;
         this.orderDate = new Date(System.currentTimeMillis());
         this.orderDetails = new ArrayList<>();
     }
@@ -67,11 +67,19 @@ public class Order {
     }
     
     public double getTotalPrice() {
-        return totalPrice;
+        return Money.toDouble(totalCents);
     }
     
     public void setTotalPrice(double totalPrice) {
-        this.totalPrice = totalPrice;
+        this.totalCents = Money.fromDouble(totalPrice);
+    }
+    
+    public long getTotalCents() {
+        return totalCents;
+    }
+    
+    public void setTotalCents(long totalCents) {
+        this.totalCents = totalCents;
     }
     
     public List<OrderDetail> getOrderDetails() {
@@ -92,7 +100,7 @@ public class Order {
     
     @Override
     public String toString() {
-        return String.format("Order[id=%d, userId=%d, date=%s, totalPrice=%.2f, items=%d]", 
-            orderId, userId, orderDate, totalPrice, orderDetails.size());
+        return String.format("Order[id=%d, userId=%d, date=%s, totalPrice=%s, items=%d]", 
+            orderId, userId, orderDate, Money.format(totalCents), orderDetails.size());
     }
 }
@@ -8,7 +8,7 @@ public class OrderDetail {
     private int productId;
     private int quantity;
     private String productName;
-    private double productPrice;
+    private long productPriceCents;
     
     /**
      * Constructor for creating an OrderDetail object with all fields
@@ -43,15 +43,15 @@ public class OrderDetail {
      * @param productId product ID for this line item
      * @param quantity quantity of the product ordered
      * @param productName name of the product
-     * @param productPrice price of the product
+     * @param productPriceCents price of the product, in cents
      */
-    public OrderDetail(int orderDetailId, int orderId, int productId, int quantity, String productName, double productPrice) {
+    public OrderDetail(int orderDetailId, int orderId, int productId, int quantity, String productName, long productPriceCents) {
         this.orderDetailId = orderDetailId;
         this.orderId = orderId;
         this.productId = productId;
         this.quantity = quantity;
         this.productName = productName;
-        this.productPrice = productPrice;
+        this.productPriceCents = productPriceCents;
     }
     
     // Getters and Setters
@@ -97,11 +97,15 @@ public class OrderDetail {
     }
     
     public double getProductPrice() {
-        return productPrice;
+        return Money.toDouble(productPriceCents);
     }
     
     public void setProductPrice(double productPrice) {
-        this.productPrice = productPrice;
+        this.productPriceCents = Money.fromDouble(productPrice);
+    }
+    
+    public long getProductPriceCents() {
+        return productPriceCents;
     }
     
     /**
@@ -109,14 +113,21 @@ public class OrderDetail {
      * @return subtotal (quantity * price)
      */
     public double getSubtotal() {
-        return quantity * productPrice;
+        return Money.toDouble(getSubtotalCents());
+    }
+
+    /**
+     * @return subtotal (quantity * price), in cents
+     */
+    public long getSubtotalCents() {
+        return Money.times(productPriceCents, quantity);
     }
     
     @Override
     public String toString() {
         if (productName != null) {
-            return String.format("OrderDetail[id=%d, orderId=%d, product=%s, qty=%d, price=%.2f, subtotal=%.2f]", 
-                orderDetailId, orderId, productName, quantity, productPrice, getSubtotal());
+            return String.format("OrderDetail[id=%d, orderId=%d, product=%s, qty=%d, price=%s, subtotal=%s]", 
+                orderDetailId, orderId, productName, quantity, Money.format(productPriceCents), Money.format(getSubtotalCents()));
         } else {
             return String.format("OrderDetail[id=%d, orderId=%d, productId=%d, qty=%d]", 
                 orderDetailId, orderId, productId, quantity);
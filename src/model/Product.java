@@ -1,21 +1,61 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Objects;
 
 public class Product {
     private String name;
     private String storeName;
+    // Lowercase name and store, the product's identity for equals and hashCode; kept with the fields
+    private String nameKey;
+    private String storeKey;
     private String description;
     private ArrayList<String> review;
-    private int quantity;
-    private double price;
+    // Volatile: read by browsing sessions without the store lock. Purchases update it with
+    // compare-and-set through QUANTITY, so it needs no lock and no extra object per product.
+    private volatile int quantity;
+    private volatile long priceCents;
     private ProductCategory category;
+    // Set while a flash sale runs; the product's stock then lives in its stripes
+    private volatile StripedStock flashSale;
+    // Shared view handed to carts; null until a cart refers to the product, replaced on edits
+    private volatile CatalogEntry entry;
+    // True while a store finds this product under its name; kept by CatalogEntries
+    private volatile boolean listed;
+
+    /**
+     * Where a purchase's units came from, which decides how the sale reaches the database.
+     */
+    public enum Take {
+        /** From the product's own counter. */
+        FROM_STOCK,
+        /** From a running flash sale's stripes, reconciled when the sale ends. */
+        FROM_FLASH_SALE,
+        /** Not enough stock. */
+        OUT_OF_STOCK
+    }
+
+    private static final VarHandle QUANTITY;
+    private static final long TAKEN_FROM_FLASH_SALE = 1L << 32;
+
+    static {
+        try {
+            QUANTITY = MethodHandles.lookup().findVarHandle(Product.class, "quantity", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     // Backward-compatible constructor that defaults to SHOES category
     public Product(String name, int quantity, double price, String description, String storeName) {
         this.name = name;
         this.storeName = storeName;
+        this.nameKey = key(name);
+        this.storeKey = key(storeName);
         this.description = description;
         this.quantity = quantity;
-        this.price = price;
+        this.priceCents = Money.fromDouble(price);
         this.category = ProductCategory.SHOES; // Default to SHOES for backward compatibility
     }
 
@@ -23,20 +63,50 @@ public class Product {
     public Product(String name, int quantity, double price, String description, String storeName, ProductCategory category) {
         this.name = name;
         this.storeName = storeName;
+        this.nameKey = key(name);
+        this.storeKey = key(storeName);
         this.description = description;
         this.quantity = quantity;
-        this.price = price;
+        this.priceCents = Money.fromDouble(price);
         this.category = category;
     }
 
+    /**
+     * Creates a product priced in whole cents, without a round trip through double.
+     */
+    public static Product ofCents(String name, int quantity, long priceCents, String description, String storeName, ProductCategory category) {
+        Product product = new Product(name, quantity, 0.0, description, storeName, category);
+        product.priceCents = priceCents;
+        return product;
+    }
+
+    /**
+     * Products are identified by name and store, both case-insensitive, matching how stores and
+     * the database look them up. Quantity, price and description are state, not identity, so a
+     * product stays equal to itself across edits and purchases. Do not rename a product while it
+     * is in a Store or hash collection; replace it with Store.setProduct instead.
+     */
     @Override
     public boolean equals(Object o) {
-        if (o instanceof Product) {
-            return (((Product) o).getName().equals(this.name) && ((Product) o).getQuantity() == this.quantity && ((Product) o).getPrice()
-                    == this.price && ((Product) o).getDescription().equals(this.description)
-                    && ((Product) o).getStore().equals(this.storeName));
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Product)) {
+            return false;
         }
-        return false;
+        Product other = (Product) o;
+        return nameKey.equals(other.nameKey) && Objects.equals(storeKey, other.storeKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(nameKey, storeKey);
+    }
+
+    // The same whole-string lowercasing in equals and hashCode; equalsIgnoreCase compares per
+    // character and disagrees with it for some letters (e.g. dotted capital I)
+    private static String key(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
     }
 
     public ArrayList<String> getReview() {
@@ -57,6 +127,8 @@ public class Product {
 
     public void setName(String name) {
         this.name = name;
+        this.nameKey = key(name);
+        refreshEntry();
     }
 
     public String getStore() {
@@ -65,6 +137,8 @@ public class Product {
 
     public void setStoreName(String storeName) {
         this.storeName = storeName;
+        this.storeKey = key(storeName);
+        refreshEntry();
     }
 
     public String getDescription() {
@@ -73,22 +147,202 @@ public class Product {
 
     public void setDescription(String description) {
         this.description = description;
+        refreshEntry();
     }
 
     public int getQuantity() {
-        return quantity;
+        StripedStock flash = flashSale;
+        return flash != null ? flash.available() : quantity;
     }
 
-    public void setQuantity(int quantity) {
-        this.quantity = quantity;
+    // Same lock as endFlashSale, so a set never lands between the sale closing and its
+    // leftover being added back to the counter
+    public synchronized void setQuantity(int quantity) {
+        StripedStock flash = flashSale;
+        if (flash == null || !flash.set(quantity)) {
+            this.quantity = quantity;
+        }
+    }
+
+    /**
+     * Takes units out of stock atomically if enough are left; concurrent buyers retry on
+     * conflict instead of locking, and can never oversell.
+     * @param units units wanted
+     * @return the quantity before taking them (during a flash sale, the stock of the stripe
+     * taken from), or -1 if fewer than units were left
+     */
+    public int takeQuantity(int units) {
+        long taken = takeUnits(units);
+        return taken < 0 ? -1 : (int) taken;
+    }
+
+    /**
+     * Takes units for a purchase, like {@link #takeQuantity}, and reports which counter they
+     * came from.
+     * @param units units wanted
+     * @return FROM_STOCK, FROM_FLASH_SALE, or OUT_OF_STOCK
+     */
+    public Take take(int units) {
+        long taken = takeUnits(units);
+        if (taken < 0) {
+            return Take.OUT_OF_STOCK;
+        }
+        return (taken & TAKEN_FROM_FLASH_SALE) != 0 ? Take.FROM_FLASH_SALE : Take.FROM_STOCK;
+    }
+
+    /**
+     * Takes units for a purchase from one source only, so the caller knows where to give them
+     * back: the given flash sale's stripes, or the product's own counter if sale is null.
+     * @param units units wanted
+     * @param sale the running sale, from {@link #getFlashSale}, or null
+     * @return FROM_STOCK, FROM_FLASH_SALE or OUT_OF_STOCK; null if a sale started or ended since
+     * sale was read, in which case read it again and retry
+     */
+    public Take take(int units, StripedStock sale) {
+        while (flashSale == sale) {
+            if (sale != null) {
+                int before = sale.take(units);
+                if (before != StripedStock.RETRY) {
+                    return before < 0 ? Take.OUT_OF_STOCK : Take.FROM_FLASH_SALE;
+                }
+                Thread.onSpinWait(); // The sale is being filled or closed
+                continue;
+            }
+            int available = quantity;
+            if (units > available) {
+                return flashSale == null ? Take.OUT_OF_STOCK : null;
+            }
+            if (QUANTITY.compareAndSet(this, available, available - units)) {
+                return Take.FROM_STOCK;
+            }
+        }
+        return null;
+    }
+
+    // Low 32 bits: stock before the take; TAKEN_FROM_FLASH_SALE set if a sale's stripe gave it
+    private long takeUnits(int units) {
+        while (true) {
+            StripedStock flash = flashSale;
+            if (flash != null) {
+                int before = flash.take(units);
+                if (before != StripedStock.RETRY) {
+                    return before < 0 ? -1 : before | TAKEN_FROM_FLASH_SALE;
+                }
+                Thread.onSpinWait(); // The sale is starting or ending; its stock is moving
+                continue;
+            }
+            int available = quantity;
+            if (units > available) {
+                if (flashSale != null) {
+                    continue; // A sale started and moved the stock into its stripes
+                }
+                return -1;
+            }
+            if (QUANTITY.compareAndSet(this, available, available - units)) {
+                return available;
+            }
+        }
+    }
+
+    /**
+     * Puts units back into stock atomically, e.g. when a purchase is undone.
+     * @return the quantity after adding them
+     */
+    public int addQuantity(int units) {
+        StripedStock flash = flashSale;
+        if (flash != null && flash.add(units)) {
+            return flash.available();
+        }
+        return (int) QUANTITY.getAndAdd(this, units) + units;
+    }
+
+    /**
+     * Starts a flash sale: moves the stock into a {@link StripedStock} so that many concurrent
+     * buyers decrement different counters.
+     * @param stripes number of counters
+     * @return false if a flash sale is already running
+     */
+    public synchronized boolean startFlashSale(int stripes) {
+        if (flashSale != null) {
+            return false;
+        }
+        StripedStock flash = new StripedStock(stripes);
+        // Published empty first: buyers arriving now wait for the fill instead of finding 0 left
+        flashSale = flash;
+        flash.fill((int) QUANTITY.getAndSet(this, 0));
+        return true;
+    }
+
+    /**
+     * Ends the flash sale and moves what is left back to the product's own counter.
+     * @return units sold during the sale, or -1 if none was running
+     */
+    public synchronized long endFlashSale() {
+        StripedStock flash = flashSale;
+        if (flash == null) {
+            return -1;
+        }
+        int remaining = flash.close();
+        QUANTITY.getAndAdd(this, remaining);
+        flashSale = null;
+        return flash.sold();
+    }
+
+    /**
+     * @return the running flash sale's stock, or null
+     */
+    public StripedStock getFlashSale() {
+        return flashSale;
     }
 
     public double getPrice() {
-        return price;
+        return Money.toDouble(priceCents);
     }
 
+    /**
+     * Sets the price, rounded to the nearest cent.
+     */
     public void setPrice(double price) {
-        this.price = price;
+        this.priceCents = Money.fromDouble(price);
+        refreshEntry();
+    }
+
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    public void setPriceCents(long priceCents) {
+        this.priceCents = priceCents;
+        refreshEntry();
+    }
+
+    /**
+     * @return the shared catalog entry carts refer to, or null if no cart has referred to this
+     * product yet (see {@link CatalogEntries})
+     */
+    public CatalogEntry getEntry() {
+        return entry;
+    }
+
+    // Called by CatalogEntries when the product gets its id
+    void publishEntry(int id) {
+        entry = new CatalogEntry(id, this);
+    }
+
+    boolean isListed() {
+        return listed;
+    }
+
+    // Called by CatalogEntries as stores list and delist the product
+    void setListed(boolean listed) {
+        this.listed = listed;
+    }
+
+    private void refreshEntry() {
+        CatalogEntry current = entry;
+        if (current != null) {
+            entry = new CatalogEntry(current.getId(), this);
+        }
     }
 
     public ProductCategory getCategory() {
@@ -97,18 +351,19 @@ public class Product {
 
     public void setCategory(ProductCategory category) {
         this.category = category;
+        refreshEntry();
     }
 
     @Override
     public String toString(){
-        return String.format("Name: %s | Category: %s | Price: $%.2f | Quantity: %d | Store: %s | Description: %s", 
-            this.name, this.category.getDisplayName(), this.price, this.quantity, this.storeName, this.description);
+        return String.format("Name: %s | Category: %s | Price: $%s | Quantity: %d | Store: %s | Description: %s", 
+            this.name, this.category.getDisplayName(), Money.format(this.priceCents), getQuantity(), this.storeName, this.description);
     }
     
     /**
      * Returns CSV format for file storage
      */
     public String toCSV(){
-        return String.format("%s,%d,%.2f,%s,%s,%s", this.name, this.quantity, this.price, this.description, this.storeName, this.category.name());
+        return String.format("%s,%d,%s,%s,%s,%s", this.name, getQuantity(), Money.format(this.priceCents), this.description, this.storeName, this.category.name());
     }
 }
\ No newline at end of file
@@ -0,0 +1,233 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Append-only record of a store's sales.
+ *
+ * Each sale is one row across parallel primitive arrays: customer id, product id, category
+ * ordinal, quantity, amount in cents and timestamp, about 30 bytes per sale with no per-sale
+ * objects. Customer emails and product names are stored once, in process-wide id tables,
+ * and sales refer to them by compact int ids. Analytics read the columns directly; the
+ * human-readable "x bought n Foo" lines are only rendered for display.
+ *
+ * Each recorded sale also updates the ledger's per-category totals and, if set, the owning
+ * seller's totals, so dashboards need not scan the rows at all.
+ *
+ * Row access is synchronized on the ledger, so concurrent purchases and readers of one store
+ * never see a half-grown row; ledgers of different stores do not contend.
+ */
+public class SalesLedger {
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Process-wide id tables: id -> value, and value -> id
+    private static final ArrayList<String> CUSTOMERS = new ArrayList<>();
+    private static final Map<String, Integer> CUSTOMER_IDS = new HashMap<>();
+    private static final ArrayList<String> PRODUCTS = new ArrayList<>();
+    private static final Map<String, Integer> PRODUCT_IDS = new HashMap<>();
+
+    private int size;
+    private int[] customerIds = new int[INITIAL_CAPACITY];
+    private int[] productIds = new int[INITIAL_CAPACITY];
+    private byte[] categories = new byte[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private long[] amountCents = new long[INITIAL_CAPACITY];
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+
+    private final CategoryCounters totals = new CategoryCounters();
+    private CategoryCounters ownerTotals;
+
+    /**
+     * Appends a sale.
+     * @param customerEmail buyer
+     * @param product product sold; its store and category are recorded
+     * @param quantity units sold
+     * @param cents amount charged, in cents
+     * @param timestamp time of sale, epoch milliseconds
+     * @return row index of the sale
+     */
+    public synchronized int record(String customerEmail, Product product, int quantity, long cents, long timestamp) {
+        if (size == quantities.length) {
+            grow();
+        }
+        customerIds[size] = customerId(customerEmail);
+        productIds[size] = productId(product.getStore(), product.getName());
+        categories[size] = (byte) product.getCategory().ordinal();
+        quantities[size] = quantity;
+        amountCents[size] = cents;
+        timestamps[size] = timestamp;
+        totals.record(categories[size], cents);
+        if (ownerTotals != null) {
+            ownerTotals.record(categories[size], cents);
+        }
+        return size++;
+    }
+
+    /**
+     * @return running per-category totals of this ledger's sales
+     */
+    public CategoryCounters getTotals() {
+        return totals;
+    }
+
+    /**
+     * Links the ledger to its seller's totals, moving this ledger's sales so far from the
+     * previous owner's totals to the new one.
+     * @param owner seller totals to keep in step, or null
+     */
+    synchronized void setOwnerTotals(CategoryCounters owner) {
+        if (ownerTotals != null) {
+            ownerTotals.add(totals, -1);
+        }
+        ownerTotals = owner;
+        if (owner != null) {
+            owner.add(totals, 1);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int getCustomerId(int row) {
+        return customerIds[check(row)];
+    }
+
+    public synchronized int getProductId(int row) {
+        return productIds[check(row)];
+    }
+
+    public synchronized ProductCategory getCategory(int row) {
+        return ProductCategory.values()[categories[check(row)]];
+    }
+
+    /**
+     * @return category ordinal of the sale, for indexing per-category arrays
+     */
+    public synchronized int getCategoryOrdinal(int row) {
+        return categories[check(row)];
+    }
+
+    public synchronized int getQuantity(int row) {
+        return quantities[check(row)];
+    }
+
+    public synchronized long getAmountCents(int row) {
+        return amountCents[check(row)];
+    }
+
+    public synchronized long getTimestamp(int row) {
+        return timestamps[check(row)];
+    }
+
+    public String getCustomerEmail(int row) {
+        int id = getCustomerId(row); // Ledger lock first, then the id table, as record does
+        synchronized (CUSTOMERS) {
+            return CUSTOMERS.get(id);
+        }
+    }
+
+    public String getProductName(int row) {
+        int id = getProductId(row);
+        String key;
+        synchronized (PRODUCTS) {
+            key = PRODUCTS.get(id);
+        }
+        return key.substring(key.indexOf('\u0000') + 1);
+    }
+
+    /**
+     * @return the sale as the text line stores used to keep, for display
+     */
+    public String format(int row) {
+        return getCustomerEmail(row) + " bought " + getQuantity(row) + " " + getProductName(row)
+            + " .Revenue generated: " + (getAmountCents(row) / 100.0);
+    }
+
+    /**
+     * Compares two ledgers row by row without rendering any sale. Locks one ledger at a time,
+     * so two threads comparing the same pair in opposite order cannot deadlock.
+     * @return true if both hold the same sales in the same order
+     */
+    public boolean sameSales(SalesLedger other) {
+        if (other == this) {
+            return true;
+        }
+        int rows = size();
+        if (other.size() != rows) {
+            return false;
+        }
+        for (int i = 0; i < rows; i++) {
+            if (getCustomerId(i) != other.getCustomerId(i) || getProductId(i) != other.getProductId(i)
+                    || getQuantity(i) != other.getQuantity(i) || getAmountCents(i) != other.getAmountCents(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return every sale as a display line, oldest first
+     */
+    public synchronized ArrayList<String> formatAll() {
+        ArrayList<String> lines = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            lines.add(format(i));
+        }
+        return lines;
+    }
+
+    /**
+     * @return id for the customer email, assigned on first use
+     */
+    static int customerId(String email) {
+        synchronized (CUSTOMERS) {
+            return intern(email, CUSTOMERS, CUSTOMER_IDS);
+        }
+    }
+
+    /**
+     * @return id for the product (store and name, case-insensitive), assigned on first use
+     */
+    static int productId(String storeName, String productName) {
+        String key = storeName.toLowerCase(Locale.ROOT) + "\u0000" + productName;
+        synchronized (PRODUCTS) {
+            Integer id = PRODUCT_IDS.get(key.toLowerCase(Locale.ROOT));
+            if (id != null) {
+                return id;
+            }
+            PRODUCTS.add(key);
+            PRODUCT_IDS.put(key.toLowerCase(Locale.ROOT), PRODUCTS.size() - 1);
+            return PRODUCTS.size() - 1;
+        }
+    }
+
+    private static int intern(String value, ArrayList<String> values, Map<String, Integer> ids) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = values.size();
+            values.add(value);
+            ids.put(value, id);
+        }
+        return id;
+    }
+
+    private void grow() {
+        int capacity = quantities.length * 2;
+        customerIds = Arrays.copyOf(customerIds, capacity);
+        productIds = Arrays.copyOf(productIds, capacity);
+        categories = Arrays.copyOf(categories, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        amountCents = Arrays.copyOf(amountCents, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+    }
+
+    private int check(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Sale " + row + " of " + size);
+        }
+        return row;
+    }
+}
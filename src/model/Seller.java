@@ -1,11 +1,28 @@
 import java.io.*;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Seller {
-    private ArrayList<Store> stores = new ArrayList<>();
-    private String email;
+    // Guarded by the seller. Readers get an immutable snapshot that is only rebuilt on the first
+    // read after a change, so adding stores one by one at load time never copies the list.
+    private final ArrayList<Store> stores = new ArrayList<>();
+    private volatile List<Store> snapshot;
+    // Case-insensitive name index over stores; the first store with a name wins, like the old scans
+    private final Map<String, Store> storesByName = new ConcurrentHashMap<>();
+    private volatile SellerRegistry registry;
+    // Sales totals per category across this seller's stores, kept in step by their ledgers
+    private final CategoryCounters categoryTotals = new CategoryCounters();
+    private volatile String email;
     private ProductDAO productDAO;
+    // Bumped when the store list changes; product changes are tracked on each Store
+    private final AtomicLong modifications = new AtomicLong(1);
+    private volatile long persistedModifications;
 
     public Seller(String email) {
         this.email = email;
@@ -25,27 +42,137 @@ public class Seller {
 
     public void setName(String name) {
         this.email = name;
+        modifications.incrementAndGet();
+        for (Store store : getStores()) {
+            store.markDirty(); // Every line starts with the email
+        }
+        if (registry != null) {
+            registry.emailChanged(this);
+        }
+    }
+
+    /**
+     * @return running sales totals per category across this seller's current stores
+     */
+    public CategoryCounters getCategoryTotals() {
+        return categoryTotals;
     }
 
-    public ArrayList<Store> getStores() {
-        return stores;
+    /**
+     * Set by the registry this seller is listed in, so store changes reach its index.
+     */
+    void setRegistry(SellerRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * @return read-only snapshot of the seller's stores, unaffected by later changes
+     */
+    public List<Store> getStores() {
+        List<Store> current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = Collections.unmodifiableList(new ArrayList<>(stores));
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
     }
 
     public boolean checkIfStoreExists(String storeName) {
-        for (Store store : stores) {
-            if (store.getName().equalsIgnoreCase(storeName)) {
+        return searchStore(storeName) != null;
+    }
+
+    public void addStores(String storeName) {
+        addStores(new Store(storeName));
+    }
+    public void addStores(Store store) {
+        SellerRegistry listedIn;
+        synchronized (this) {
+            this.stores.add(store);
+            snapshot = null;
+            storesByName.putIfAbsent(key(store.getName()), store);
+            store.getSalesLedger().setOwnerTotals(categoryTotals);
+            modifications.incrementAndGet();
+            listedIn = registry;
+        }
+        // Outside the seller's lock: the registry reads sellers' stores under its own lock
+        if (listedIn != null) {
+            listedIn.storeAdded(this, store);
+        }
+    }
+
+    /**
+     * Removes the first store with the given name.
+     * @param storeName store name, matched case-insensitively
+     * @return the removed store, or null if the seller has no such store
+     */
+    public Store removeStore(String storeName) {
+        Store store;
+        SellerRegistry listedIn;
+        synchronized (this) {
+            store = searchStore(storeName);
+            if (store == null) {
+                return null;
+            }
+            stores.remove(store);
+            snapshot = null;
+            store.getSalesLedger().setOwnerTotals(null);
+            String key = key(storeName);
+            Store next = null;
+            for (Store other : stores) {
+                if (key(other.getName()).equals(key)) {
+                    next = other;
+                    break;
+                }
+            }
+            // Swap in the next store directly, so concurrent lookups never miss the name
+            if (next != null) {
+                storesByName.put(key, next);
+            } else {
+                storesByName.remove(key);
+            }
+            modifications.incrementAndGet();
+            listedIn = registry;
+        }
+        if (listedIn != null) {
+            listedIn.storeRemoved(this, store);
+        }
+        return store;
+    }
+
+    /**
+     * @return true if the store list or any store changed since the seller was last persisted
+     */
+    public boolean isDirty() {
+        if (modifications.get() != persistedModifications) {
+            return true;
+        }
+        for (Store store : getStores()) {
+            if (store.isDirty()) {
                 return true;
             }
         }
         return false;
     }
 
-    public void addStores(String storeName) {
-        Store store = new Store(storeName);
-        this.stores.add(store);
+    /**
+     * @return counter bumped by every store list change; read it before rendering the seller
+     */
+    public long getModificationCount() {
+        return modifications.get();
     }
-    public void addStores(Store store) {
-        this.stores.add(store);
+
+    /**
+     * Marks the store list as persisted, unless it changed after it was rendered. Stores are
+     * marked clean individually.
+     * @param modificationCount {@link #getModificationCount()} read before rendering
+     */
+    public void markClean(long modificationCount) {
+        persistedModifications = modificationCount;
     }
 
 
@@ -59,10 +186,9 @@ public class Seller {
         }
         
         int count = 0;
-        for (Store s : stores) {
+        for (Store s : getStores()) {
             if (s.getName().equalsIgnoreCase(storeName)) {
-                int index = stores.indexOf(s);
-                stores.get(index).addProduct(new Product(productName, quantity, price, description, storeName, category));
+                s.addProduct(new Product(productName, quantity, price, description, storeName, category));
             }
             count++;
         }
@@ -102,12 +228,9 @@ public class Seller {
         
         if (productId > 0) {
             // Also add to in-memory store for backward compatibility
-            for (Store s : stores) {
-                if (s.getName().equalsIgnoreCase(storeName)) {
-                    int index = stores.indexOf(s);
-                    stores.get(index).addProduct(new Product(productName, quantity, price, description, storeName, category));
-                    break;
-                }
+            Store s = searchStore(storeName);
+            if (s != null) {
+                s.addProduct(new Product(productName, quantity, price, description, storeName, category));
             }
         }
         
@@ -122,11 +245,10 @@ public class Seller {
 
 
     public void removeProduct(String storeName, Product product) {
-        for (Store s : stores) {
+        for (Store s : getStores()) {
             if (s.getName().equalsIgnoreCase(storeName)) {
                 if (s.getProducts().size() != 0) {
-                    int index = stores.indexOf(s);
-                    stores.get(index).removeProduct(product);
+                    s.removeProduct(product);
                 } else {
                     System.out.println("There are no products in this store.");
                 }
@@ -155,14 +277,9 @@ public class Seller {
         
         if (success) {
             // Also remove from in-memory store for backward compatibility
-            for (Store s : stores) {
-                if (s.getName().equalsIgnoreCase(storeName)) {
-                    if (s.getProducts().size() != 0) {
-                        int index = stores.indexOf(s);
-                        stores.get(index).removeProduct(product);
-                    }
-                    break;
-                }
+            Store s = searchStore(storeName);
+            if (s != null && s.getProducts().size() != 0) {
+                s.removeProduct(product);
             }
         }
         
@@ -177,10 +294,9 @@ public class Seller {
         }
         
         Product newProduct = new Product(newName, newQuantity, newPrice, newDesc, storeName, newCategory);
-        for (Store s : stores) {
+        for (Store s : getStores()) {
             if (s.getName().equals(storeName)) {
-                int index = stores.indexOf(s);
-                stores.get(index).setProduct(oldProduct, newProduct);
+                s.setProduct(oldProduct, newProduct);
             }
         }
     }
@@ -219,12 +335,32 @@ public class Seller {
             return false;
         }
         
+        // A running flash sale ends before the edit, so its units are journaled under the name
+        // the row still has and the stock below is the product's own counter
+        Store store = searchStore(storeName);
+        Product live = store == null ? null : store.findProduct(oldProduct.getName());
+        if (live != null) {
+            store.endFlashSale(live);
+        }
+
         // Track changes for logging
         boolean success = true;
         
-        // Update name if changed
+        // Update name if changed. Sales journaled under the old name are applied first, and none
+        // can be journaled until the row carries the new one.
+        String dbName = oldProduct.getName();
         if (!oldProduct.getName().equals(newName)) {
-            success &= productDAO.updateProduct(productId, "name", oldProduct.getName(), newName, userId, changeReason);
+            try {
+                boolean renamed = StockJournal.runFlushed(() ->
+                    productDAO.updateProduct(productId, "name", oldProduct.getName(), newName, userId, changeReason));
+                success &= renamed;
+                if (renamed) {
+                    dbName = newName;
+                }
+            } catch (SQLException e) {
+                System.err.println("Error applying pending sales before the rename: " + e.getMessage());
+                success = false;
+            }
         }
         
         // Update description if changed
@@ -233,15 +369,10 @@ public class Seller {
         }
         
         // Update price if changed
-        if (oldProduct.getPrice() != newPrice) {
+        long newPriceCents = Money.fromDouble(newPrice);
+        if (oldProduct.getPriceCents() != newPriceCents) {
             success &= productDAO.updateProduct(productId, "price", 
-                String.valueOf(oldProduct.getPrice()), String.valueOf(newPrice), userId, changeReason);
-        }
-        
-        // Update quantity if changed
-        if (oldProduct.getQuantity() != newQuantity) {
-            success &= productDAO.updateProduct(productId, "quantity", 
-                String.valueOf(oldProduct.getQuantity()), String.valueOf(newQuantity), userId, changeReason);
+                Money.format(oldProduct.getPriceCents()), Money.format(newPriceCents), userId, changeReason);
         }
         
         // Update category if changed
@@ -251,12 +382,20 @@ public class Seller {
         }
         
         if (success) {
+            // Update quantity if changed. The row may not have caught up with recent sales yet, so
+            // the change is journaled as a delta from the in-memory stock, not written over it.
+            int currentQuantity = live != null ? live.getQuantity() : oldProduct.getQuantity();
+            if (currentQuantity != newQuantity) {
+                StockJournal.recordAdjustment(storeName, dbName, newQuantity - currentQuantity);
+                productDAO.logFieldChange(productId, "quantity",
+                    String.valueOf(currentQuantity), String.valueOf(newQuantity), userId, changeReason);
+            }
+
             // Also update in-memory store for backward compatibility
             Product newProduct = new Product(newName, newQuantity, newPrice, newDesc, storeName, newCategory);
-            for (Store s : stores) {
+            for (Store s : getStores()) {
                 if (s.getName().equals(storeName)) {
-                    int index = stores.indexOf(s);
-                    stores.get(index).setProduct(oldProduct, newProduct);
+                    s.setProduct(oldProduct, newProduct);
                     break;
                 }
             }
@@ -279,37 +418,17 @@ public class Seller {
             return;
         }
         
-        removeProduct(storeName, new Product(oldName, oldQuantity, oldPrice, oldDesc, storeName, oldCategory));
-        createProduct(storeName, newName, newQuantity, newPrice, newDesc, newCategory);
-        ArrayList<String> otherSellers = new ArrayList<>();
-        int index = 0;
-        for (int i = 0; i < stores.size(); i++) {
-            if (stores.get(i).getName().equalsIgnoreCase(storeName)) {
-                index = i;
-            }
-        }
-        try (BufferedReader bfr = new BufferedReader(new FileReader(FileConstants.SELLERS_FILE))) {
-            String line = "";
-            while ((line = bfr.readLine()) != null) {
-                if (!line.startsWith(this.email) || !line.contains(storeName)) {
-                    otherSellers.add(line);
-                }
-            }
-            bfr.close();
-        } catch (IOException e) {
-            System.out.println();
-        }
-        try (BufferedWriter bwr = new BufferedWriter(new FileWriter(FileConstants.SELLERS_FILE))) {
-            for (int i = 0; i < otherSellers.size(); i++) {
-                bwr.write(otherSellers.get(i) + "\n");
-            }
-
-            bwr.write(this.email + "," + stores.get(index).toString() + "\n");
-
-            bwr.flush();
-        } catch (IOException e) {
-            System.out.println();
+        if (!checkIfStoreExists(storeName)) {
+            System.out.println("You are not affiliated with " + storeName);
+            return;
         }
+        
+        Product oldProduct = new Product(oldName, oldQuantity, oldPrice, oldDesc, storeName, oldCategory);
+        CatalogEditLog.appendEditProduct(this.email, storeName, oldProduct,
+            new Product(newName, newQuantity, newPrice, newDesc, storeName, newCategory), () -> {
+                removeProduct(storeName, oldProduct);
+                createProduct(storeName, newName, newQuantity, newPrice, newDesc, newCategory);
+            });
     }
 
     // Backward-compatible method that defaults to SHOES category for both old and new products
@@ -319,13 +438,11 @@ public class Seller {
                                       newName, newQuantity, newPrice, newDesc, ProductCategory.SHOES);
     }
     public Store searchStore(String storeName) {
-        for (Store s : stores) {
-            if (s.getName().equalsIgnoreCase(storeName)) {
-                int index = stores.indexOf(s);
-                return stores.get(index);
-            }
-        }
-        return null;
+        return storeName == null ? null : storesByName.get(key(storeName));
+    }
+
+    private static String key(String storeName) {
+        return storeName.toLowerCase(Locale.ROOT);
     }
     public void writeToSellerFileAddProduct(String storeName, String name, int quantity, double price, String description, ProductCategory category) {
         // Validate category before creating product
@@ -334,36 +451,13 @@ public class Seller {
             return;
         }
         
-        createProduct(storeName, name, quantity, price, description, category);
-        ArrayList<String> otherSellers = new ArrayList<>();
-        int index = 0;
-        for (int i = 0; i < stores.size(); i++) {
-            if (stores.get(i).getName().equalsIgnoreCase(storeName)) {
-                index = i;
-            }
-        }
-        try (BufferedReader bfr = new BufferedReader(new FileReader(FileConstants.SELLERS_FILE))) {
-            String line = "";
-            while ((line = bfr.readLine()) != null) {
-                if (!line.startsWith(this.email) || !line.contains(storeName)) {
-                    otherSellers.add(line);
-                }
-            }
-            bfr.close();
-        } catch (IOException e) {
-            System.out.println();
-        }
-        try (BufferedWriter bwr = new BufferedWriter(new FileWriter(FileConstants.SELLERS_FILE))) {
-            for (int i = 0; i < otherSellers.size(); i++) {
-                bwr.write(otherSellers.get(i) + "\n");
-            }
-
-            bwr.write(this.email + "," + stores.get(index).toString() + "\n");
-
-            bwr.flush();
-        } catch (IOException e) {
-            System.out.println();
+        if (!checkIfStoreExists(storeName)) {
+            System.out.println("You are not affiliated with " + storeName);
+            return;
         }
+        
+        CatalogEditLog.appendAddProduct(this.email, storeName, new Product(name, quantity, price, description, storeName, category),
+            () -> createProduct(storeName, name, quantity, price, description, category));
     }
 
     // Backward-compatible method that defaults to SHOES category
@@ -378,36 +472,13 @@ public class Seller {
             return;
         }
         
-        removeProduct(storeName, new Product(productName, quantity, price, description, storeName, category));
-        ArrayList<String> otherSellers = new ArrayList<>();
-        int index = 0;
-        for (int i = 0; i < stores.size(); i++) {
-            if (stores.get(i).getName().equalsIgnoreCase(storeName)) {
-                index = i;
-            }
-        }
-        try (BufferedReader bfr = new BufferedReader(new FileReader(FileConstants.SELLERS_FILE))) {
-            String line = "";
-            while ((line = bfr.readLine()) != null) {
-                if (!line.startsWith(this.email) || !line.contains(storeName)) {
-                    otherSellers.add(line);
-                }
-            }
-            bfr.close();
-        } catch (IOException e) {
-            System.out.println();
-        }
-        try (BufferedWriter bwr = new BufferedWriter(new FileWriter(FileConstants.SELLERS_FILE))) {
-            for (int i = 0; i < otherSellers.size(); i++) {
-                bwr.write(otherSellers.get(i) + "\n");
-            }
-
-            bwr.write(this.email + "," + stores.get(index).toString() + "\n");
-
-            bwr.flush();
-        } catch (IOException e) {
-            System.out.println();
+        if (!checkIfStoreExists(storeName)) {
+            System.out.println("You are not affiliated with " + storeName);
+            return;
         }
+        
+        Product product = new Product(productName, quantity, price, description, storeName, category);
+        CatalogEditLog.appendRemoveProduct(this.email, storeName, product, () -> removeProduct(storeName, product));
     }
 
     // Backward-compatible method that defaults to SHOES category
@@ -415,37 +486,13 @@ public class Seller {
         writeToSellerFileRemoveProduct(storeName, productName, quantity, price, description, ProductCategory.SHOES);
     }
 
+    /**
+     * Records a new store in the seller file. The change is appended to the catalog
+     * edit log rather than rewriting Sellers.txt.
+     * @param storeName name of the store that was added
+     */
     public void writeToSellerFileAddStore(String storeName) {
-        ArrayList<String> otherSellers = new ArrayList<>();
-
-        /*
-        seller@gmail.com,Jordan,
-        seller@seller.com,Nike,
-        seller@seller.com,Adidas,
-         */
-        Store store = new Store(storeName);
-        try (BufferedReader bfr = new BufferedReader(new FileReader(FileConstants.SELLERS_FILE))) {
-            String line = "";
-            while ((line = bfr.readLine()) != null) {
-                if (!line.startsWith(this.email) || !line.contains(storeName)) {
-                    otherSellers.add(line);
-                }
-            }
-            bfr.close();
-        } catch (IOException e) {
-            System.out.println();
-        }
-        try (BufferedWriter bwr = new BufferedWriter(new FileWriter(FileConstants.SELLERS_FILE))) {
-            for (int i = 0; i < otherSellers.size(); i++) {
-                bwr.write(otherSellers.get(i) + "\n");
-            }
-
-            bwr.write(this.email + "," + store.toString() + "\n");
-
-            bwr.flush();
-        } catch (IOException e) {
-            System.out.println();
-        }
+        CatalogEditLog.appendStore(this.email, storeName);
     }
 
 
@@ -460,67 +507,37 @@ public class Seller {
             return "Store not found: " + storeName;
         }
         
-        // Initialize category revenue tracking
-        double[] categoryRevenue = new double[ProductCategory.values().length];
-        int[] categorySales = new int[ProductCategory.values().length];
-        
-        // Parse sales data to extract category information
-        ArrayList<String> sales = store.getSales();
-        for (String sale : sales) {
-            // Parse sale format: "customer@email.com bought 2 ProductName .Revenue generated: 50.0"
-            if (sale.contains("bought") && sale.contains("Revenue generated:")) {
-                try {
-                    String[] parts = sale.split("Revenue generated: ");
-                    if (parts.length == 2) {
-                        double revenue = Double.parseDouble(parts[1].trim());
-                        
-                        // Extract product name from sale string
-                        String productInfo = parts[0];
-                        String[] productParts = productInfo.split(" bought \\d+ ");
-                        if (productParts.length == 2) {
-                            String productName = productParts[1].replace(" .", "").trim();
-                            
-                            // Find the product in store to get its category
-                            for (Product product : store.getProducts()) {
-                                if (product.getName().equals(productName)) {
-                                    int categoryIndex = product.getCategory().ordinal();
-                                    categoryRevenue[categoryIndex] += revenue;
-                                    categorySales[categoryIndex]++;
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                } catch (NumberFormatException e) {
-                    // Skip malformed sales entries
-                }
-            }
-        }
-        
-        // Format the breakdown
+        // Per-category sale counts and revenue, kept up to date as sales are recorded
+        return formatStoreBreakdown(storeName, store.getSalesLedger().getTotals());
+    }
+
+    private String formatStoreBreakdown(String storeName, CategoryCounters totals) {
         StringBuilder breakdown = new StringBuilder();
         breakdown.append("Sales Breakdown by Category for ").append(storeName).append(":\n");
-        double totalRevenue = 0;
-        int totalSales = 0;
+        long totalCents = 0;
+        long totalSales = 0;
         
         for (int i = 0; i < ProductCategory.values().length; i++) {
             ProductCategory category = ProductCategory.values()[i];
-            if (categoryRevenue[i] > 0) {
-                breakdown.append(String.format("  %s: %d sales, $%.2f revenue\n", 
-                    category.getDisplayName(), categorySales[i], categoryRevenue[i]));
-                totalRevenue += categoryRevenue[i];
-                totalSales += categorySales[i];
+            long cents = totals.getCents(i);
+            if (cents > 0) {
+                long sales = totals.getSales(i);
+                breakdown.append(String.format("  %s: %d sales, $%s revenue\n", 
+                    category.getDisplayName(), sales, Money.format(cents)));
+                totalCents += cents;
+                totalSales += sales;
             }
         }
         
-        if (totalRevenue > 0) {
-            breakdown.append(String.format("Total: %d sales, $%.2f revenue", totalSales, totalRevenue));
+        if (totalCents > 0) {
+            breakdown.append(String.format("Total: %d sales, $%s revenue", totalSales, Money.format(totalCents)));
         } else {
             breakdown.append("No sales data available for category breakdown.");
         }
         
         return breakdown.toString();
     }
+
     
     /**
      * Gets category-based metrics for all stores owned by this seller.
@@ -531,61 +548,29 @@ public class Seller {
         metrics.append("Category-Based Performance Summary:\n");
         metrics.append("=====================================\n");
         
-        // Initialize overall category tracking
-        double[] overallCategoryRevenue = new double[ProductCategory.values().length];
-        int[] overallCategorySales = new int[ProductCategory.values().length];
-        
-        for (Store store : stores) {
-            metrics.append("\n").append(getSalesBreakdownByCategory(store.getName())).append("\n");
-            
-            // Add to overall totals
-            ArrayList<String> sales = store.getSales();
-            for (String sale : sales) {
-                if (sale.contains("bought") && sale.contains("Revenue generated:")) {
-                    try {
-                        String[] parts = sale.split("Revenue generated: ");
-                        if (parts.length == 2) {
-                            double revenue = Double.parseDouble(parts[1].trim());
-                            
-                            String productInfo = parts[0];
-                            String[] productParts = productInfo.split(" bought \\d+ ");
-                            if (productParts.length == 2) {
-                                String productName = productParts[1].replace(" .", "").trim();
-                                
-                                for (Product product : store.getProducts()) {
-                                    if (product.getName().equals(productName)) {
-                                        int categoryIndex = product.getCategory().ordinal();
-                                        overallCategoryRevenue[categoryIndex] += revenue;
-                                        overallCategorySales[categoryIndex]++;
-                                        break;
-                                    }
-                                }
-                            }
-                        }
-                    } catch (NumberFormatException e) {
-                        // Skip malformed sales entries
-                    }
-                }
-            }
+        for (Store store : getStores()) {
+            metrics.append("\n").append(formatStoreBreakdown(store.getName(), store.getSalesLedger().getTotals())).append("\n");
         }
         
-        // Add overall summary
+        // Add overall summary from the seller-wide totals
         metrics.append("\nOVERALL CATEGORY PERFORMANCE:\n");
-        double grandTotal = 0;
-        int grandTotalSales = 0;
+        long grandTotalCents = 0;
+        long grandTotalSales = 0;
         
         for (int i = 0; i < ProductCategory.values().length; i++) {
             ProductCategory category = ProductCategory.values()[i];
-            if (overallCategoryRevenue[i] > 0) {
-                metrics.append(String.format("  %s: %d sales, $%.2f revenue\n", 
-                    category.getDisplayName(), overallCategorySales[i], overallCategoryRevenue[i]));
-                grandTotal += overallCategoryRevenue[i];
-                grandTotalSales += overallCategorySales[i];
+            long cents = categoryTotals.getCents(i);
+            if (cents > 0) {
+                long sales = categoryTotals.getSales(i);
+                metrics.append(String.format("  %s: %d sales, $%s revenue\n", 
+                    category.getDisplayName(), sales, Money.format(cents)));
+                grandTotalCents += cents;
+                grandTotalSales += sales;
             }
         }
         
-        if (grandTotal > 0) {
-            metrics.append(String.format("Grand Total: %d sales, $%.2f revenue", grandTotalSales, grandTotal));
+        if (grandTotalCents > 0) {
+            metrics.append(String.format("Grand Total: %d sales, $%s revenue", grandTotalSales, Money.format(grandTotalCents)));
         } else {
             metrics.append("No sales data available.");
         }
@@ -596,28 +581,25 @@ public class Seller {
     public void viewStoreInfo() {
         ArrayList<String> sales;
         try {
-            PrintWriter printWriter = new PrintWriter(new FileWriter(email));
+            ArrayList<String> lines = new ArrayList<>();
             
             // Write category-based metrics first
-            printWriter.println(getCategoryBasedMetrics());
-            printWriter.println("\n" + "=".repeat(50));
-            printWriter.println("DETAILED SALES HISTORY:");
-            printWriter.println("=".repeat(50));
+            lines.add(getCategoryBasedMetrics());
+            lines.add("\n" + "=".repeat(50));
+            lines.add("DETAILED SALES HISTORY:");
+            lines.add("=".repeat(50));
             
-            for (Store store : stores) {
-                printWriter.println("--------------------");
-                printWriter.println(store.getName());
+            for (Store store : getStores()) {
+                lines.add("--------------------");
+                lines.add(store.getName());
                 sales = store.getSales();
                 if (sales.size() == 0) {
-                    printWriter.println("No sales yet.");
+                    lines.add("No sales yet.");
                 } else {
-                    for (String sale : sales) {
-                        printWriter.println(sale);
-                    }
+                    lines.addAll(sales);
                 }
             }
-            printWriter.flush();
-            printWriter.close();
+            AtomicFileWriter.writeLines(new File(email), lines);
         } catch (Exception ex) {
             System.out.println("Error in displaying file");
             return;
@@ -634,12 +616,12 @@ public class Seller {
             return;
         }
         
-        for (Store store : stores) {
+        for (Store store : getStores()) {
             // Get products for this store from database
             List<Product> dbProducts = productDAO.getProductsByStore(store.getName());
             
             // Clear existing products and add database products
-            store.getProducts().clear();
+            store.clearProducts();
             for (Product product : dbProducts) {
                 store.addProduct(product);
             }
@@ -0,0 +1,232 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The marketplace's seller list, with hash indexes by seller email and by case-insensitive
+ * store name.
+ *
+ * Keeps the ArrayList behaviour it replaces (order, duplicates, index access). The list is
+ * private and only the mutators below change it, so the indexes stay up to date on every add,
+ * set and remove; the registry is also told by its sellers when they gain or lose a store. Lookups return the same element the old linear scans did: the first
+ * seller with the email, and the first store with the name in seller order.
+ *
+ * Safe for concurrent sessions. Mutators are synchronized on the registry so the list and
+ * indexes change together, and a full re-index publishes fresh maps, so lookups never see a
+ * half-built index. Readers get an immutable snapshot of the list that is only rebuilt on the
+ * first read after a change, so browsing never locks and loading sellers one by one never
+ * copies the list.
+ */
+public class SellerRegistry implements Iterable<Seller> {
+    private final ArrayList<Seller> sellers = new ArrayList<>();
+    private volatile List<Seller> snapshot;
+    private volatile Map<String, Seller> sellersByEmail = new ConcurrentHashMap<>();
+    private volatile Map<String, Store> storesByName = new ConcurrentHashMap<>();
+
+    /**
+     * @param email seller email, matched exactly
+     * @return first seller with the email, or null
+     */
+    public Seller findSeller(String email) {
+        return email == null ? null : sellersByEmail.get(email);
+    }
+
+    /**
+     * @param storeName store name, matched case-insensitively
+     * @return first store with the name across all sellers, or null
+     */
+    public Store findStore(String storeName) {
+        return storeName == null ? null : storesByName.get(key(storeName));
+    }
+
+    // ---- List access: mutators keep the indexes in step ----
+
+    public Seller get(int index) {
+        return getSellers().get(index);
+    }
+
+    public int size() {
+        return getSellers().size();
+    }
+
+    public boolean isEmpty() {
+        return getSellers().isEmpty();
+    }
+
+    public int indexOf(Seller seller) {
+        return getSellers().indexOf(seller);
+    }
+
+    public boolean contains(Seller seller) {
+        return getSellers().contains(seller);
+    }
+
+    /**
+     * @return iterator over the sellers as they were when iteration began
+     */
+    @Override
+    public Iterator<Seller> iterator() {
+        return getSellers().iterator();
+    }
+
+    /**
+     * @return read-only snapshot of the sellers in order, e.g. for the catalog writers;
+     * unaffected by later changes
+     */
+    public List<Seller> getSellers() {
+        List<Seller> current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = Collections.unmodifiableList(new ArrayList<>(sellers));
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public synchronized boolean add(Seller seller) {
+        sellers.add(seller);
+        snapshot = null;
+        attach(seller);
+        return true;
+    }
+
+    public synchronized boolean addAll(Collection<? extends Seller> added) {
+        boolean changed = sellers.addAll(added);
+        snapshot = null;
+        for (Seller seller : added) {
+            attach(seller);
+        }
+        return changed;
+    }
+
+    public synchronized Seller set(int index, Seller seller) {
+        Seller previous = sellers.set(index, seller);
+        snapshot = null;
+        detach(previous);
+        rebuild();
+        return previous;
+    }
+
+    public synchronized Seller remove(int index) {
+        Seller removed = sellers.remove(index);
+        snapshot = null;
+        detach(removed);
+        rebuild();
+        return removed;
+    }
+
+    public synchronized boolean remove(Seller seller) {
+        boolean removed = sellers.remove(seller);
+        if (removed) {
+            snapshot = null;
+            detach(seller);
+            rebuild();
+        }
+        return removed;
+    }
+
+    public synchronized void clear() {
+        for (Seller seller : sellers) {
+            seller.setRegistry(null);
+        }
+        sellers.clear();
+        snapshot = null;
+        sellersByEmail = new ConcurrentHashMap<>();
+        storesByName = new ConcurrentHashMap<>();
+    }
+
+    // ---- Notifications from Seller ----
+
+    synchronized void storeAdded(Seller seller, Store store) {
+        String key = key(store.getName());
+        Store current = storesByName.get(key);
+        if (current == null) {
+            storesByName.put(key, store);
+        } else if (current != store && ownerIndex(seller) < ownerIndex(ownerOf(current))) {
+            storesByName.put(key, store); // Added to a seller listed before the current winner
+        }
+    }
+
+    synchronized void storeRemoved(Seller seller, Store store) {
+        String key = key(store.getName());
+        if (storesByName.get(key) == store) {
+            // Find the next store with that name in seller order, then swap it in
+            Store next = null;
+            for (Seller s : sellers) {
+                next = s.searchStore(store.getName());
+                if (next != null) {
+                    break;
+                }
+            }
+            if (next != null) {
+                storesByName.put(key, next);
+            } else {
+                storesByName.remove(key);
+            }
+        }
+    }
+
+    synchronized void emailChanged(Seller seller) {
+        rebuild();
+    }
+
+    // ---- Internals ----
+
+    private void attach(Seller seller) {
+        attach(seller, sellersByEmail, storesByName);
+    }
+
+    private void attach(Seller seller, Map<String, Seller> emails, Map<String, Store> stores) {
+        if (seller == null) {
+            return;
+        }
+        seller.setRegistry(this);
+        emails.putIfAbsent(seller.getEmail(), seller);
+        for (Store store : seller.getStores()) {
+            stores.putIfAbsent(key(store.getName()), store);
+        }
+    }
+
+    private void detach(Seller seller) {
+        if (seller != null && !sellers.contains(seller)) {
+            seller.setRegistry(null);
+        }
+    }
+
+    private void rebuild() {
+        Map<String, Seller> emails = new ConcurrentHashMap<>();
+        Map<String, Store> stores = new ConcurrentHashMap<>();
+        for (Seller seller : sellers) {
+            attach(seller, emails, stores);
+        }
+        sellersByEmail = emails;
+        storesByName = stores;
+    }
+
+    private Seller ownerOf(Store store) {
+        for (Seller seller : sellers) {
+            if (seller.getStores().contains(store)) {
+                return seller;
+            }
+        }
+        return null;
+    }
+
+    private int ownerIndex(Seller seller) {
+        int index = seller == null ? -1 : sellers.indexOf(seller);
+        return index < 0 ? Integer.MAX_VALUE : index;
+    }
+
+    private static String key(String storeName) {
+        return storeName.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,230 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A customer's shopping cart: one line per product, holding the product's catalog id and a
+ * quantity.
+ *
+ * Lines do not copy the product. They refer to its shared, immutable {@link CatalogEntry} by
+ * id and resolve it through {@link CatalogEntries} when read, so a cart costs a few bytes per
+ * line and always shows the catalog's current name, price and stock. Adding a product that is
+ * already in the cart (same name and store) raises that line's quantity. Add, remove and
+ * quantity updates are O(1); the total is summed from the lines' current prices in whole
+ * cents, so it never drifts and always matches what checkout charges.
+ */
+public class ShoppingCart {
+
+    /**
+     * One product in the cart.
+     */
+    public static class Line {
+        private final int id;
+        private int quantity;
+        // Entry as of the first add (or the last accepted price); shown if the product is
+        // delisted and to spot price changes
+        private CatalogEntry added;
+
+        Line(int id, CatalogEntry added) {
+            this.id = id;
+            this.added = added;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return the product's current entry, or the one it had when added if it is no longer
+         * listed
+         */
+        public CatalogEntry getEntry() {
+            CatalogEntry current = CatalogEntries.entry(id);
+            return current != null ? current : added;
+        }
+
+        /**
+         * @return the live product, for its stock, or null if it is no longer listed
+         */
+        public Product getProduct() {
+            return CatalogEntries.product(id);
+        }
+
+        public String getName() {
+            return getEntry().getName();
+        }
+
+        public String getStore() {
+            return getEntry().getStore();
+        }
+
+        public ProductCategory getCategory() {
+            return getEntry().getCategory();
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public double getUnitPrice() {
+            return Money.toDouble(getUnitPriceCents());
+        }
+
+        /**
+         * @return the current unit price, in cents
+         */
+        public long getUnitPriceCents() {
+            return getEntry().getPriceCents();
+        }
+
+        /**
+         * @return the unit price when the product was first added, in cents
+         */
+        public long getAddedPriceCents() {
+            return added.getPriceCents();
+        }
+
+        /**
+         * Takes the current price as the one the customer agreed to, e.g. after checkout
+         * reported a price rise. Does nothing if the product is no longer listed.
+         */
+        public void acceptPrice() {
+            CatalogEntry current = CatalogEntries.entry(id);
+            if (current != null) {
+                added = current;
+            }
+        }
+
+        public double getLineTotal() {
+            return Money.toDouble(getLineTotalCents());
+        }
+
+        public long getLineTotalCents() {
+            return Money.times(getUnitPriceCents(), quantity);
+        }
+
+        /**
+         * @return the line as a Product whose quantity is the cart quantity, as purchase
+         * history and order records expect
+         */
+        public Product toProduct() {
+            CatalogEntry entry = getEntry();
+            return Product.ofCents(entry.getName(), quantity, entry.getPriceCents(), entry.getDescription(),
+                entry.getStore(), entry.getCategory());
+        }
+    }
+
+    private final Map<Integer, Line> lines = new LinkedHashMap<>();
+
+    /**
+     * Adds units of a product. The cart refers to the listed product with the same name and
+     * store; the product passed in is not kept.
+     * @param product product to add (its own quantity is ignored)
+     * @param quantity number of units, at least 1
+     * @return the cart line for the product
+     */
+    public Line add(Product product, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        }
+        int id = CatalogEntries.idOf(product);
+        Line line = lines.get(id);
+        if (line == null) {
+            CatalogEntry entry = CatalogEntries.entry(id);
+            line = new Line(id, entry != null ? entry : new CatalogEntry(id, product));
+            lines.put(id, line);
+        }
+        line.quantity += quantity;
+        return line;
+    }
+
+    /**
+     * Sets the quantity of a product already in the cart; 0 removes it.
+     * @return true if the product was in the cart
+     */
+    public boolean setQuantity(Product product, int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative: " + quantity);
+        }
+        if (quantity == 0) {
+            return remove(product);
+        }
+        Line line = lines.get(CatalogEntries.find(product));
+        if (line == null) {
+            return false;
+        }
+        line.quantity = quantity;
+        return true;
+    }
+
+    /**
+     * Removes a product from the cart whatever its quantity.
+     * @return true if the product was in the cart
+     */
+    public boolean remove(Product product) {
+        return remove(CatalogEntries.find(product));
+    }
+
+    /**
+     * Removes a line by catalog id, e.g. at checkout when the product is no longer sold.
+     * @return true if the line was in the cart
+     */
+    public boolean remove(int id) {
+        return lines.remove(id) != null;
+    }
+
+    /**
+     * @return units of the product in the cart, or 0
+     */
+    public int getQuantity(Product product) {
+        Line line = lines.get(CatalogEntries.find(product));
+        return line == null ? 0 : line.quantity;
+    }
+
+    /**
+     * @return cart lines in the order products were first added
+     */
+    public Collection<Line> getLines() {
+        return Collections.unmodifiableCollection(lines.values());
+    }
+
+    /**
+     * @return the cart as Products carrying cart quantities and current prices
+     */
+    public ArrayList<Product> toProducts() {
+        ArrayList<Product> products = new ArrayList<>(lines.size());
+        for (Line line : lines.values()) {
+            products.add(line.toProduct());
+        }
+        return products;
+    }
+
+    public double getTotal() {
+        return Money.toDouble(getTotalCents());
+    }
+
+    /**
+     * @return sum of the lines at current prices
+     */
+    public long getTotalCents() {
+        long totalCents = 0;
+        for (Line line : lines.values()) {
+            totalCents += line.getLineTotalCents();
+        }
+        return totalCents;
+    }
+
+    public int size() {
+        return lines.size();
+    }
+
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    public void clear() {
+        lines.clear();
+    }
+}
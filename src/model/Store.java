@@ -1,53 +1,162 @@
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * A store and its products.
+ *
+ * Safe for concurrent sessions: each store has its own read-write lock (one stripe per store),
+ * held by writers for catalog changes and by readers for name lookups. Browsing reads an
+ * immutable snapshot of the product list that is only rebuilt after a change, so listings never
+ * block or see a list mid-update. A purchase's stock check-and-decrement ({@link #takeStock})
+ * takes no lock at all: it is a compare-and-set on the product's in-memory quantity, which is
+ * the source of truth for availability. The database copy of the quantity is brought up to
+ * date in batches by {@link StockJournal}. A hot product can be put in a flash sale
+ * ({@link #startFlashSale}), which splits its stock across striped counters; replacing or
+ * removing the product ends the sale first. Products are reported to {@link CatalogEntries} as
+ * they are listed and delisted, so carts that refer to a product by id follow its edits and
+ * removal.
+ */
 public class Store {
-    private String name;
+    private volatile String name;
     private ArrayList<Customer> customers;
     private ArrayList<Product> products;
-    private ArrayList<String> sales = new ArrayList<>();
+    private SalesLedger sales = new SalesLedger();
 
-    private double revenue;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Read-only copy of products handed to readers; null after a change until next requested
+    private volatile List<Product> snapshot;
+
+    // Case-insensitive name index over products; the first product with a name wins, like the old
+    // scans. duplicateNames counts products shadowed by an earlier one with the same name.
+    private final Map<String, Product> productsByName = new HashMap<>();
+    private int duplicateNames;
+
+    private final AtomicLong revenueCents = new AtomicLong();
+
+    // Persistence bookkeeping: where this store's line sits in the Sellers.txt snapshot, and a
+    // counter bumped by every change. The store is clean while the counter still has the value
+    // it had when the persisted line was rendered.
+    private final AtomicLong modifications = new AtomicLong(1);
+    private volatile long persistedModifications;
+    private long lineOffset = -1;
+    private int lineLength = -1;
 
     public Store(String name, ArrayList<Customer> customers, ArrayList<Product> products) {
         this.name = name;
         this.customers = customers;
         this.products = products;
-        this.sales = new ArrayList<>();
+        this.sales = new SalesLedger();
+        reindex();
     }
 
     public Store(String name) {
         this.name = name;
         this.customers = new ArrayList<>();
         this.products = new ArrayList<>();
-        this.sales = new ArrayList<>();
+        this.sales = new SalesLedger();
     }
 
     public boolean checkForProduct(Product product) {
-        if (products.contains(product)) {
-            return true;
+        return product != null && product.equals(findProduct(product.getName()));
+    }
+
+    /**
+     * @param productName product name, matched case-insensitively
+     * @return first product in this store with the name, or null
+     */
+    public Product findProduct(String productName) {
+        if (productName == null) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            return productsByName.get(key(productName));
+        } finally {
+            lock.readLock().unlock();
         }
-        return false;
     }
 
     public void addProduct(Product product) {
-        products.add(product);
+        lock.writeLock().lock();
+        try {
+            products.add(product);
+            index(product);
+            changed();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public void removeProduct(Product product) {
-        products.remove(product);
+        if (product == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Product existing = productsByName.get(key(product.getName()));
+            if (existing != null && existing.equals(product)) {
+                removeAt(positionOf(existing));
+                changed();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public void setProduct(Product oldProduct, Product newProduct) {
-        for (int i = 0; i < products.size(); i++) {
-            if(products.get(i).equals(oldProduct)){
-                products.set(i, newProduct);
+        if (oldProduct == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Product existing = productsByName.get(key(oldProduct.getName()));
+            if (existing != null && existing.equals(oldProduct)) {
+                CatalogEntries.replaced(existing, newProduct); // Carts holding it follow the edit
+                int position = positionOf(existing);
+                removeAt(position);
+                products.add(position, newProduct);
+                if (duplicateNames > 0 || productsByName.containsKey(key(newProduct.getName()))) {
+                    reindex(); // Position decides which of several same-named products is found first
+                } else {
+                    index(newProduct);
+                }
+                changed();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every product, e.g. before reloading them from the database.
+     */
+    public void clearProducts() {
+        lock.writeLock().lock();
+        try {
+            for (Product product : productsByName.values()) {
+                CatalogEntries.delisted(product);
+            }
+            for (Product product : products) {
+                endFlashSale(product);
             }
+            products.clear();
+            productsByName.clear();
+            duplicateNames = 0;
+            changed();
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     public ArrayList<Product> getProductsByCategory(ProductCategory category) {
         ArrayList<Product> categoryProducts = new ArrayList<>();
-        for (Product product : products) {
+        for (Product product : getProducts()) {
             if (product.getCategory() == category) {
                 categoryProducts.add(product);
             }
@@ -56,58 +165,160 @@ public class Store {
     }
 
     public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof Store)) {
+            return false;
+        }
         Store p = (Store) o;
-        return (p.name.equals(name) && p.products.equals(products) && p.customers.equals(customers) &&
-                p.sales.equals(sales));
-    }
-
-    public void processPurchase(String productName, int quantity, Customer customer) {
-        boolean productFound = false;
-        for (Product product: products) {
-            if (product.getName().equalsIgnoreCase(productName)) {
-                productFound = true;
-                if (quantity <= product.getQuantity()) {
-                    int oldQuantity = product.getQuantity();
-                    int newQuantity = oldQuantity - quantity;
-                    product.setQuantity(newQuantity);
-                    
-                    // Update product quantity in database
-                    try {
-                        ProductDAO productDAO = new ProductDAO();
-                        int productId = productDAO.getProductId(product.getName(), this.name);
-                        if (productId > 0) {
-                            productDAO.updateProduct(productId, "quantity", 
-                                String.valueOf(oldQuantity), String.valueOf(newQuantity), -1);
-                        }
-                    } catch (Exception e) {
-                        System.err.println("Error updating product quantity in database: " + e.getMessage());
-                    }
-                    
-                    purchaseDetail(product, quantity, customer);
-                    return;
-                } else {
-                    System.out.println("Sorry! We're out of stock!");
-                    return;
-                }
+        // Ledgers compared column by column; formatting every sale made indexOf cost per sale
+        return (p.name.equals(name) && p.getProducts().equals(getProducts()) && p.customers.equals(customers) &&
+                p.sales.sameSales(sales));
+    }
+
+    /**
+     * @return hash of the store name, consistent with equals
+     */
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    /**
+     * Sells units of a product: takes the stock, journals the sale and records it for the customer.
+     * @return false if the product is not sold here or there was not enough stock
+     */
+    public boolean processPurchase(String productName, int quantity, Customer customer) {
+        Product product = findProduct(productName);
+        if (product == null) {
+            System.out.println("Sorry this product does not exist in this store!");
+            return false;
+        }
+        Product.Take take = product.take(quantity);
+        if (take != Product.Take.OUT_OF_STOCK) {
+            modified();
+            if (take == Product.Take.FROM_STOCK) {
+                // Journaled now, written to the Products table by the background stock writer
+                StockJournal.recordSale(this.name, product.getName(), quantity);
             }
+            // Flash-sale units are journaled once, in total, when the sale ends
+            
+            purchaseDetail(product, quantity, customer);
+            return true;
         }
-        if (!productFound) {
-            System.out.println("Sorry this product does not exist in this store!");
+        System.out.println("Sorry! We're out of stock!");
+        return false;
+    }
+
+    /**
+     * Takes units of a product out of stock if enough are left. Check and update are one
+     * compare-and-set on the product ({@link Product#takeQuantity}), so concurrent buyers can
+     * never oversell and never wait on the store lock.
+     * @param product product in this store
+     * @param quantity units wanted
+     * @return the quantity before the purchase, or -1 if there was not enough stock
+     */
+    public int takeStock(Product product, int quantity) {
+        int available = product.takeQuantity(quantity);
+        if (available >= 0) {
+            modified(); // Same products, so the snapshot stays valid
+        }
+        return available;
+    }
+
+    /**
+     * Reserves units of a product for a checkout: takes them out of stock now, to be confirmed
+     * with {@link #confirmSale} once the order is stored, or given back with {@link #release}.
+     * @param product product in this store
+     * @param quantity units wanted
+     * @param sale the product's running flash sale ({@link Product#getFlashSale}), or null; the
+     * units are taken from there only, so they can be released back to it
+     * @return where the units came from, OUT_OF_STOCK if fewer were left, or null if a sale
+     * started or ended since sale was read
+     */
+    public Product.Take reserve(Product product, int quantity, StripedStock sale) {
+        Product.Take take = product.take(quantity, sale);
+        if (take != null && take != Product.Take.OUT_OF_STOCK) {
+            modified();
+        }
+        return take;
+    }
+
+    /**
+     * Returns reserved units to stock, e.g. after a checkout failed.
+     * @param sale the flash sale the units were reserved from, or null
+     */
+    public void release(Product product, int quantity, StripedStock sale) {
+        if (sale == null || !sale.putBack(quantity)) {
+            product.addQuantity(quantity);
+            if (sale != null) {
+                // The sale ended after the reservation and journaled these units as sold
+                StockJournal.recordAdjustment(this.name, product.getName(), quantity);
+            }
+        }
+        modified();
+    }
+
+    /**
+     * Confirms reserved units as sold: journals them for the Products table and records the
+     * sale in the ledger and the store's revenue.
+     * @param take what {@link #reserve} returned for the units
+     * @param cents amount charged for the units
+     */
+    public void confirmSale(Product product, int quantity, Product.Take take, long cents, String customerEmail) {
+        if (take == Product.Take.FROM_STOCK) {
+            StockJournal.recordSale(this.name, product.getName(), quantity);
+        }
+        // Flash-sale units are journaled once, in total, when the sale ends
+        recordSale(product, quantity, cents, customerEmail);
+    }
+
+    /**
+     * Starts a flash sale on a product: its stock is split across striped counters so that
+     * many concurrent buyers do not contend on one.
+     * @param product product in this store
+     * @param stripes number of counters
+     * @return false if the product is already in a flash sale
+     */
+    public boolean startFlashSale(Product product, int stripes) {
+        return product.startFlashSale(stripes);
+    }
+
+    /**
+     * Ends a product's flash sale, folds its stock back into one counter, and journals the
+     * units sold during the sale as one record for the Products table.
+     * @param product product in this store
+     * @return units sold during the sale, or -1 if it was not in a flash sale
+     */
+    public long endFlashSale(Product product) {
+        long sold = product.endFlashSale();
+        if (sold > 0) {
+            modified();
+            StockJournal.recordSale(this.name, product.getName(), (int) sold);
+        }
+        return sold;
+    }
+
+    /**
+     * Ends every flash sale running in this store, e.g. on shutdown.
+     */
+    public void endFlashSales() {
+        for (Product product : getProducts()) {
+            if (product.getFlashSale() != null) {
+                endFlashSale(product);
+            }
         }
     }
 
     public void purchaseDetail(Product product, int quantity, Customer customer) {
-        double revenue = product.getPrice() * quantity;
-        sales.add(customer.getEmail() + " bought " + quantity + " " + product.getName() +
-                " .Revenue generated: " + revenue );
-        this.revenue += revenue;
+        long cents = recordSale(product, quantity, customer.getEmail());
         
         // Award reward points: 1 point per dollar spent
         try {
             UserDAO userDAO = new UserDAO();
             int userId = userDAO.getUserId(customer.getEmail());
             if (userId > 0) {
-                int pointsToAward = (int) Math.floor(revenue);
+                int pointsToAward = (int) (cents / 100);
                 userDAO.addRewardPoints(userId, pointsToAward);
             }
         } catch (Exception e) {
@@ -115,42 +326,216 @@ public class Store {
         }
     }
 
+    /**
+     * Adds a sale to the ledger and the store's revenue.
+     * @return amount of the sale, in cents
+     */
+    public long recordSale(Product product, int quantity, String customerEmail) {
+        long cents = Money.times(product.getPriceCents(), quantity);
+        recordSale(product, quantity, cents, customerEmail);
+        return cents;
+    }
+
+    private void recordSale(Product product, int quantity, long cents, String customerEmail) {
+        sales.record(customerEmail, product, quantity, cents, System.currentTimeMillis());
+        revenueCents.addAndGet(cents);
+    }
+
+    /**
+     * @return revenue from purchases made through this store, in cents
+     */
+    public long getRevenueCents() {
+        return revenueCents.get();
+    }
+
     public ArrayList<Customer> getCustomers() {
         return customers;
     }
 
+    /**
+     * @return sales as display lines ("x bought n Foo .Revenue generated: ..."), oldest first
+     */
     public ArrayList<String> getSales() {
+        return sales.formatAll();
+    }
+
+    /**
+     * @return the store's sale records, for analytics
+     */
+    public SalesLedger getSalesLedger() {
         return sales;
     }
 
     public void setCustomers(ArrayList<Customer> customers) {
         this.customers = customers;
     }
-    public ArrayList<Product> getProducts() {
-        return products;
+    /**
+     * @return read-only snapshot of the products in catalog order, unaffected by later changes.
+     * Add and remove through the Store methods; changing quantity or price in place is fine.
+     */
+    public List<Product> getProducts() {
+        List<Product> current = snapshot;
+        if (current == null) {
+            lock.readLock().lock();
+            try {
+                current = Collections.unmodifiableList(new ArrayList<>(products));
+                snapshot = current;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        return current;
     }
 
     public void setProducts(ArrayList<Product> products) {
-        this.products = products;
+        lock.writeLock().lock();
+        try {
+            for (Product product : productsByName.values()) {
+                CatalogEntries.delisted(product);
+            }
+            for (Product product : this.products) {
+                endFlashSale(product);
+            }
+            this.products = products;
+            reindex();
+            changed();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public void setName(String name) {
         this.name = name;
+        modified();
+    }
+
+    /**
+     * @return true if the store changed since its line was last written to Sellers.txt
+     */
+    public boolean isDirty() {
+        return modifications.get() != persistedModifications;
+    }
+
+    /**
+     * Flags the store for re-serialization on the next persist. Call after changing
+     * products in place through {@link #getProducts()}.
+     */
+    public void markDirty() {
+        modified();
+    }
+
+    /**
+     * @return counter bumped by every change; read it before rendering the store's line
+     */
+    public long getModificationCount() {
+        return modifications.get();
+    }
+
+    /**
+     * Marks the store as persisted without a known line position (sharded layout). A change made
+     * after the line was rendered keeps the store dirty.
+     * @param modificationCount {@link #getModificationCount()} read before the line was rendered
+     */
+    public void markClean(long modificationCount) {
+        persistedModifications = modificationCount;
+    }
+
+    /**
+     * Records where the store's line sits in the Sellers.txt snapshot and marks it clean, unless
+     * it changed after the line was rendered.
+     * @param offset byte offset of the line
+     * @param length byte length of the line, without the line separator
+     * @param modificationCount {@link #getModificationCount()} read before the line was rendered
+     */
+    public void setLineRange(long offset, int length, long modificationCount) {
+        this.lineOffset = offset;
+        this.lineLength = length;
+        persistedModifications = modificationCount;
+    }
+
+    /**
+     * @return byte offset of the store's line in Sellers.txt, or -1 if unknown
+     */
+    public long getLineOffset() {
+        return lineOffset;
+    }
+
+    /**
+     * @return byte length of the store's line in Sellers.txt, or -1 if unknown
+     */
+    public int getLineLength() {
+        return lineLength;
     }
 
     public String getName() {
         return name;
     }
 
+    // Caller holds the write lock
+    private void changed() {
+        snapshot = null;
+        modified();
+    }
+
+    private void modified() {
+        modifications.incrementAndGet();
+    }
+
+    private void index(Product product) {
+        if (productsByName.putIfAbsent(key(product.getName()), product) != null) {
+            duplicateNames++;
+        } else {
+            CatalogEntries.listed(product);
+        }
+    }
+
+    private void reindex() {
+        productsByName.clear();
+        duplicateNames = 0;
+        for (Product product : products) {
+            index(product);
+        }
+    }
+
+    private int positionOf(Product product) {
+        // Reference comparison: cheaper than equals, and exact when names repeat
+        for (int i = 0; i < products.size(); i++) {
+            if (products.get(i) == product) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int position) {
+        Product removed = products.remove(position);
+        endFlashSale(removed); // Otherwise the units sold in a running sale are never journaled
+        String key = key(removed.getName());
+        if (productsByName.get(key) != removed) {
+            duplicateNames--; // A shadowed duplicate went away
+            return;
+        }
+        CatalogEntries.delisted(removed);
+        if (duplicateNames == 0) {
+            productsByName.remove(key);
+        } else {
+            reindex();
+        }
+    }
+
+    private static String key(String productName) {
+        return productName.toLowerCase(Locale.ROOT);
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append(this.name);
         // Append CSV representation of each product so that seller file lines
         // remain machine-parseable by DataMigrationService / ProductSearchService
-        for (int i = 0; i < products.size(); i++) {
+        for (Product product : getProducts()) {
             sb.append(",");
-            sb.append(products.get(i).toCSV());
+            sb.append(product.toCSV());
         }
         return sb.toString();
 
@@ -0,0 +1,193 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A hot product's stock split across several counters (stripes) for a flash sale.
+ *
+ * With one counter, every buyer of a drop retries compare-and-set on the same cache line.
+ * Here each thread starts at its own stripe, so concurrent buyers mostly decrement different
+ * counters. When a thread's stripe runs dry it takes from the others; when no single stripe
+ * holds enough, the stripes are pooled and spread evenly again (a rebalance). Stripes sit one
+ * cache line apart so neighbours do not contend.
+ *
+ * Supplies (the initial fill, returns and quantity edits) and rebalances take the object's
+ * lock; buying does not. Units sold are never counted directly: {@link #close} derives them
+ * from units supplied minus units left, so buyers share no counter at all.
+ */
+public final class StripedStock {
+    /** Returned by {@link #take} while the stock is being filled or after it was closed. */
+    public static final int RETRY = -2;
+
+    /** Stripes used when none are given: -Dmarketplace.flashSale.stripes, default two per CPU. */
+    public static final int DEFAULT_STRIPES = Integer.getInteger("marketplace.flashSale.stripes",
+        Runtime.getRuntime().availableProcessors() * 2);
+
+    // 16 ints = 64 bytes, one cache line per stripe
+    private static final int PAD = 16;
+
+    private final int stripes;
+    private final AtomicIntegerArray cells;
+    private volatile boolean ready;
+    private volatile boolean closed;
+    private long supplied;
+    private int leftAtClose;
+    private long rebalances;
+
+    /**
+     * Creates empty stock; buyers are told to retry until {@link #fill} is called.
+     * @param stripes number of counters, at least 1
+     */
+    public StripedStock(int stripes) {
+        this.stripes = Math.max(1, stripes);
+        this.cells = new AtomicIntegerArray(this.stripes * PAD);
+    }
+
+    /**
+     * Puts the starting stock in, spread evenly, and lets buyers in.
+     * @param units stock at the start of the sale
+     */
+    public synchronized void fill(int units) {
+        spread(units);
+        supplied += units;
+        ready = true;
+    }
+
+    /**
+     * Takes units out of stock if enough are left across all stripes.
+     * @param units units wanted
+     * @return stock the units were taken from (a stripe, or the pooled total after a rebalance),
+     * -1 if fewer than units are left, or {@link #RETRY} if the stock is not open for buying
+     */
+    public int take(int units) {
+        if (closed || !ready) {
+            return RETRY;
+        }
+        int home = homeStripe();
+        for (int i = 0; i < stripes; i++) {
+            int index = ((home + i) % stripes) * PAD;
+            int available;
+            while ((available = cells.get(index)) >= units) {
+                if (cells.compareAndSet(index, available, available - units)) {
+                    return available;
+                }
+            }
+        }
+        return takePooled(units);
+    }
+
+    /**
+     * Adds units that did not come from this stock, e.g. returned from a purchase made before
+     * the sale started. They count as supplied.
+     * @return false if the stock was closed; the caller must return them elsewhere
+     */
+    public synchronized boolean add(int units) {
+        if (!putBack(units)) {
+            return false;
+        }
+        supplied += units;
+        return true;
+    }
+
+    /**
+     * Returns units taken from this stock, e.g. by a checkout that failed. They no longer
+     * count as sold.
+     * @return false if the stock was closed (and the units counted as sold); the caller must
+     * return them elsewhere
+     */
+    public synchronized boolean putBack(int units) {
+        if (closed) {
+            return false;
+        }
+        cells.addAndGet(homeStripe() * PAD, units);
+        return true;
+    }
+
+    /**
+     * Replaces the stock with a new total, e.g. after a seller edits the quantity.
+     * @return false if the stock was closed; the caller must set it elsewhere
+     */
+    public synchronized boolean set(int units) {
+        if (closed) {
+            return false;
+        }
+        supplied += units - drain();
+        spread(units);
+        return true;
+    }
+
+    /**
+     * @return units left across all stripes; a moving estimate while buyers are active
+     */
+    public int available() {
+        long total = 0;
+        for (int s = 0; s < stripes; s++) {
+            total += cells.get(s * PAD);
+        }
+        return (int) total;
+    }
+
+    /**
+     * Ends buying: empties every stripe. Later takes return {@link #RETRY}.
+     * @return units left
+     */
+    public synchronized int close() {
+        closed = true;
+        leftAtClose = drain();
+        return leftAtClose;
+    }
+
+    /**
+     * @return units bought so far: supplied minus left (exact once closed)
+     */
+    public synchronized long sold() {
+        return supplied - (closed ? leftAtClose : available());
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    /**
+     * @return times the stripes were pooled and spread again because none held enough
+     */
+    public synchronized long getRebalanceCount() {
+        return rebalances;
+    }
+
+    private synchronized int takePooled(int units) {
+        if (closed || !ready) {
+            return RETRY;
+        }
+        int total = drain();
+        rebalances++;
+        if (total < units) {
+            spread(total);
+            return -1;
+        }
+        spread(total - units);
+        return total;
+    }
+
+    // Caller holds the lock
+    private int drain() {
+        long total = 0;
+        for (int s = 0; s < stripes; s++) {
+            total += cells.getAndSet(s * PAD, 0);
+        }
+        return (int) total;
+    }
+
+    // Caller holds the lock; the stripes are empty or being replaced
+    private void spread(int units) {
+        int each = units / stripes;
+        int extra = units % stripes;
+        for (int s = 0; s < stripes; s++) {
+            cells.addAndGet(s * PAD, each + (s < extra ? 1 : 0));
+        }
+    }
+
+    private int homeStripe() {
+        int h = System.identityHashCode(Thread.currentThread());
+        h ^= h >>> 16; // Spread the hash's high bits into the stripe choice
+        return Math.floorMod(h, stripes);
+    }
+}
@@ -0,0 +1,269 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Checks out a customer's cart in explicit stages, so a failure never leaves stock taken or an
+ * order charged for items that were not sold.
+ *
+ *  RESOLVE  cart lines' catalog ids to the listed products and their stores
+ *  RESERVE  every line's units at once; if any line is short, all reservations are released
+ *  PRICE    the reserved lines at current prices; a line that costs more than when it was
+ *           added fails the checkout until the customer accepts the new price
+ *  COMMIT   the order and all its details in one database transaction
+ *  REWARD   the customer's reward points, one update for the whole order
+ *
+ * Until COMMIT succeeds, any failure releases the reservations and leaves the database
+ * untouched. After it, the reserved units are confirmed as sales (journaled for the Products
+ * table and recorded in each store's ledger); a failed REWARD is reported but does not undo the
+ * order. Each stage is timed, per checkout ({@link Result#getStageNanos}) and in total across
+ * checkouts ({@link #describeStageTimes}).
+ */
+public class CheckoutPipeline {
+
+    /**
+     * Checkout stages, in the order they run.
+     */
+    public enum Stage { RESOLVE, RESERVE, PRICE, COMMIT, REWARD }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final AtomicLongArray TOTAL_NANOS = new AtomicLongArray(STAGES.length);
+    private static final AtomicLongArray RUNS = new AtomicLongArray(STAGES.length);
+
+    /**
+     * Outcome of one checkout.
+     */
+    public static class Result {
+        private final long[] stageNanos = new long[STAGES.length];
+        private final List<String> problems = new ArrayList<>();
+        private final List<ShoppingCart.Line> rejected = new ArrayList<>();
+        private final ArrayList<Product> items = new ArrayList<>();
+        private Stage failedStage;
+        private int orderId = -1;
+        private long totalCents;
+
+        public boolean isSuccess() {
+            return failedStage == null;
+        }
+
+        /**
+         * @return stage that stopped the checkout, or null if it went through
+         */
+        public Stage getFailedStage() {
+            return failedStage;
+        }
+
+        public int getOrderId() {
+            return orderId;
+        }
+
+        public long getTotalCents() {
+            return totalCents;
+        }
+
+        /**
+         * @return the products bought, with the quantity and unit price charged
+         */
+        public ArrayList<Product> getItems() {
+            return items;
+        }
+
+        /**
+         * @return messages for the customer: unavailable items, price changes, failures
+         */
+        public List<String> getProblems() {
+            return problems;
+        }
+
+        /**
+         * @return cart lines that cannot be bought as they are: delisted, short of stock, or
+         * dearer than when added ({@link ShoppingCart.Line#acceptPrice} confirms the new price)
+         */
+        public List<ShoppingCart.Line> getRejected() {
+            return rejected;
+        }
+
+        /**
+         * @return time spent in a stage, 0 if it did not run
+         */
+        public long getStageNanos(Stage stage) {
+            return stageNanos[stage.ordinal()];
+        }
+    }
+
+    // One reserved cart line
+    private static class Reservation {
+        final ShoppingCart.Line line;
+        final Product product;
+        final Store store;
+        StripedStock sale; // Flash sale the units came from, to release them back to it
+        Product.Take take;
+        long cents;
+
+        Reservation(ShoppingCart.Line line, Product product, Store store) {
+            this.line = line;
+            this.product = product;
+            this.store = store;
+        }
+    }
+
+    private final Function<String, Store> stores;
+
+    /**
+     * @param stores finds a store by name, or returns null
+     */
+    public CheckoutPipeline(Function<String, Store> stores) {
+        this.stores = stores;
+    }
+
+    /**
+     * Checks out the customer's cart. The cart itself is not changed; on success the caller
+     * clears it, on failure {@link Result#getRejected} names the lines to fix.
+     */
+    public Result run(Customer customer) {
+        Result result = new Result();
+        ShoppingCart cart = customer.getShoppingCart();
+        if (cart.isEmpty()) {
+            result.failedStage = Stage.RESOLVE;
+            result.problems.add("There is nothing in your shopping cart.");
+            return result;
+        }
+
+        long start = System.nanoTime();
+        List<Reservation> reservations = resolve(cart, result);
+        start = timed(result, Stage.RESOLVE, start);
+        if (!result.rejected.isEmpty()) {
+            result.failedStage = Stage.RESOLVE;
+            return result;
+        }
+
+        boolean reserved = reserve(reservations, result);
+        start = timed(result, Stage.RESERVE, start);
+        if (!reserved) {
+            result.failedStage = Stage.RESERVE;
+            return result;
+        }
+
+        boolean priced = price(reservations, result);
+        start = timed(result, Stage.PRICE, start);
+        if (!priced) {
+            release(reservations, reservations.size());
+            result.failedStage = Stage.PRICE;
+            return result;
+        }
+
+        UserDAO userDAO = new UserDAO();
+        int userId = -1;
+        try {
+            userId = userDAO.getUserId(customer.getEmail());
+            if (userId <= 0) {
+                throw new SQLException("User not found in database");
+            }
+            result.orderId = new OrderDAO().createOrderWithDetails(userId, result.totalCents, result.items);
+        } catch (SQLException | RuntimeException e) {
+            release(reservations, reservations.size());
+            timed(result, Stage.COMMIT, start);
+            result.failedStage = Stage.COMMIT;
+            result.problems.add("Your order could not be stored (" + e.getMessage() + "); nothing was charged.");
+            return result;
+        }
+        for (Reservation reservation : reservations) {
+            reservation.store.confirmSale(reservation.product, reservation.line.getQuantity(), reservation.take,
+                reservation.cents, customer.getEmail());
+        }
+        start = timed(result, Stage.COMMIT, start);
+
+        // 1 point per dollar of the order
+        if (!userDAO.addRewardPoints(userId, (int) (result.totalCents / 100))) {
+            result.problems.add("Reward points could not be added for order #" + result.orderId + ".");
+        }
+        timed(result, Stage.REWARD, start);
+        return result;
+    }
+
+    /**
+     * @return total and average time of each stage over all checkouts so far
+     */
+    public static String describeStageTimes() {
+        StringBuilder sb = new StringBuilder("Checkout stages:");
+        for (Stage stage : STAGES) {
+            long runs = RUNS.get(stage.ordinal());
+            double totalMillis = TOTAL_NANOS.get(stage.ordinal()) / 1_000_000.0;
+            sb.append(String.format(" %s %d x %.2f ms;", stage.name().toLowerCase(), runs,
+                runs == 0 ? 0.0 : totalMillis / runs));
+        }
+        return sb.toString();
+    }
+
+    private List<Reservation> resolve(ShoppingCart cart, Result result) {
+        List<Reservation> reservations = new ArrayList<>(cart.size());
+        for (ShoppingCart.Line line : cart.getLines()) {
+            Product product = line.getProduct();
+            Store store = product == null ? null : stores.apply(product.getStore());
+            if (store == null) {
+                result.rejected.add(line);
+                result.problems.add(line.getName() + " is no longer sold.");
+            } else {
+                reservations.add(new Reservation(line, product, store));
+            }
+        }
+        return reservations;
+    }
+
+    // All lines or none: a short line releases the ones already reserved
+    private boolean reserve(List<Reservation> reservations, Result result) {
+        for (int i = 0; i < reservations.size(); i++) {
+            Reservation reservation = reservations.get(i);
+            int quantity = reservation.line.getQuantity();
+            do {
+                reservation.sale = reservation.product.getFlashSale();
+                reservation.take = reservation.store.reserve(reservation.product, quantity, reservation.sale);
+            } while (reservation.take == null); // A flash sale started or ended meanwhile
+            if (reservation.take == Product.Take.OUT_OF_STOCK) {
+                release(reservations, i);
+                result.rejected.add(reservation.line);
+                result.problems.add("Only " + Math.max(0, reservation.product.getQuantity()) + " of "
+                    + reservation.line.getName() + " left; you wanted " + quantity + ".");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // A price rise rejects the line like a shortage; a drop is only reported
+    private boolean price(List<Reservation> reservations, Result result) {
+        for (Reservation reservation : reservations) {
+            ShoppingCart.Line line = reservation.line;
+            Product item = line.toProduct(); // One entry read, so name and price agree
+            reservation.cents = Money.times(item.getPriceCents(), item.getQuantity());
+            if (item.getPriceCents() != line.getAddedPriceCents()) {
+                result.problems.add(item.getName() + " now costs $" + Money.format(item.getPriceCents())
+                    + " each (was $" + Money.format(line.getAddedPriceCents()) + " when added).");
+                if (item.getPriceCents() > line.getAddedPriceCents()) {
+                    result.rejected.add(line);
+                }
+            }
+            result.items.add(item);
+            result.totalCents += reservation.cents;
+        }
+        return result.rejected.isEmpty();
+    }
+
+    // Releases the first count reservations
+    private static void release(List<Reservation> reservations, int count) {
+        for (int i = 0; i < count; i++) {
+            Reservation reservation = reservations.get(i);
+            reservation.store.release(reservation.product, reservation.line.getQuantity(), reservation.sale);
+        }
+    }
+
+    private static long timed(Result result, Stage stage, long start) {
+        long now = System.nanoTime();
+        result.stageNanos[stage.ordinal()] = now - start;
+        TOTAL_NANOS.addAndGet(stage.ordinal(), now - start);
+        RUNS.incrementAndGet(stage.ordinal());
+        return now;
+    }
+}
@@ -48,12 +48,12 @@ public class DataMigrationService {
         try {
             String name = productFields[0].trim();
             int quantity = Integer.parseInt(productFields[1].trim());
-            double price = Double.parseDouble(productFields[2].trim());
-            String description = productFields[3].trim();
-            String storeName = productFields[4].trim();
+            long priceCents = Money.parse(productFields[2]);
+            String description = StringDictionary.CATALOG.intern(productFields[3].trim());
+            String storeName = StringDictionary.CATALOG.intern(productFields[4].trim());
             
             // Create product with default SHOES category for backward compatibility
-            return new Product(name, quantity, price, description, storeName, ProductCategory.SHOES);
+            return Product.ofCents(name, quantity, priceCents, description, storeName, ProductCategory.SHOES);
             
         } catch (NumberFormatException e) {
             throw new IllegalArgumentException("Invalid number format in legacy product data: " + String.join(",", productFields), e);
@@ -74,9 +74,9 @@ public class DataMigrationService {
         try {
             String name = productFields[0].trim();
             int quantity = Integer.parseInt(productFields[1].trim());
-            double price = Double.parseDouble(productFields[2].trim());
-            String description = productFields[3].trim();
-            String storeName = productFields[4].trim();
+            long priceCents = Money.parse(productFields[2]);
+            String description = StringDictionary.CATALOG.intern(productFields[3].trim());
+            String storeName = StringDictionary.CATALOG.intern(productFields[4].trim());
             String categoryStr = productFields[5].trim();
             
             // Parse category, default to SHOES if invalid
@@ -85,7 +85,7 @@ public class DataMigrationService {
                 category = ProductCategory.SHOES; // Fallback for invalid categories
             }
             
-            return new Product(name, quantity, price, description, storeName, category);
+            return Product.ofCents(name, quantity, priceCents, description, storeName, category);
             
         } catch (NumberFormatException e) {
             throw new IllegalArgumentException("Invalid number format in new product data: " + String.join(",", productFields), e);
@@ -99,6 +99,17 @@ public class DataMigrationService {
      * @return ArrayList of Product objects parsed from the line
      */
     public static ArrayList<Product> parseProductsFromLine(String csvLine) {
+        return parseProductsFromLine(csvLine, isLegacyFormat(csvLine));
+    }
+    
+    /**
+     * Parses a complete CSV line whose format is already known, skipping format detection.
+     * Used for catalogs stamped with a format version.
+     * @param csvLine Complete CSV line from Sellers.txt
+     * @param isLegacy true if the line is in the legacy 5-field product format
+     * @return ArrayList of Product objects parsed from the line
+     */
+    public static ArrayList<Product> parseProductsFromLine(String csvLine, boolean isLegacy) {
         ArrayList<Product> products = new ArrayList<>();
         
         if (csvLine == null || csvLine.trim().isEmpty()) {
@@ -112,8 +123,6 @@ public class DataMigrationService {
             return products;
         }
         
-        boolean isLegacy = isLegacyFormat(csvLine);
-        
         // Extract product data starting from index 2 (after seller email and store name)
         if (isLegacy) {
             // Legacy format: sellerEmail,storeName,name,quantity,price,description,storeName
@@ -286,9 +295,7 @@ public class DataMigrationService {
      * @return number of products migrated successfully
      */
     public static int migrateProductsToDatabase() {
-        File sellersFile = new File(FileConstants.SELLERS_FILE);
-        
-        if (!sellersFile.exists()) {
+        if (!CatalogEditLog.catalogExists()) {
             System.out.println("No Sellers.txt file found. Skipping product migration.");
             return 0;
         }
@@ -298,10 +305,8 @@ public class DataMigrationService {
         ProductDAO productDAO = new ProductDAO();
         UserDAO userDAO = new UserDAO();
         
-        try (BufferedReader reader = new BufferedReader(new FileReader(sellersFile))) {
-            String line;
-            
-            while ((line = reader.readLine()) != null) {
+        try {
+            for (String line : CatalogEditLog.readLines()) {
                 if (line.trim().isEmpty()) {
                     continue;
                 }
@@ -0,0 +1,206 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * In-memory inverted index over product descriptions.
+ * Each product in the catalog is a document; descriptions are tokenized into
+ * lowercase alphanumeric terms and queries are ranked with BM25.
+ */
+public class DescriptionIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final ArrayList<Product> products = new ArrayList<>();
+    private final ArrayList<String> sourceLines = new ArrayList<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private int[] docLengths = new int[16];
+    private long totalLength;
+
+    /**
+     * A single ranked search result.
+     */
+    public static class Hit {
+        private final Product product;
+        private final String line;
+        private final double score;
+
+        Hit(Product product, String line, double score) {
+            this.product = product;
+            this.line = line;
+            this.score = score;
+        }
+
+        public Product getProduct() {
+            return product;
+        }
+
+        public String getLine() {
+            return line;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * Posting list for one term: parallel arrays of document ids and term frequencies.
+     */
+    private static class Postings {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+    }
+
+    /**
+     * Builds an index from Sellers.txt lines.
+     * @param lines lines of the sellers file
+     * @return populated index
+     */
+    public static DescriptionIndex build(List<String> lines) {
+        DescriptionIndex index = new DescriptionIndex();
+        for (String line : lines) {
+            if (line == null || line.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                for (Product product : DataMigrationService.parseProductsFromLine(line)) {
+                    index.addDocument(product, line);
+                }
+            } catch (Exception e) {
+                System.out.println("Warning: Could not index products from line: " + line);
+            }
+        }
+        return index;
+    }
+
+    private void addDocument(Product product, String line) {
+        int doc = products.size();
+        products.add(product);
+        sourceLines.add(line);
+
+        Map<String, Integer> termFreqs = new HashMap<>();
+        int length = 0;
+        for (String term : tokenize(product.getDescription())) {
+            termFreqs.merge(term, 1, Integer::sum);
+            length++;
+        }
+        for (Map.Entry<String, Integer> entry : termFreqs.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), k -> new Postings()).add(doc, entry.getValue());
+        }
+
+        if (doc == docLengths.length) {
+            docLengths = Arrays.copyOf(docLengths, doc * 2);
+        }
+        docLengths[doc] = length;
+        totalLength += length;
+    }
+
+    /**
+     * Splits text into lowercase alphanumeric terms.
+     * @param text text to tokenize
+     * @return list of terms in order of appearance
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Ranks products against a free-text query and returns the best matches.
+     * @param query description keywords
+     * @param category optional category filter (null for no filtering)
+     * @param topK maximum number of hits to return
+     * @return hits ordered by descending BM25 score
+     */
+    public List<Hit> search(String query, ProductCategory category, int topK) {
+        List<Hit> results = new ArrayList<>();
+        int docCount = products.size();
+        if (topK <= 0 || docCount == 0) {
+            return results;
+        }
+
+        // Repeated query terms only count once
+        List<String> terms = new ArrayList<>();
+        for (String term : tokenize(query)) {
+            if (!terms.contains(term) && postings.containsKey(term)) {
+                terms.add(term);
+            }
+        }
+        if (terms.isEmpty()) {
+            return results;
+        }
+
+        double avgLength = Math.max(1.0, (double) totalLength / docCount);
+        Map<Integer, Double> scores = new HashMap<>();
+        for (String term : terms) {
+            Postings list = postings.get(term);
+            double idf = Math.log(1.0 + (docCount - list.size + 0.5) / (list.size + 0.5));
+            for (int i = 0; i < list.size; i++) {
+                int doc = list.docs[i];
+                if (category != null && products.get(doc).getCategory() != category) {
+                    continue;
+                }
+                double tf = list.freqs[i];
+                double norm = K1 * (1 - B + B * docLengths[doc] / avgLength);
+                scores.merge(doc, idf * (tf * (K1 + 1)) / (tf + norm), Double::sum);
+            }
+        }
+
+        // Bounded min-heap keeps only the K best documents
+        PriorityQueue<Hit> heap = new PriorityQueue<>(topK + 1, (a, b) -> Double.compare(a.score, b.score));
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            int doc = entry.getKey();
+            double score = entry.getValue();
+            if (heap.size() < topK) {
+                heap.add(new Hit(products.get(doc), sourceLines.get(doc), score));
+            } else if (score > heap.peek().score) {
+                heap.poll();
+                heap.add(new Hit(products.get(doc), sourceLines.get(doc), score));
+            }
+        }
+
+        while (!heap.isEmpty()) {
+            results.add(heap.poll());
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    /**
+     * @return number of indexed products
+     */
+    public int size() {
+        return products.size();
+    }
+}
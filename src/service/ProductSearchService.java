@@ -1,7 +1,10 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Service class for searching and filtering products in the marketplace.
@@ -9,6 +12,12 @@ import java.util.ArrayList;
  */
 public class ProductSearchService {
     
+    // Upper bound on description matches returned to the customer menu
+    private static final int DEFAULT_DESCRIPTION_RESULTS = 25;
+    
+    private static DescriptionIndex descriptionIndex;
+    private static String indexedFingerprint;
+    
     /**
      * Searches products by name with optional category filtering.
      * @param name The product name to search for (case-insensitive)
@@ -18,9 +27,8 @@ public class ProductSearchService {
     public static ArrayList<String> searchByName(String name, ProductCategory category) {
         ArrayList<String> results = new ArrayList<>();
         
-        try (BufferedReader bfr = new BufferedReader(new FileReader(FileConstants.SELLERS_FILE))) {
-            String line;
-            while ((line = bfr.readLine()) != null) {
+        try {
+            for (String line : CatalogEditLog.readLines()) {
                 if (line.trim().isEmpty()) {
                     continue;
                 }
@@ -52,6 +60,17 @@ public class ProductSearchService {
         return searchByName(name, null);
     }
     
+    /**
+     * Answers many name queries with a single pass over the sellers file.
+     * Each query gets the same lines {@link #searchByName(String, ProductCategory)} would return.
+     * @param names Product names to search for (case-insensitive)
+     * @param category Optional category filter (null for no filtering)
+     * @return Map from each query to its matching product lines, in query order
+     */
+    public static Map<String, ArrayList<String>> searchByNameBatch(List<String> names, ProductCategory category) {
+        return batchSearch(names, 2, category);
+    }
+    
     /**
      * Searches products by price with optional category filtering.
      * @param price The exact price to search for
@@ -60,10 +79,10 @@ public class ProductSearchService {
      */
     public static ArrayList<String> searchByPrice(double price, ProductCategory category) {
         ArrayList<String> results = new ArrayList<>();
+        long priceCents = Money.fromDouble(price);
         
-        try (BufferedReader bfr = new BufferedReader(new FileReader(FileConstants.SELLERS_FILE))) {
-            String line;
-            while ((line = bfr.readLine()) != null) {
+        try {
+            for (String line : CatalogEditLog.readLines()) {
                 if (line.trim().isEmpty()) {
                     continue;
                 }
@@ -71,8 +90,8 @@ public class ProductSearchService {
                 String[] arr = line.split(",");
                 if (arr.length >= 6) { // Ensure we have enough fields for a product line
                     try {
-                        // Check price match
-                        if (Math.abs(Double.parseDouble(arr[4]) - price) < 0.01) { // Use small epsilon for double comparison
+                        // Check price match, exactly in cents
+                        if (Money.parse(arr[4]) == priceCents) {
                             // If no category filter or category matches
                             if (category == null || matchesCategory(arr, category)) {
                                 results.add(line);
@@ -109,9 +128,8 @@ public class ProductSearchService {
     public static ArrayList<String> searchByStore(String storeName, ProductCategory category) {
         ArrayList<String> results = new ArrayList<>();
         
-        try (BufferedReader bfr = new BufferedReader(new FileReader(FileConstants.SELLERS_FILE))) {
-            String line;
-            while ((line = bfr.readLine()) != null) {
+        try {
+            for (String line : CatalogEditLog.readLines()) {
                 if (line.trim().isEmpty()) {
                     continue;
                 }
@@ -144,29 +162,54 @@ public class ProductSearchService {
     }
     
     /**
-     * Searches products by description with optional category filtering.
-     * @param description The description to search for (case-insensitive)
+     * Answers many store queries with a single pass over the sellers file.
+     * Each query gets the same lines {@link #searchByStore(String, ProductCategory)} would return.
+     * @param storeNames Store names to search for (case-insensitive)
      * @param category Optional category filter (null for no filtering)
-     * @return ArrayList of matching product lines from the file
+     * @return Map from each query to its matching product lines, in query order
      */
-    public static ArrayList<String> searchByDescription(String description, ProductCategory category) {
-        ArrayList<String> results = new ArrayList<>();
+    public static Map<String, ArrayList<String>> searchByStoreBatch(List<String> storeNames, ProductCategory category) {
+        return batchSearch(storeNames, 1, category);
+    }
+    
+    /**
+     * Shared single-pass implementation for the batch searches. Queries are grouped by
+     * their lowercase form so each line costs one hash probe regardless of batch size.
+     * @param queries Values to match (case-insensitive)
+     * @param fieldIndex CSV field to compare against (1 = store name, 2 = product name)
+     * @param category Optional category filter (null for no filtering)
+     * @return Map from each query to its matching product lines, in query order
+     */
+    private static Map<String, ArrayList<String>> batchSearch(List<String> queries, int fieldIndex, ProductCategory category) {
+        Map<String, String> keys = new LinkedHashMap<>();
+        Map<String, ArrayList<String>> byKey = new HashMap<>();
         
-        try (BufferedReader bfr = new BufferedReader(new FileReader(FileConstants.SELLERS_FILE))) {
-            String line;
-            while ((line = bfr.readLine()) != null) {
+        for (String query : queries) {
+            if (query == null || keys.containsKey(query)) {
+                continue;
+            }
+            // Queries differing only by case are matched once
+            String key = query.toLowerCase(Locale.ROOT);
+            keys.put(query, key);
+            byKey.computeIfAbsent(key, k -> new ArrayList<>());
+        }
+        
+        Map<String, ArrayList<String>> results = new LinkedHashMap<>();
+        if (byKey.isEmpty()) {
+            return results;
+        }
+        
+        try {
+            for (String line : CatalogEditLog.readLines()) {
                 if (line.trim().isEmpty()) {
                     continue;
                 }
                 
                 String[] arr = line.split(",");
                 if (arr.length >= 6) { // Ensure we have enough fields for a product line
-                    // Check description match (case-insensitive)
-                    if (description.equalsIgnoreCase(arr[5])) {
-                        // If no category filter or category matches
-                        if (category == null || matchesCategory(arr, category)) {
-                            results.add(line);
-                        }
+                    ArrayList<String> matches = byKey.get(arr[fieldIndex].toLowerCase(Locale.ROOT));
+                    if (matches != null && (category == null || matchesCategory(arr, category))) {
+                        matches.add(line);
                     }
                 }
             }
@@ -174,9 +217,72 @@ public class ProductSearchService {
             System.out.println("Error reading sellers file: " + e.getMessage());
         }
         
+        // Each query gets its own list, so callers can change one result without touching another
+        for (Map.Entry<String, String> entry : keys.entrySet()) {
+            results.put(entry.getKey(), new ArrayList<>(byKey.get(entry.getValue())));
+        }
         return results;
     }
     
+    /**
+     * Searches products by description with optional category filtering.
+     * The query is tokenized and matched against the description index, so any
+     * keyword overlap counts; lines are ordered by their best-ranked product.
+     * @param description The description keywords to search for (case-insensitive)
+     * @param category Optional category filter (null for no filtering)
+     * @return ArrayList of matching product lines from the file
+     */
+    public static ArrayList<String> searchByDescription(String description, ProductCategory category) {
+        ArrayList<String> results = new ArrayList<>();
+        
+        for (DescriptionIndex.Hit hit : getDescriptionIndex().search(description, category, DEFAULT_DESCRIPTION_RESULTS)) {
+            if (!results.contains(hit.getLine())) {
+                results.add(hit.getLine());
+            }
+        }
+        
+        return results;
+    }
+    
+    /**
+     * Ranks products by how well their description matches the query (BM25).
+     * @param description The description keywords to search for
+     * @param category Optional category filter (null for no filtering)
+     * @param limit Maximum number of products to return
+     * @return ArrayList of Product objects, best match first
+     */
+    public static ArrayList<Product> searchByDescriptionRanked(String description, ProductCategory category, int limit) {
+        ArrayList<Product> results = new ArrayList<>();
+        
+        for (DescriptionIndex.Hit hit : getDescriptionIndex().search(description, category, limit)) {
+            results.add(hit.getProduct());
+        }
+        
+        return results;
+    }
+    
+    /**
+     * Returns the description index for the current catalog, rebuilding it
+     * only when the sellers file or edit log has changed since the last build.
+     * @return DescriptionIndex over all products in the marketplace
+     */
+    private static synchronized DescriptionIndex getDescriptionIndex() {
+        String fingerprint = CatalogEditLog.fingerprint();
+        
+        if (descriptionIndex == null || !fingerprint.equals(indexedFingerprint)) {
+            ArrayList<String> lines = new ArrayList<>();
+            try {
+                lines = CatalogEditLog.readLines();
+            } catch (IOException e) {
+                System.out.println("Error reading sellers file: " + e.getMessage());
+            }
+            descriptionIndex = DescriptionIndex.build(lines);
+            indexedFingerprint = fingerprint;
+        }
+        
+        return descriptionIndex;
+    }
+    
     /**
      * Searches products by description without category filtering (backward compatibility).
      * @param description The description to search for
@@ -198,9 +304,8 @@ public class ProductSearchService {
             return results; // Return empty list if no category specified
         }
         
-        try (BufferedReader bfr = new BufferedReader(new FileReader(FileConstants.SELLERS_FILE))) {
-            String line;
-            while ((line = bfr.readLine()) != null) {
+        try {
+            for (String line : CatalogEditLog.readLines()) {
                 if (line.trim().isEmpty()) {
                     continue;
                 }
@@ -226,9 +331,8 @@ public class ProductSearchService {
     public static ArrayList<ProductCategory> getAvailableCategories() {
         ArrayList<ProductCategory> availableCategories = new ArrayList<>();
         
-        try (BufferedReader bfr = new BufferedReader(new FileReader(FileConstants.SELLERS_FILE))) {
-            String line;
-            while ((line = bfr.readLine()) != null) {
+        try {
+            for (String line : CatalogEditLog.readLines()) {
                 if (line.trim().isEmpty()) {
                     continue;
                 }
@@ -388,12 +492,22 @@ public class ProductSearchService {
     
     /**
      * Searches products by description and returns Product objects.
-     * @param description The description to search for
-     * @return ArrayList of Product objects matching the description
+     * @param description The description keywords to search for
+     * @return ArrayList of Product objects matching the description, best match first
      */
     public static ArrayList<Product> searchByDescriptionAsProducts(String description) {
-        ArrayList<String> stringResults = searchByDescription(description);
-        return convertToProducts(stringResults);
+        return searchByDescriptionAsProducts(description, null);
+    }
+    
+    /**
+     * Searches products by description within a category and returns Product objects.
+     * Filtering happens before ranking so the category's best matches are not crowded out.
+     * @param description The description keywords to search for
+     * @param category Optional category filter (null for no filtering)
+     * @return ArrayList of Product objects matching the description, best match first
+     */
+    public static ArrayList<Product> searchByDescriptionAsProducts(String description, ProductCategory category) {
+        return searchByDescriptionRanked(description, category, DEFAULT_DESCRIPTION_RESULTS);
     }
     
     /**
@@ -413,9 +527,8 @@ public class ProductSearchService {
     public static ArrayList<Product> searchInStock() {
         ArrayList<Product> results = new ArrayList<>();
         
-        try (BufferedReader bfr = new BufferedReader(new FileReader(FileConstants.SELLERS_FILE))) {
-            String line;
-            while ((line = bfr.readLine()) != null) {
+        try {
+            for (String line : CatalogEditLog.readLines()) {
                 if (line.trim().isEmpty()) {
                     continue;
                 }
@@ -450,9 +563,8 @@ public class ProductSearchService {
     public static ArrayList<Product> getAllProducts() {
         ArrayList<Product> results = new ArrayList<>();
         
-        try (BufferedReader bfr = new BufferedReader(new FileReader(FileConstants.SELLERS_FILE))) {
-            String line;
-            while ((line = bfr.readLine()) != null) {
+        try {
+            for (String line : CatalogEditLog.readLines()) {
                 if (line.trim().isEmpty()) {
                     continue;
                 }
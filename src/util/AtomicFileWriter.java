@@ -0,0 +1,103 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Crash-safe replacement of whole files.
+ *
+ * Content is written to a temp file in the target's directory, optionally fsynced, and then
+ * renamed over the target. A crash at any point leaves either the old file or the new one,
+ * never a truncated mix. Whether data is forced to disk follows {@link FsyncPolicy#current()}.
+ */
+public final class AtomicFileWriter {
+
+    /**
+     * Writes the file body to the temp file's stream. The stream's channel may be used for
+     * zero-copy transfers from another file.
+     */
+    public interface Content {
+        void writeTo(FileOutputStream out) throws IOException;
+    }
+
+    private AtomicFileWriter() {}
+
+    /**
+     * Replaces the target with the given lines, each followed by the platform line separator.
+     * @param target file to replace
+     * @param lines file contents
+     * @throws IOException if the temp file cannot be written or moved into place
+     */
+    public static void writeLines(File target, List<String> lines) throws IOException {
+        write(target, out -> {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+            writer.flush();
+        });
+    }
+
+    /**
+     * Replaces the target with whatever the content callback writes.
+     * The target is left untouched if the callback throws.
+     * @param target file to replace
+     * @param content writes the new file body
+     * @throws IOException if the temp file cannot be written or moved into place
+     */
+    public static void write(File target, Content content) throws IOException {
+        File dir = target.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+
+        File temp = File.createTempFile(target.getName() + ".", ".tmp", dir);
+        boolean moved = false;
+        try {
+            boolean sync = FsyncPolicy.current().shouldSync(target);
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                content.writeTo(out);
+                out.flush();
+                if (sync) {
+                    out.getChannel().force(true);
+                }
+            }
+
+            try {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+
+            if (sync && dir != null) {
+                syncDirectory(dir);
+            }
+        } finally {
+            if (!moved) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Forces the rename itself to disk. Not every platform can open a directory for syncing,
+     * so failures are ignored; the file contents are already durable at this point.
+     */
+    private static void syncDirectory(File dir) {
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directory fsync is best-effort
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts the text seller catalog into the binary catalog format.
+ * Running main converts the current catalog and reports size and load-time differences.
+ */
+public class CatalogBinaryConverter {
+
+    /**
+     * Converts a text seller file into a binary catalog file.
+     * @param textFile source Sellers.txt
+     * @param binaryFile destination catalog file
+     * @return number of sellers written
+     * @throws IOException if either file cannot be read or written
+     */
+    public static int convert(File textFile, File binaryFile) throws IOException {
+        ArrayList<Seller> sellers = parseTextFile(textFile);
+        CatalogBinaryWriter.write(sellers, binaryFile);
+        return sellers.size();
+    }
+
+    /**
+     * Converts the catalog as the application loads it (the current layout, with any logged
+     * edits applied) into a binary catalog file.
+     * @param binaryFile destination catalog file
+     * @return number of sellers written
+     * @throws IOException if the catalog cannot be read or the file cannot be written
+     */
+    public static int convertCatalog(File binaryFile) throws IOException {
+        ArrayList<Seller> sellers = parseLines(CatalogEditLog.readLines());
+        CatalogBinaryWriter.write(sellers, binaryFile);
+        return sellers.size();
+    }
+
+    /**
+     * Parses a text seller file into sellers, merging lines that repeat a seller or store.
+     * Handles both legacy and current product formats.
+     * @param textFile Sellers.txt file
+     * @return parsed sellers
+     * @throws IOException if the file cannot be read
+     */
+    public static ArrayList<Seller> parseTextFile(File textFile) throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        try (BufferedReader bfr = new BufferedReader(new FileReader(textFile))) {
+            String line;
+            while ((line = bfr.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return parseLines(lines);
+    }
+
+    /**
+     * Parses seller file lines into sellers, merging lines that repeat a seller or store.
+     * @param lines seller file lines, e.g. from {@link CatalogEditLog#readLines()}
+     * @return parsed sellers
+     */
+    public static ArrayList<Seller> parseLines(List<String> lines) {
+        ArrayList<Seller> sellers = new ArrayList<>();
+        Map<String, Seller> byEmail = new HashMap<>();
+
+        for (String line : lines) {
+            if (line.trim().isEmpty() || CatalogEditLog.isFormatHeader(line)) {
+                continue;
+            }
+
+            String[] arr = line.split(",");
+            Seller seller = findOrCreateSeller(sellers, byEmail, arr[0]);
+            if (arr.length < 2) {
+                continue;
+            }
+
+            String storeName = arr[1];
+            Store store = seller.searchStore(storeName);
+            if (store == null) {
+                store = new Store(StringDictionary.CATALOG.intern(storeName));
+                seller.addStores(store);
+            }
+
+            try {
+                for (Product product : DataMigrationService.parseProductsFromLine(line)) {
+                    product.setStoreName(store.getName());
+                    store.addProduct(product);
+                }
+            } catch (Exception e) {
+                System.out.println("Warning: Could not parse products from line: " + line);
+            }
+        }
+
+        return sellers;
+    }
+
+    private static Seller findOrCreateSeller(ArrayList<Seller> sellers, Map<String, Seller> byEmail, String email) {
+        Seller seller = byEmail.get(email);
+        if (seller == null) {
+            seller = new Seller(StringDictionary.CATALOG.intern(email));
+            sellers.add(seller);
+            byEmail.put(email, seller);
+        }
+        return seller;
+    }
+
+    /**
+     * Converts the seller catalog to data/Sellers.bin and compares size and load time.
+     * Without a source path the catalog is read as the application loads it, pending edit log
+     * records and sharded layout included; a given path is parsed as a raw seller file.
+     * @param args optional source and destination paths
+     */
+    public static void main(String[] args) {
+        File textFile = args.length > 0 ? new File(args[0]) : null;
+        File binaryFile = new File(args.length > 1 ? args[1] : FileConstants.SELLERS_BINARY_FILE);
+
+        try {
+            int sellers = textFile != null ? convert(textFile, binaryFile) : convertCatalog(binaryFile);
+            System.out.println("Converted " + sellers + " sellers to " + binaryFile.getPath());
+            System.out.println(CatalogBinaryReader.readHeader(binaryFile));
+
+            long start = System.nanoTime();
+            long textBytes;
+            if (textFile != null) {
+                parseTextFile(textFile);
+                textBytes = textFile.length();
+            } else {
+                ArrayList<String> lines = CatalogEditLog.readLines();
+                parseLines(lines);
+                textBytes = 0;
+                for (String line : lines) {
+                    textBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                }
+            }
+            long textNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            CatalogBinaryReader.read(binaryFile);
+            long binaryNanos = System.nanoTime() - start;
+
+            System.out.println(String.format("Size: text %d bytes, binary %d bytes", textBytes, binaryFile.length()));
+            System.out.println(String.format("Load: text %.2f ms, binary %.2f ms", textNanos / 1_000_000.0, binaryNanos / 1_000_000.0));
+        } catch (IOException e) {
+            System.err.println("Error converting seller file: " + e.getMessage());
+        }
+    }
+}
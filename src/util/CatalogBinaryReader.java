@@ -0,0 +1,120 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+
+/**
+ * Reads catalogs written by {@link CatalogBinaryWriter} back into Seller/Store/Product objects.
+ * Accepts every format version up to the writer's, including version 1 with double prices.
+ */
+public class CatalogBinaryReader {
+
+    /**
+     * Header fields of a binary catalog file.
+     */
+    public static class Header {
+        public final short version;
+        public final int sellerCount;
+        public final int storeCount;
+        public final int productCount;
+        public final int dictionarySize;
+
+        Header(short version, int sellerCount, int storeCount, int productCount, int dictionarySize) {
+            this.version = version;
+            this.sellerCount = sellerCount;
+            this.storeCount = storeCount;
+            this.productCount = productCount;
+            this.dictionarySize = dictionarySize;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Catalog[version=%d, sellers=%d, stores=%d, products=%d, dictionary=%d]",
+                version, sellerCount, storeCount, productCount, dictionarySize);
+        }
+    }
+
+    /**
+     * Reads only the header of a binary catalog file.
+     * @param file catalog file
+     * @return parsed header
+     * @throws IOException if the file is missing, not a catalog, or of an unsupported version
+     */
+    public static Header readHeader(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return readHeader(in);
+        }
+    }
+
+    /**
+     * Reads a full binary catalog file.
+     * @param file catalog file
+     * @return sellers with their stores and products
+     * @throws IOException if the file is missing, truncated, not a catalog, or of an unsupported version
+     */
+    public static ArrayList<Seller> read(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads a full binary catalog from a stream, which is not closed.
+     * @param stream catalog data
+     * @return sellers with their stores and products
+     * @throws IOException if the data is truncated, not a catalog, or of an unsupported version
+     */
+    public static ArrayList<Seller> read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        Header header = readHeader(in);
+
+        String[] dictionary = new String[header.dictionarySize];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = StringDictionary.CATALOG.intern(in.readUTF());
+        }
+
+        ProductCategory[] categories = new ProductCategory[dictionary.length];
+        for (int i = 0; i < dictionary.length; i++) {
+            categories[i] = ProductCategory.fromString(dictionary[i]);
+        }
+
+        ArrayList<Seller> sellers = new ArrayList<>(header.sellerCount);
+        for (int s = 0; s < header.sellerCount; s++) {
+            Seller seller = new Seller(StringDictionary.CATALOG.intern(in.readUTF()));
+            int storeCount = in.readInt();
+            for (int t = 0; t < storeCount; t++) {
+                String storeName = dictionary[in.readInt()];
+                Store store = new Store(storeName);
+                int productCount = in.readInt();
+                for (int p = 0; p < productCount; p++) {
+                    String name = in.readUTF();
+                    int quantity = in.readInt();
+                    long priceCents = header.version >= 2 ? in.readLong() : Money.fromDouble(in.readDouble());
+                    String description = StringDictionary.CATALOG.intern(in.readUTF());
+                    ProductCategory category = categories[in.readInt()];
+                    if (category == null) {
+                        category = ProductCategory.SHOES; // Same fallback as the text parser
+                    }
+                    store.addProduct(Product.ofCents(name, quantity, priceCents, description, storeName, category));
+                }
+                seller.addStores(store);
+            }
+            sellers.add(seller);
+        }
+        return sellers;
+    }
+
+    private static Header readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != CatalogBinaryWriter.MAGIC) {
+            throw new IOException("Not a binary catalog file");
+        }
+        short version = in.readShort();
+        if (version > CatalogBinaryWriter.FORMAT_VERSION) {
+            throw new IOException("Unsupported catalog format version: " + version);
+        }
+        return new Header(version, in.readInt(), in.readInt(), in.readInt(), in.readInt());
+    }
+}
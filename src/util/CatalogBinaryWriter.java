@@ -0,0 +1,103 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the seller/store/product graph in the compact binary catalog format.
+ *
+ * Layout (big-endian, strings are length-prefixed modified UTF-8):
+ *  - header: magic "HFCT", format version, seller count, store count, product count, dictionary size
+ *  - dictionary: every distinct store and category name, written once
+ *  - per seller: email, store count, then per store: name index, product count, then per product:
+ *    name, quantity, price in cents, description, category index
+ *
+ * Version 1 stored prices as doubles; readers still accept it.
+ *
+ * Product store names are not written; the reader restores them from the enclosing store.
+ */
+public class CatalogBinaryWriter {
+    public static final int MAGIC = 0x48464354; // "HFCT"
+    public static final short FORMAT_VERSION = 2;
+
+    /**
+     * Writes sellers to a binary catalog file, atomically replacing any existing file.
+     * Sellers with an empty email (the placeholder loadMarket appends) are skipped.
+     * @param sellers sellers to write
+     * @param file destination file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(List<Seller> sellers, File file) throws IOException {
+        AtomicFileWriter.write(file, out -> write(sellers, out));
+    }
+
+    /**
+     * Writes sellers in the binary catalog format to a stream, which is flushed but not closed.
+     * @param sellers sellers to write
+     * @param stream destination stream
+     * @throws IOException if the stream cannot be written
+     */
+    public static void write(List<Seller> sellers, OutputStream stream) throws IOException {
+        List<Seller> toWrite = new ArrayList<>();
+        List<String> dictionary = new ArrayList<>();
+        Map<String, Integer> dictionaryIndex = new HashMap<>();
+        int storeCount = 0;
+        int productCount = 0;
+
+        for (Seller seller : sellers) {
+            if (seller.getEmail() == null || seller.getEmail().isEmpty()) {
+                continue;
+            }
+            toWrite.add(seller);
+            for (Store store : seller.getStores()) {
+                storeCount++;
+                intern(store.getName(), dictionary, dictionaryIndex);
+                for (Product product : store.getProducts()) {
+                    productCount++;
+                    intern(product.getCategory().name(), dictionary, dictionaryIndex);
+                }
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeShort(FORMAT_VERSION);
+        out.writeInt(toWrite.size());
+        out.writeInt(storeCount);
+        out.writeInt(productCount);
+        out.writeInt(dictionary.size());
+
+        for (String value : dictionary) {
+            out.writeUTF(value);
+        }
+
+        for (Seller seller : toWrite) {
+            out.writeUTF(seller.getEmail());
+            out.writeInt(seller.getStores().size());
+            for (Store store : seller.getStores()) {
+                out.writeInt(dictionaryIndex.get(store.getName()));
+                out.writeInt(store.getProducts().size());
+                for (Product product : store.getProducts()) {
+                    out.writeUTF(product.getName());
+                    out.writeInt(product.getQuantity());
+                    out.writeLong(product.getPriceCents());
+                    out.writeUTF(product.getDescription());
+                    out.writeInt(dictionaryIndex.get(product.getCategory().name()));
+                }
+            }
+        }
+        out.flush();
+    }
+
+    private static void intern(String value, List<String> dictionary, Map<String, Integer> dictionaryIndex) {
+        if (!dictionaryIndex.containsKey(value)) {
+            dictionaryIndex.put(value, dictionary.size());
+            dictionary.add(value);
+        }
+    }
+}
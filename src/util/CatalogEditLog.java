@@ -0,0 +1,599 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Append-only write-ahead log for seller catalog edits.
+ *
+ * Sellers.txt is the last compacted snapshot; Sellers.log holds one small record per edit made
+ * since then. Readers call {@link #readLines()} to get the snapshot with the log replayed over it,
+ * so an edit only costs one appended line instead of a full rewrite of Sellers.txt.
+ * A background compactor periodically folds the log into a new snapshot.
+ *
+ * Record format (tab-separated, one per line):
+ *  SELLER  email
+ *  STORE   email  store
+ *  ADD     email  store  productCSV
+ *  REMOVE  email  store  productCSV
+ *  EDIT    email  store  oldProductCSV  newProductCSV
+ *
+ * With the sharded layout ({@link ShardedCatalogStore}) there is no log: each record is applied
+ * straight to the seller's own shard, and the snapshot methods read and write the shards.
+ *
+ * A snapshot written from migrated data starts with a "#format-version=N" header line (in the
+ * sharded layout, the manifest does). Readers skip the header; loadMarket trusts it and skips
+ * per-line legacy format detection. Unmarked files are treated as possibly legacy.
+ */
+public final class CatalogEditLog {
+    /** Line format written by this version: every product carries a category. */
+    public static final int FORMAT_VERSION = 2;
+    static final String FORMAT_HEADER_PREFIX = "#format-version=";
+
+    private static final String SEPARATOR = "\t";
+    private static final long COMPACT_INTERVAL_SECONDS = 30;
+    private static final Runnable NO_MUTATION = () -> {};
+
+    private static final Object LOCK = new Object();
+    private static ScheduledExecutorService compactor;
+    private static long snapshotGeneration;
+
+    private CatalogEditLog() {}
+
+    public static void appendSeller(String email) {
+        append("SELLER", NO_MUTATION, email);
+    }
+
+    public static void appendStore(String email, String storeName) {
+        append("STORE", NO_MUTATION, email, storeName);
+    }
+
+    public static void appendAddProduct(String email, String storeName, Product product) {
+        appendAddProduct(email, storeName, product, NO_MUTATION);
+    }
+
+    /**
+     * Applies an in-memory add and logs it as one step, so no snapshot rewrite can fall between
+     * them and pick up the product a second time on replay.
+     * @param mutation adds the product to the in-memory catalog
+     */
+    public static void appendAddProduct(String email, String storeName, Product product, Runnable mutation) {
+        append("ADD", mutation, email, storeName, product.toCSV());
+    }
+
+    public static void appendRemoveProduct(String email, String storeName, Product product) {
+        appendRemoveProduct(email, storeName, product, NO_MUTATION);
+    }
+
+    /**
+     * Applies an in-memory removal and logs it as one step.
+     * @param mutation removes the product from the in-memory catalog
+     */
+    public static void appendRemoveProduct(String email, String storeName, Product product, Runnable mutation) {
+        append("REMOVE", mutation, email, storeName, product.toCSV());
+    }
+
+    public static void appendEditProduct(String email, String storeName, Product oldProduct, Product newProduct) {
+        appendEditProduct(email, storeName, oldProduct, newProduct, NO_MUTATION);
+    }
+
+    /**
+     * Applies an in-memory edit and logs it as one step.
+     * @param mutation replaces the product in the in-memory catalog
+     */
+    public static void appendEditProduct(String email, String storeName, Product oldProduct, Product newProduct, Runnable mutation) {
+        append("EDIT", mutation, email, storeName, oldProduct.toCSV(), newProduct.toCSV());
+    }
+
+    /**
+     * Runs the mutation and appends the record under the same lock that snapshot rewrites
+     * (or, in the sharded layout, shard rewrites) take, so a rewrite sees either both or neither.
+     */
+    private static void append(String type, Runnable mutation, String... fields) {
+        StringBuilder record = new StringBuilder(type);
+        for (String field : fields) {
+            record.append(SEPARATOR).append(flatten(field));
+        }
+        record.append('\n');
+
+        if (ShardedCatalogStore.isEnabled()) {
+            String line = record.substring(0, record.length() - 1);
+            try {
+                ShardedCatalogStore.updateShard(fields[0], lines -> {
+                    mutation.run();
+                    return replay(lines, List.of(line));
+                });
+            } catch (IOException e) {
+                System.out.println("Error writing to the seller shard: " + e.getMessage());
+            }
+            return;
+        }
+
+        synchronized (LOCK) {
+            mutation.run();
+            FileConstants.ensureDataDir();
+            try (FileOutputStream out = new FileOutputStream(FileConstants.SELLERS_LOG_FILE, true)) {
+                out.write(record.toString().getBytes(StandardCharsets.UTF_8));
+                if (FsyncPolicy.current().shouldSync(new File(FileConstants.SELLERS_LOG_FILE))) {
+                    out.getChannel().force(false);
+                }
+            } catch (IOException e) {
+                System.out.println("Error writing to the seller edit log: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Makes a value safe as one field of a tab-separated, one-per-line record: tabs and line
+     * breaks would split the record, so they are flattened to spaces.
+     * @param field value to write
+     * @return the value without tabs or line breaks
+     */
+    static String flatten(String field) {
+        return field.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * @return true if there is a seller catalog to read, in whichever layout is in use
+     */
+    public static boolean catalogExists() {
+        if (ShardedCatalogStore.isEnabled()) {
+            return ShardedCatalogStore.exists();
+        }
+        return new File(FileConstants.SELLERS_FILE).exists();
+    }
+
+    /**
+     * Reads the catalog as it currently stands: the Sellers.txt snapshot with every logged edit
+     * applied. Lines untouched by the log are returned exactly as stored.
+     * @return current seller file lines
+     * @throws IOException if the snapshot or log cannot be read
+     */
+    public static ArrayList<String> readLines() throws IOException {
+        if (ShardedCatalogStore.isEnabled()) {
+            return ShardedCatalogStore.readAll();
+        }
+        return readSingleFileLines();
+    }
+
+    /**
+     * Reads the single-file catalog (Sellers.txt plus log) regardless of layout.
+     * Used by the sharded layout's one-time migration.
+     */
+    static ArrayList<String> readSingleFileLines() throws IOException {
+        synchronized (LOCK) {
+            ArrayList<String> snapshot = readFile(new File(FileConstants.SELLERS_FILE));
+            ArrayList<String> records = readFile(new File(FileConstants.SELLERS_LOG_FILE));
+            if (records.isEmpty()) {
+                return snapshot;
+            }
+            return replay(snapshot, records);
+        }
+    }
+
+    /**
+     * @return format version stamped on the catalog, or 0 if it is unmarked (may hold legacy lines)
+     */
+    public static int formatVersion() {
+        if (ShardedCatalogStore.isEnabled()) {
+            return ShardedCatalogStore.formatVersion();
+        }
+        return singleFileFormatVersion();
+    }
+
+    /**
+     * Stamps the catalog with the current {@link #FORMAT_VERSION} without changing its lines or
+     * the log. Call only once every line is known to be in the current format.
+     * @throws IOException if the catalog cannot be rewritten
+     */
+    public static void stampFormatVersion() throws IOException {
+        if (ShardedCatalogStore.isEnabled()) {
+            ShardedCatalogStore.stampFormatVersion();
+            return;
+        }
+        synchronized (LOCK) {
+            File snapshot = new File(FileConstants.SELLERS_FILE);
+            if (singleFileFormatVersion() == FORMAT_VERSION) {
+                return;
+            }
+            AtomicFileWriter.writeLines(snapshot, stamped(readFile(snapshot), FORMAT_VERSION));
+            snapshotGeneration++;
+        }
+    }
+
+    /**
+     * Replaces the snapshot with the given lines and discards the log, whose edits the
+     * caller's lines already include. The snapshot is swapped in atomically, so a crash
+     * mid-write leaves the previous snapshot and log intact. The lines must be in the current
+     * format; the snapshot is stamped with {@link #FORMAT_VERSION}.
+     * @param lines complete seller file contents
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void writeSnapshot(List<String> lines) throws IOException {
+        if (ShardedCatalogStore.isEnabled()) {
+            ShardedCatalogStore.writeAll(lines);
+            return;
+        }
+        rewriteSnapshot(snapshot -> AtomicFileWriter.writeLines(snapshot, stamped(lines, FORMAT_VERSION)));
+    }
+
+    /**
+     * Writes the snapshot itself.
+     */
+    public interface SnapshotRewrite {
+        void rewrite(File snapshot) throws IOException;
+    }
+
+    /**
+     * Runs a custom snapshot rewrite under the log lock, then discards the log. Used by writers
+     * that reuse parts of the current snapshot and must not race the compactor.
+     * @param rewrite replaces the snapshot file; must include every logged edit
+     * @return {@link #snapshotFingerprint()} of the new snapshot
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static String rewriteSnapshot(SnapshotRewrite rewrite) throws IOException {
+        if (ShardedCatalogStore.isEnabled()) {
+            throw new IOException("Snapshot rewrites are not available with the sharded catalog layout");
+        }
+        synchronized (LOCK) {
+            FileConstants.ensureDataDir();
+            rewrite.rewrite(new File(FileConstants.SELLERS_FILE));
+            snapshotGeneration++;
+            new File(FileConstants.SELLERS_LOG_FILE).delete();
+            return snapshotFingerprint();
+        }
+    }
+
+    /**
+     * Like {@link #writeSnapshot(List)}, but builds the lines while holding the log lock so no
+     * edit can be appended between building the lines and discarding the log.
+     * @param lines builds the complete seller file contents
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void writeSnapshot(Supplier<? extends List<String>> lines) throws IOException {
+        if (ShardedCatalogStore.isEnabled()) {
+            ShardedCatalogStore.writeAll(lines.get());
+            return;
+        }
+        synchronized (LOCK) {
+            writeSnapshot(lines.get());
+        }
+    }
+
+    /**
+     * Folds the log into a new snapshot. Does nothing when the log is empty.
+     * @return number of log records folded
+     */
+    public static int compact() {
+        if (ShardedCatalogStore.isEnabled()) {
+            return 0;
+        }
+        synchronized (LOCK) {
+            try {
+                int records = pendingRecords();
+                if (records > 0) {
+                    // Folding the log does not migrate anything, so keep whatever stamp the snapshot had
+                    int version = singleFileFormatVersion();
+                    ArrayList<String> lines = readLines();
+                    rewriteSnapshot(snapshot -> AtomicFileWriter.writeLines(snapshot, stamped(lines, version)));
+                }
+                return records;
+            } catch (IOException e) {
+                System.err.println("Warning: Unable to compact seller edit log: " + e.getMessage());
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return number of edits waiting in the log
+     */
+    public static int pendingRecords() {
+        if (ShardedCatalogStore.isEnabled()) {
+            return 0;
+        }
+        synchronized (LOCK) {
+            try {
+                return readFile(new File(FileConstants.SELLERS_LOG_FILE)).size();
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Identifies the current on-disk state of the snapshot and log. Changes whenever either
+     * file is written, so callers can cache data derived from {@link #readLines()}. Built only
+     * from the files' own attributes, so it stays comparable across restarts (the snapshot
+     * image stores it); each atomic rewrite swaps in a new file, which changes its file key
+     * even when size and timestamp match.
+     * @return fingerprint string
+     */
+    public static String fingerprint() {
+        if (ShardedCatalogStore.isEnabled()) {
+            return ShardedCatalogStore.fingerprint();
+        }
+        synchronized (LOCK) {
+            return stamp(new File(FileConstants.SELLERS_FILE)) + ":" + stamp(new File(FileConstants.SELLERS_LOG_FILE));
+        }
+    }
+
+    private static String stamp(File file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            return attributes.fileKey() + "/" + attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS) + "/" + attributes.size();
+        } catch (IOException e) {
+            return "-"; // Missing
+        }
+    }
+
+    /**
+     * Identifies the snapshot file alone. Combines the number of snapshot rewrites made by this
+     * process with the file's timestamp and size, so rewrites within one clock tick still differ.
+     * @return fingerprint string
+     */
+    public static String snapshotFingerprint() {
+        if (ShardedCatalogStore.isEnabled()) {
+            return ShardedCatalogStore.fingerprint();
+        }
+        synchronized (LOCK) {
+            File snapshot = new File(FileConstants.SELLERS_FILE);
+            return snapshotGeneration + ":" + snapshot.lastModified() + ":" + snapshot.length();
+        }
+    }
+
+    /**
+     * Starts the background compactor, which folds the log into the snapshot every
+     * {@value #COMPACT_INTERVAL_SECONDS} seconds when there are pending edits.
+     */
+    public static synchronized void startCompactor() {
+        if (compactor != null) {
+            return;
+        }
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "catalog-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(CatalogEditLog::compact,
+            COMPACT_INTERVAL_SECONDS, COMPACT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the background compactor and folds any remaining edits.
+     */
+    public static synchronized void stopCompactor() {
+        if (compactor != null) {
+            compactor.shutdown();
+            try {
+                compactor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            compactor = null;
+        }
+        compact();
+    }
+
+    /**
+     * Reads the version stamp of Sellers.txt regardless of layout.
+     * @return stamped format version, or 0 if the snapshot is missing or unmarked
+     */
+    static int singleFileFormatVersion() {
+        synchronized (LOCK) {
+            return readFormatHeader(new File(FileConstants.SELLERS_FILE));
+        }
+    }
+
+    /**
+     * @return format version from the header on the file's first line, or 0 if it has none
+     */
+    static int readFormatHeader(File file) {
+        if (!file.exists()) {
+            return 0;
+        }
+        try (BufferedReader bfr = new BufferedReader(new FileReader(file))) {
+            String first = bfr.readLine();
+            if (first == null || !isFormatHeader(first)) {
+                return 0;
+            }
+            return Integer.parseInt(first.substring(FORMAT_HEADER_PREFIX.length()).trim());
+        } catch (IOException | NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    static boolean isFormatHeader(String line) {
+        return line.startsWith(FORMAT_HEADER_PREFIX);
+    }
+
+    static String formatHeader(int version) {
+        return FORMAT_HEADER_PREFIX + version;
+    }
+
+    /**
+     * @return the lines with a format header in front, or the lines unchanged if version is 0
+     */
+    static List<String> stamped(List<String> lines, int version) {
+        if (version <= 0) {
+            return lines;
+        }
+        List<String> result = new ArrayList<>(lines.size() + 1);
+        result.add(formatHeader(version));
+        result.addAll(lines);
+        return result;
+    }
+
+    private static ArrayList<String> readFile(File file) throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        if (!file.exists()) {
+            return lines;
+        }
+        try (BufferedReader bfr = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = bfr.readLine()) != null) {
+                if (!isFormatHeader(line)) {
+                    lines.add(line);
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * A seller file line being replayed. Lines stay as raw text until a record touches them.
+     */
+    private static class CatalogLine {
+        final String email;
+        final String storeName;
+        String raw;
+        ArrayList<String> products;
+
+        CatalogLine(String email, String storeName, String raw) {
+            this.email = email;
+            this.storeName = storeName;
+            this.raw = raw;
+        }
+
+        ArrayList<String> products() {
+            if (products == null) {
+                products = new ArrayList<>();
+                if (raw != null) {
+                    String[] fields = DataMigrationService.convertLegacyLineToNewFormat(raw).split(",");
+                    for (int i = 2; i + 5 < fields.length; i += 6) {
+                        products.add(String.join(",", fields[i], fields[i + 1], fields[i + 2], fields[i + 3], fields[i + 4], fields[i + 5]));
+                    }
+                }
+                raw = null;
+            }
+            return products;
+        }
+
+        int indexOfProduct(String productCsv) {
+            String name = productCsv.split(",", 2)[0];
+            ArrayList<String> list = products();
+            for (int i = 0; i < list.size(); i++) {
+                if (list.get(i).split(",", 2)[0].equalsIgnoreCase(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        String render() {
+            if (raw != null) {
+                return raw;
+            }
+            StringBuilder sb = new StringBuilder(email).append(",").append(storeName);
+            for (String product : products) {
+                sb.append(",").append(product);
+            }
+            return sb.toString();
+        }
+    }
+
+    private static ArrayList<String> replay(List<String> snapshot, List<String> records) {
+        Map<String, CatalogLine> lines = new LinkedHashMap<>();
+        Set<String> sellersWithLines = new HashSet<>();
+        int rawCounter = 0;
+
+        for (String line : snapshot) {
+            String[] fields = line.split(",");
+            if (line.trim().isEmpty() || fields.length < 2) {
+                // Blank or seller-only line; keep it in place untouched
+                lines.put("#" + (rawCounter++), new CatalogLine(fields.length > 0 ? fields[0] : "", null, line));
+                if (!line.trim().isEmpty()) {
+                    sellersWithLines.add(fields[0]);
+                }
+                continue;
+            }
+            sellersWithLines.add(fields[0]);
+            String key = storeKey(fields[0], fields[1]);
+            CatalogLine existing = lines.get(key);
+            if (existing == null) {
+                lines.put(key, new CatalogLine(fields[0], fields[1], line));
+            } else {
+                // Same store split across lines: merge, as loadMarket does
+                existing.products().addAll(new CatalogLine(fields[0], fields[1], line).products());
+            }
+        }
+
+        for (String record : records) {
+            String[] fields = record.split(SEPARATOR, -1);
+            if (fields.length < 2) {
+                continue;
+            }
+            String type = fields[0];
+            String email = fields[1];
+
+            if ("SELLER".equals(type)) {
+                if (sellersWithLines.add(email)) {
+                    lines.put("#" + (rawCounter++), new CatalogLine(email, null, email + ","));
+                }
+                continue;
+            }
+            if (fields.length < 3) {
+                continue;
+            }
+
+            String storeName = fields[2];
+            sellersWithLines.add(email);
+            CatalogLine line = lines.computeIfAbsent(storeKey(email, storeName),
+                k -> new CatalogLine(email, storeName, email + "," + storeName));
+
+            switch (type) {
+                case "ADD":
+                    if (fields.length >= 4) {
+                        line.products().add(fields[3]);
+                    }
+                    break;
+                case "REMOVE":
+                    if (fields.length >= 4) {
+                        int index = line.indexOfProduct(fields[3]);
+                        if (index >= 0) {
+                            line.products().remove(index);
+                        }
+                    }
+                    break;
+                case "EDIT":
+                    if (fields.length >= 5) {
+                        int index = line.indexOfProduct(fields[3]);
+                        if (index >= 0) {
+                            line.products().set(index, fields[4]);
+                        } else {
+                            line.products().add(fields[4]);
+                        }
+                    }
+                    break;
+                default:
+                    // STORE: computeIfAbsent above already created the line
+                    break;
+            }
+        }
+
+        ArrayList<String> result = new ArrayList<>(lines.size());
+        for (CatalogLine line : lines.values()) {
+            result.add(line.render());
+        }
+        return result;
+    }
+
+    private static String storeKey(String email, String storeName) {
+        return email + "\u0000" + storeName.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,93 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary image of the whole Seller/Store/Product graph, written at clean shutdown so the next
+ * startup can skip parsing and migrating Sellers.txt.
+ *
+ * Layout: magic "HFSI", image version, fingerprint of the seller catalog the image was taken from
+ * (see {@link CatalogEditLog#fingerprint()}: file keys, mtimes and sizes), CRC32 and length of the
+ * payload, then the payload in the {@link CatalogBinaryWriter} format. The image is only used
+ * when the catalog fingerprint still matches and the checksum verifies; otherwise the caller
+ * falls back to a full parse.
+ */
+public final class CatalogSnapshotImage {
+    public static final int MAGIC = 0x48465349; // "HFSI"
+    public static final short IMAGE_VERSION = 1;
+
+    private CatalogSnapshotImage() {}
+
+    /**
+     * Writes the image for the current catalog, replacing any previous one. Call only when the
+     * sellers match the catalog on disk, i.e. after pending changes have been persisted.
+     * @param sellers every seller in the marketplace
+     */
+    public static void save(List<Seller> sellers) {
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            CatalogBinaryWriter.write(sellers, payload);
+            byte[] bytes = payload.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            String fingerprint = CatalogEditLog.fingerprint();
+
+            AtomicFileWriter.write(new File(FileConstants.SELLERS_IMAGE_FILE), stream -> {
+                DataOutputStream out = new DataOutputStream(stream);
+                out.writeInt(MAGIC);
+                out.writeShort(IMAGE_VERSION);
+                out.writeUTF(fingerprint);
+                out.writeLong(crc.getValue());
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                out.flush();
+            });
+        } catch (IOException e) {
+            System.err.println("Warning: Unable to write marketplace snapshot image: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the image if it is still valid for the catalog on disk.
+     * @return sellers from the image, or null if there is no usable image
+     */
+    public static ArrayList<Seller> load() {
+        File file = new File(FileConstants.SELLERS_IMAGE_FILE);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            // One sequential read of the whole image, then parse from memory
+            byte[] image = Files.readAllBytes(file.toPath());
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(image));
+            if (in.readInt() != MAGIC || in.readShort() != IMAGE_VERSION) {
+                return null;
+            }
+            if (!in.readUTF().equals(CatalogEditLog.fingerprint())) {
+                return null; // Catalog changed since the image was taken
+            }
+            long expectedCrc = in.readLong();
+            int length = in.readInt();
+            int offset = image.length - in.available();
+            if (length != in.available()) {
+                return null;
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(image, offset, length);
+            if (crc.getValue() != expectedCrc) {
+                return null;
+            }
+            return CatalogBinaryReader.read(new ByteArrayInputStream(image, offset, length));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -5,29 +5,35 @@ import java.sql.*;
  * for the marketplace application database migration.
  */
 public class DatabaseManager {
-    private static final String DB_URL = "jdbc:h2:./marketplace";
+    // The database stays open while the JVM runs; otherwise each DAO closing the last open
+    // connection closes (and compacts) the whole database, and the next call reopens it
+    private static final String DB_URL = "jdbc:h2:./marketplace;DB_CLOSE_DELAY=-1";
     private static final String DB_USER = "sa";
     private static final String DB_PASSWORD = "";
     
-    private static Connection connection = null;
+    // One cached connection per thread: DAOs close the connection they are given, which must not
+    // close it under another session's statements
+    private static final ThreadLocal<Connection> connection = new ThreadLocal<>();
     
     /**
-     * Gets a connection to the H2 database
+     * Gets the calling thread's connection to the H2 database, opening it if needed
      * @return Connection object for database operations
      * @throws SQLException if connection fails
      */
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
+        Connection current = connection.get();
+        if (current == null || current.isClosed()) {
             try {
                 // Load H2 driver
                 Class.forName("org.h2.Driver");
-                connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+                current = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+                connection.set(current);
                 System.out.println("Database connection established successfully.");
             } catch (ClassNotFoundException e) {
                 throw new SQLException("H2 Driver not found", e);
             }
         }
-        return connection;
+        return current;
     }
     
     /**
@@ -123,6 +129,16 @@ public class DatabaseManager {
             stmt.execute(createChangeLogTable);
             System.out.println("ChangeLog table created/verified successfully.");
             
+            // Create StockJournalCheckpoint table: last stock journal record applied to Products
+            String createStockCheckpointTable = """
+                CREATE TABLE IF NOT EXISTS StockJournalCheckpoint (
+                    journal_id VARCHAR(36) PRIMARY KEY,
+                    last_seq BIGINT NOT NULL
+                )
+                """;
+            stmt.execute(createStockCheckpointTable);
+            System.out.println("StockJournalCheckpoint table created/verified successfully.");
+            
             System.out.println("All database tables initialized successfully.");
             
         } catch (SQLException e) {
@@ -132,13 +148,14 @@ public class DatabaseManager {
     }
     
     /**
-     * Closes the database connection and performs cleanup
+     * Closes the calling thread's database connection and performs cleanup
      * @throws SQLException if connection close fails
      */
     public static void closeConnection() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
-            connection.close();
-            connection = null;
+        Connection current = connection.get();
+        connection.remove();
+        if (current != null && !current.isClosed()) {
+            current.close();
             System.out.println("Database connection closed successfully.");
         }
     }
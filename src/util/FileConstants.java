@@ -10,11 +10,19 @@ import java.nio.file.StandardCopyOption;
  *  - We store the canonical project data in ./data/
  *  - If legacy files (./Sellers.txt, ./Accounts.txt) exist but ./data/* do not, we copy them over.
  *  - We do NOT delete legacy files, so older code still works.
+ *  - The data directory can be redirected with -Dmarketplace.dataDir=... (used by benchmarks
+ *    so they never touch the real catalog).
  */
 public final class FileConstants {
-    public static final String DATA_DIR = "data";
+    public static final String DATA_DIR = System.getProperty("marketplace.dataDir", "data");
     public static final String SELLERS_FILE = DATA_DIR + File.separator + "Sellers.txt";
     public static final String ACCOUNTS_FILE = DATA_DIR + File.separator + "Accounts.txt";
+    public static final String SELLERS_LOG_FILE = DATA_DIR + File.separator + "Sellers.log";
+    public static final String SELLERS_SHARD_DIR = DATA_DIR + File.separator + "sellers";
+    public static final String SELLERS_BINARY_FILE = DATA_DIR + File.separator + "Sellers.bin";
+    public static final String SELLERS_IMAGE_FILE = DATA_DIR + File.separator + "Sellers.image";
+    public static final String STARTUP_PROFILE_FILE = DATA_DIR + File.separator + "startup-profile.json";
+    public static final String STOCK_JOURNAL_FILE = DATA_DIR + File.separator + "Stock.journal";
 
     private FileConstants() {}
 
@@ -0,0 +1,148 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When data files are forced to disk after a write.
+ *
+ * Chosen with -Dmarketplace.fsync=always|interval|never (default: always). With INTERVAL,
+ * at most one write per -Dmarketplace.fsync.intervalMs milliseconds (default 1000) pays for an
+ * fsync. Files written in between are remembered, and a background "fsync-interval" thread
+ * syncs them once per interval, so a write left at the end of a burst still reaches the disk:
+ * a crash or power loss loses at most about one interval of writes. {@link #syncPending()}
+ * syncs whatever is left at shutdown.
+ */
+public enum FsyncPolicy {
+    ALWAYS,
+    INTERVAL,
+    NEVER;
+
+    private static final long INTERVAL_MILLIS = Long.getLong("marketplace.fsync.intervalMs", 1000L);
+
+    private static volatile FsyncPolicy current = fromString(System.getProperty("marketplace.fsync"));
+    private static long lastSyncMillis;
+    // Files written under INTERVAL without an fsync; guarded by FsyncPolicy.class
+    private static final Set<File> unsynced = new LinkedHashSet<>();
+    private static ScheduledExecutorService syncer;
+
+    /**
+     * @return the policy in effect
+     */
+    public static FsyncPolicy current() {
+        return current;
+    }
+
+    /**
+     * Overrides the configured policy, e.g. for benchmarks comparing policies.
+     * @param policy policy to use from now on
+     */
+    public static void setCurrent(FsyncPolicy policy) {
+        current = policy;
+    }
+
+    /**
+     * Parses a policy name, case-insensitively.
+     * @param value policy name, may be null
+     * @return matching policy, or ALWAYS if the value is missing or unknown
+     */
+    public static FsyncPolicy fromString(String value) {
+        if (value != null) {
+            for (FsyncPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(value.trim())) {
+                    return policy;
+                }
+            }
+        }
+        return ALWAYS;
+    }
+
+    /**
+     * Decides whether the write about to complete should be fsynced. For INTERVAL this also
+     * records the sync, so call it once per write; a write that is not synced now is left to
+     * the background syncer.
+     * @param file file being written, as it will be named once the write completes
+     * @return true if the caller should force its data to disk
+     */
+    public boolean shouldSync(File file) {
+        switch (this) {
+            case ALWAYS:
+                return true;
+            case INTERVAL:
+                synchronized (FsyncPolicy.class) {
+                    long now = System.currentTimeMillis();
+                    if (now - lastSyncMillis >= INTERVAL_MILLIS) {
+                        lastSyncMillis = now;
+                        unsynced.remove(file);
+                        return true;
+                    }
+                    unsynced.add(file);
+                    startSyncer();
+                    return false;
+                }
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Forces every file written since its last fsync to disk, along with its directory entry.
+     * Files deleted in the meantime are skipped.
+     * @return number of files synced
+     */
+    public static int syncPending() {
+        File[] files;
+        synchronized (FsyncPolicy.class) {
+            files = unsynced.toArray(new File[0]);
+            unsynced.clear();
+        }
+        int synced = 0;
+        for (File file : files) {
+            if (force(file.toPath(), StandardOpenOption.WRITE)) {
+                synced++;
+                File dir = file.getAbsoluteFile().getParentFile();
+                if (dir != null) {
+                    force(dir.toPath(), StandardOpenOption.READ);
+                }
+            }
+        }
+        return synced;
+    }
+
+    /**
+     * @return number of files waiting for the background syncer
+     */
+    public static int pendingSyncs() {
+        synchronized (FsyncPolicy.class) {
+            return unsynced.size();
+        }
+    }
+
+    // Caller holds FsyncPolicy.class
+    private static void startSyncer() {
+        if (syncer != null) {
+            return;
+        }
+        syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "fsync-interval");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(FsyncPolicy::syncPending, INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static boolean force(Path path, StandardOpenOption mode) {
+        try (FileChannel channel = FileChannel.open(path, mode)) {
+            channel.force(true);
+            return true;
+        } catch (IOException e) {
+            return false; // Deleted since, or a directory the platform cannot sync
+        }
+    }
+}
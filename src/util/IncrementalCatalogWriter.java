@@ -0,0 +1,360 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the in-memory marketplace to Sellers.txt, re-serializing only stores that changed.
+ *
+ * Each Store remembers the byte range of its line in the current snapshot. When the marketplace
+ * is persisted, clean stores are copied from the old snapshot with FileChannel.transferTo
+ * (adjacent clean lines in one transfer) and only dirty stores go through Product.toCSV.
+ * The result is byte-for-byte what a full rewrite would produce, including the format header. If the snapshot changed
+ * behind our back (compaction, another process) the ranges are stale and every store is
+ * re-serialized.
+ *
+ * With the sharded layout the unit of reuse is the seller's shard: only sellers with a dirty
+ * store (or store list) have their shard rewritten.
+ */
+public final class IncrementalCatalogWriter {
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    // Snapshot fingerprint the stores' line ranges refer to; null until indexed or written
+    private static String indexedFingerprint;
+
+    private IncrementalCatalogWriter() {}
+
+    /**
+     * Outcome of one persist.
+     */
+    public static class Result {
+        public final int storesSerialized;
+        public final int storesCopied;    // reused as-is: copied from the old snapshot, or left in an untouched shard
+        public final long bytesSerialized;
+        public final long bytesCopied;
+        public final boolean skipped;
+
+        Result(int storesSerialized, int storesCopied, long bytesSerialized, long bytesCopied, boolean skipped) {
+            this.storesSerialized = storesSerialized;
+            this.storesCopied = storesCopied;
+            this.bytesSerialized = bytesSerialized;
+            this.bytesCopied = bytesCopied;
+            this.skipped = skipped;
+        }
+
+        @Override
+        public String toString() {
+            if (skipped) {
+                return "Persist skipped: nothing changed";
+            }
+            return String.format("Persist: %d stores serialized (%d bytes), %d stores copied (%d bytes)",
+                storesSerialized, bytesSerialized, storesCopied, bytesCopied);
+        }
+    }
+
+    /**
+     * Serializes one store line the way Sellers.txt stores it.
+     * @param seller owning seller
+     * @param store store to serialize
+     * @return seller file line, without line separator
+     */
+    public static String renderLine(Seller seller, Store store) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(seller.getEmail()).append(",").append(store.getName());
+        for (Product product : store.getProducts()) {
+            sb.append(",").append(product.toCSV());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Matches freshly loaded stores to their lines in the current snapshot and records each line's
+     * byte range. Only lines that are byte-identical to what the store would serialize to are
+     * recorded; everything else stays dirty and is re-serialized on the first persist.
+     * Does nothing while the edit log has pending records, since the snapshot then lags memory.
+     * @param sellers loaded sellers
+     * @return number of stores indexed
+     */
+    public static synchronized int index(List<Seller> sellers) {
+        if (ShardedCatalogStore.isEnabled()) {
+            // Every seller's shard is rewritten whole, so loaded stores only need to be marked clean
+            int indexed = 0;
+            for (Seller seller : sellers) {
+                for (Store store : seller.getStores()) {
+                    store.markClean(store.getModificationCount());
+                    indexed++;
+                }
+                seller.markClean(seller.getModificationCount());
+            }
+            return indexed;
+        }
+
+        indexedFingerprint = null;
+        String fingerprint = CatalogEditLog.snapshotFingerprint();
+        if (CatalogEditLog.pendingRecords() > 0) {
+            return 0;
+        }
+
+        byte[] data;
+        try {
+            data = Files.readAllBytes(new File(FileConstants.SELLERS_FILE).toPath());
+        } catch (IOException e) {
+            return 0;
+        }
+
+        Map<String, Seller> owners = new HashMap<>();
+        Map<String, Store> stores = new HashMap<>();
+        for (Seller seller : sellers) {
+            for (Store store : seller.getStores()) {
+                String key = key(seller.getEmail(), store.getName());
+                owners.put(key, seller);
+                stores.put(key, store);
+            }
+        }
+
+        Set<String> seen = new HashSet<>();
+        int indexed = 0;
+        int start = 0;
+        while (start < data.length) {
+            int end = start;
+            while (end < data.length && data[end] != '\n') {
+                end++;
+            }
+            int contentEnd = end > start && data[end - 1] == '\r' ? end - 1 : end;
+            boolean terminated = end < data.length
+                && Arrays.equals(data, contentEnd, end + 1, LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+
+            String line = new String(data, start, contentEnd - start, StandardCharsets.UTF_8);
+            String[] fields = line.split(",", 3);
+            if (fields.length >= 2) {
+                String key = key(fields[0], fields[1]);
+                Store store = stores.get(key);
+                if (store != null && !seen.add(key)) {
+                    // Store split across several lines; a full re-serialization merges them
+                    store.markDirty();
+                } else if (store != null && terminated) {
+                    long version = store.getModificationCount();
+                    if (line.equals(renderLine(owners.get(key), store))) {
+                        store.setLineRange(start, contentEnd - start, version);
+                        indexed++;
+                    }
+                }
+            }
+            start = end + 1;
+        }
+
+        for (Seller seller : sellers) {
+            seller.markClean(seller.getModificationCount());
+        }
+        if (fingerprint.equals(CatalogEditLog.snapshotFingerprint())) {
+            indexedFingerprint = fingerprint;
+        }
+        return indexed;
+    }
+
+    /**
+     * Accepts sellers that were loaded from somewhere other than the snapshot text (the startup
+     * image) but are known to match it. Line ranges are unknown, so nothing is written until a
+     * store changes, and then every store is re-serialized once.
+     * @param sellers loaded sellers
+     */
+    public static synchronized void adopt(List<Seller> sellers) {
+        for (Seller seller : sellers) {
+            for (Store store : seller.getStores()) {
+                store.markClean(store.getModificationCount());
+            }
+            seller.markClean(seller.getModificationCount());
+        }
+        indexedFingerprint = ShardedCatalogStore.isEnabled() || CatalogEditLog.pendingRecords() > 0
+            ? null : CatalogEditLog.snapshotFingerprint();
+    }
+
+    /**
+     * Persists the sellers to Sellers.txt, folding the edit log. Clean stores are copied from the
+     * current snapshot; dirty ones are re-serialized.
+     * @param sellers every seller in the marketplace
+     * @return what was written
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static synchronized Result write(List<Seller> sellers) throws IOException {
+        if (ShardedCatalogStore.isEnabled()) {
+            return writeShards(sellers);
+        }
+        int[] counts = new int[2];
+        long[] bytes = new long[2];
+        List<Store> written = new ArrayList<>();
+        List<long[]> ranges = new ArrayList<>();
+        long[] sellerVersions = new long[sellers.size()];
+        boolean[] skipped = new boolean[1];
+
+        String fingerprint = CatalogEditLog.rewriteSnapshot(snapshot -> {
+            boolean reuse = indexedFingerprint != null && indexedFingerprint.equals(CatalogEditLog.snapshotFingerprint());
+            if (reuse && CatalogEditLog.pendingRecords() == 0 && !anyDirty(sellers)) {
+                skipped[0] = true;
+                return;
+            }
+
+            try (FileChannel source = reuse ? FileChannel.open(snapshot.toPath(), StandardOpenOption.READ) : null) {
+                AtomicFileWriter.write(snapshot, out -> {
+                    FileChannel target = out.getChannel();
+                    ByteArrayOutputStream pending = new ByteArrayOutputStream();
+                    long position = 0;
+                    long runStart = -1;
+                    long runEnd = -1;
+
+                    // Memory is always in the current line format, so the new snapshot is stamped with it
+                    byte[] header = CatalogEditLog.formatHeader(CatalogEditLog.FORMAT_VERSION).getBytes(StandardCharsets.UTF_8);
+                    pending.write(header);
+                    pending.write(LINE_SEPARATOR);
+                    position += header.length + LINE_SEPARATOR.length;
+
+                    for (int s = 0; s < sellers.size(); s++) {
+                        Seller seller = sellers.get(s);
+                        // Versions are read before rendering: a change that lands after it keeps the store dirty
+                        sellerVersions[s] = seller.getModificationCount();
+                        for (Store store : seller.getStores()) {
+                            long newOffset = position;
+                            long version = store.getModificationCount();
+                            if (reuse && !store.isDirty() && store.getLineOffset() >= 0) {
+                                long start = store.getLineOffset();
+                                long length = store.getLineLength() + (long) LINE_SEPARATOR.length;
+                                if (runStart >= 0 && start == runEnd) {
+                                    runEnd += length;
+                                } else {
+                                    flush(pending, out);
+                                    transfer(source, runStart, runEnd, target);
+                                    runStart = start;
+                                    runEnd = start + length;
+                                }
+                                position += length;
+                                counts[1]++;
+                                bytes[1] += length;
+                            } else {
+                                if (runStart >= 0) {
+                                    transfer(source, runStart, runEnd, target);
+                                    runStart = -1;
+                                }
+                                byte[] line = renderLine(seller, store).getBytes(StandardCharsets.UTF_8);
+                                pending.write(line);
+                                pending.write(LINE_SEPARATOR);
+                                position += line.length + LINE_SEPARATOR.length;
+                                counts[0]++;
+                                bytes[0] += line.length + LINE_SEPARATOR.length;
+                            }
+                            written.add(store);
+                            ranges.add(new long[] {newOffset, position - newOffset - LINE_SEPARATOR.length, version});
+                        }
+                    }
+                    flush(pending, out);
+                    transfer(source, runStart, runEnd, target);
+                });
+            }
+        });
+
+        if (!skipped[0]) {
+            for (int i = 0; i < written.size(); i++) {
+                long[] range = ranges.get(i);
+                written.get(i).setLineRange(range[0], (int) range[1], range[2]);
+            }
+            for (int s = 0; s < sellers.size(); s++) {
+                sellers.get(s).markClean(sellerVersions[s]);
+            }
+        }
+        indexedFingerprint = fingerprint;
+        return new Result(counts[0], counts[1], bytes[0], bytes[1], skipped[0]);
+    }
+
+    private static Result writeShards(List<Seller> sellers) throws IOException {
+        int serialized = 0;
+        int kept = 0;
+        long bytes = 0;
+        boolean wrote = false;
+        for (Seller seller : sellers) {
+            if (seller.getEmail() == null || seller.getEmail().isEmpty()) {
+                continue; // loadMarket's placeholder seller
+            }
+            if (!seller.isDirty()) {
+                kept += seller.getStores().size();
+                continue;
+            }
+
+            // Rendered under the shard's lock, which logged edits also apply their change under.
+            // Versions are read before rendering: a change that lands after it keeps the store dirty.
+            long[] rendered = new long[2];
+            long[] sellerVersion = new long[1];
+            Map<Store, Long> versions = new IdentityHashMap<>();
+            ShardedCatalogStore.updateShard(seller.getEmail(), current -> {
+                List<String> lines = new ArrayList<>();
+                sellerVersion[0] = seller.getModificationCount();
+                for (Store store : seller.getStores()) {
+                    versions.put(store, store.getModificationCount());
+                    String line = renderLine(seller, store);
+                    lines.add(line);
+                    rendered[0] += line.getBytes(StandardCharsets.UTF_8).length + LINE_SEPARATOR.length;
+                    rendered[1]++;
+                }
+                if (lines.isEmpty()) {
+                    lines.add(seller.getEmail() + ","); // Keep store-less sellers known
+                }
+                return lines;
+            });
+            bytes += rendered[0];
+            serialized += rendered[1];
+            wrote = true;
+
+            for (Map.Entry<Store, Long> version : versions.entrySet()) {
+                version.getKey().markClean(version.getValue());
+            }
+            seller.markClean(sellerVersion[0]);
+        }
+        return new Result(serialized, kept, bytes, 0, !wrote);
+    }
+
+    private static boolean anyDirty(List<Seller> sellers) {
+        for (Seller seller : sellers) {
+            // The empty-email placeholder has no lines, so it never needs writing
+            if (seller.isDirty() && !seller.getEmail().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void flush(ByteArrayOutputStream pending, FileOutputStream out) throws IOException {
+        if (pending.size() > 0) {
+            pending.writeTo(out);
+            pending.reset();
+        }
+    }
+
+    private static void transfer(FileChannel source, long start, long end, FileChannel target) throws IOException {
+        if (start < 0) {
+            return;
+        }
+        long done = 0;
+        while (done < end - start) {
+            long count = source.transferTo(start + done, end - start - done, target);
+            if (count <= 0) {
+                throw new IOException("Seller snapshot changed while it was being copied");
+            }
+            done += count;
+        }
+    }
+
+    private static String key(String email, String storeName) {
+        return email + "\u0000" + storeName.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,213 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * A System.out replacement that sends each thread's output to that thread's session.
+ *
+ * The menus, models and services print with System.out. In server mode every client session
+ * runs on its own thread, so {@link #install} puts this stream in place of System.out and each
+ * session thread {@link #bind}s its socket stream; threads without a session (startup,
+ * background writers) keep printing to the original console. Every call is forwarded to the
+ * thread's own stream, so a slow client never holds up another session's output.
+ */
+public class SessionConsole extends PrintStream {
+    private static final ThreadLocal<PrintStream> SESSION = new ThreadLocal<>();
+    private static SessionConsole installed;
+
+    private final PrintStream console;
+
+    private SessionConsole(PrintStream console) {
+        super(OutputStream.nullOutputStream());
+        this.console = console;
+    }
+
+    /**
+     * Replaces System.out with the routing stream, once.
+     */
+    public static synchronized void install() {
+        if (installed == null) {
+            installed = new SessionConsole(System.out);
+            System.setOut(installed);
+        }
+    }
+
+    /**
+     * Routes the calling thread's System.out to the given stream.
+     * @param out session output, or null to go back to the console
+     */
+    public static void bind(PrintStream out) {
+        if (out == null) {
+            SESSION.remove();
+        } else {
+            SESSION.set(out);
+        }
+    }
+
+    private PrintStream current() {
+        PrintStream out = SESSION.get();
+        return out != null ? out : console;
+    }
+
+    @Override
+    public void flush() {
+        current().flush();
+    }
+
+    @Override
+    public void close() {
+        current().close();
+    }
+
+    @Override
+    public boolean checkError() {
+        return current().checkError();
+    }
+
+    @Override
+    public void write(int b) {
+        current().write(b);
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) {
+        current().write(buf, off, len);
+    }
+
+    @Override
+    public void print(boolean b) {
+        current().print(b);
+    }
+
+    @Override
+    public void print(char c) {
+        current().print(c);
+    }
+
+    @Override
+    public void print(int i) {
+        current().print(i);
+    }
+
+    @Override
+    public void print(long l) {
+        current().print(l);
+    }
+
+    @Override
+    public void print(float f) {
+        current().print(f);
+    }
+
+    @Override
+    public void print(double d) {
+        current().print(d);
+    }
+
+    @Override
+    public void print(char[] s) {
+        current().print(s);
+    }
+
+    @Override
+    public void print(String s) {
+        current().print(s);
+    }
+
+    @Override
+    public void print(Object obj) {
+        current().print(obj);
+    }
+
+    @Override
+    public void println() {
+        current().println();
+    }
+
+    @Override
+    public void println(boolean x) {
+        current().println(x);
+    }
+
+    @Override
+    public void println(char x) {
+        current().println(x);
+    }
+
+    @Override
+    public void println(int x) {
+        current().println(x);
+    }
+
+    @Override
+    public void println(long x) {
+        current().println(x);
+    }
+
+    @Override
+    public void println(float x) {
+        current().println(x);
+    }
+
+    @Override
+    public void println(double x) {
+        current().println(x);
+    }
+
+    @Override
+    public void println(char[] x) {
+        current().println(x);
+    }
+
+    @Override
+    public void println(String x) {
+        current().println(x);
+    }
+
+    @Override
+    public void println(Object x) {
+        current().println(x);
+    }
+
+    @Override
+    public PrintStream printf(String format, Object... args) {
+        current().printf(format, args);
+        return this;
+    }
+
+    @Override
+    public PrintStream printf(Locale l, String format, Object... args) {
+        current().printf(l, format, args);
+        return this;
+    }
+
+    @Override
+    public PrintStream format(String format, Object... args) {
+        current().format(format, args);
+        return this;
+    }
+
+    @Override
+    public PrintStream format(Locale l, String format, Object... args) {
+        current().format(l, format, args);
+        return this;
+    }
+
+    @Override
+    public PrintStream append(CharSequence csq) {
+        current().append(csq);
+        return this;
+    }
+
+    @Override
+    public PrintStream append(CharSequence csq, int start, int end) {
+        current().append(csq, start, end);
+        return this;
+    }
+
+    @Override
+    public PrintStream append(char c) {
+        current().append(c);
+        return this;
+    }
+}
@@ -0,0 +1,305 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Per-seller sharded layout for the seller catalog.
+ *
+ * Enabled with -Dmarketplace.catalog.layout=sharded. Each seller's lines (same format as
+ * Sellers.txt) live in their own file under data/sellers/, and data/sellers/manifest.txt lists
+ * "email<TAB>shard file" in catalog order. A seller's edits rewrite only that seller's shard,
+ * so edits for different sellers never contend on one file. Loading reads shards in parallel.
+ *
+ * The first access in sharded mode migrates an existing Sellers.txt (plus pending edit log)
+ * into shards. Sellers.txt itself is left in place, untouched, like the other legacy files.
+ * The catalog's format version header lives at the top of the manifest.
+ */
+public final class ShardedCatalogStore {
+    public static final String LAYOUT_PROPERTY = "marketplace.catalog.layout";
+    private static final String MANIFEST_SEPARATOR = "\t";
+    private static final int LOCK_STRIPES = 64;
+
+    // Shard edits share the read lock (plus a per-seller stripe); whole-catalog rewrites take the write lock
+    private static final ReentrantReadWriteLock LAYOUT_LOCK = new ReentrantReadWriteLock();
+    private static final Object[] STRIPES = new Object[LOCK_STRIPES];
+    private static final Object MANIFEST_LOCK = new Object();
+
+    static {
+        for (int i = 0; i < STRIPES.length; i++) {
+            STRIPES[i] = new Object();
+        }
+    }
+
+    private ShardedCatalogStore() {}
+
+    /**
+     * @return true if the catalog uses the sharded layout
+     */
+    public static boolean isEnabled() {
+        return "sharded".equalsIgnoreCase(System.getProperty(LAYOUT_PROPERTY, "single").trim());
+    }
+
+    /**
+     * @return true if a sharded catalog exists (migrating Sellers.txt first if needed)
+     */
+    public static boolean exists() {
+        migrateIfNeeded();
+        return manifestFile().exists();
+    }
+
+    /**
+     * Reads every shard, in parallel, and returns their lines in manifest order.
+     * @return all seller catalog lines
+     * @throws IOException if the manifest or a shard cannot be read
+     */
+    public static ArrayList<String> readAll() throws IOException {
+        migrateIfNeeded();
+        LAYOUT_LOCK.readLock().lock();
+        try {
+            List<String> shards = new ArrayList<>(readManifest().values());
+            List<ArrayList<String>> contents;
+            try {
+                contents = shards.parallelStream()
+                    .map(name -> {
+                        try {
+                            return readFile(new File(shardDir(), name));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .collect(Collectors.toList());
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            ArrayList<String> lines = new ArrayList<>();
+            for (ArrayList<String> shard : contents) {
+                lines.addAll(shard);
+            }
+            return lines;
+        } finally {
+            LAYOUT_LOCK.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads, transforms and atomically rewrites one seller's shard. Only that seller's file
+     * (and, for a new seller, the manifest) is touched.
+     * @param email seller whose shard to update
+     * @param update maps the shard's current lines to its new lines
+     * @throws IOException if the shard cannot be read or written
+     */
+    public static void updateShard(String email, UnaryOperator<List<String>> update) throws IOException {
+        migrateIfNeeded();
+        LAYOUT_LOCK.readLock().lock();
+        try {
+            synchronized (STRIPES[Math.floorMod(email.hashCode(), LOCK_STRIPES)]) {
+                File shard = new File(shardDir(), shardName(email));
+                writeShard(email, update.apply(readFile(shard)));
+            }
+        } finally {
+            LAYOUT_LOCK.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole catalog, regrouping the lines by seller. Shards of sellers that no
+     * longer appear are deleted.
+     * @param lines complete catalog, in the current Sellers.txt line format
+     * @throws IOException if a shard or the manifest cannot be written
+     */
+    public static void writeAll(List<String> lines) throws IOException {
+        writeAll(lines, CatalogEditLog.FORMAT_VERSION);
+    }
+
+    private static void writeAll(List<String> lines, int formatVersion) throws IOException {
+        LAYOUT_LOCK.writeLock().lock();
+        try {
+            Map<String, List<String>> bySeller = new LinkedHashMap<>();
+            for (String line : lines) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                bySeller.computeIfAbsent(line.split(",", 2)[0], k -> new ArrayList<>()).add(line);
+            }
+
+            Map<String, String> manifest = new LinkedHashMap<>();
+            for (Map.Entry<String, List<String>> entry : bySeller.entrySet()) {
+                String name = shardName(entry.getKey());
+                AtomicFileWriter.writeLines(new File(shardDir(), name), entry.getValue());
+                manifest.put(entry.getKey(), name);
+            }
+
+            synchronized (MANIFEST_LOCK) {
+                Map<String, String> previous = readManifest();
+                writeManifest(manifest, formatVersion);
+                for (String name : previous.values()) {
+                    if (!manifest.containsValue(name)) {
+                        new File(shardDir(), name).delete();
+                    }
+                }
+            }
+        } finally {
+            LAYOUT_LOCK.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return format version stamped on the manifest, or 0 if it is unmarked
+     */
+    public static int formatVersion() {
+        migrateIfNeeded();
+        return CatalogEditLog.readFormatHeader(manifestFile());
+    }
+
+    /**
+     * Stamps the manifest with the current format version; shards are not touched.
+     * @throws IOException if the manifest cannot be written
+     */
+    public static void stampFormatVersion() throws IOException {
+        synchronized (MANIFEST_LOCK) {
+            writeManifest(readManifest(), CatalogEditLog.FORMAT_VERSION);
+        }
+    }
+
+    /**
+     * Identifies the current on-disk state of the sharded catalog from the timestamps and sizes
+     * of the manifest and every shard, so it stays comparable across restarts.
+     * @return fingerprint string
+     */
+    public static String fingerprint() {
+        long hash = stamp(manifestFile());
+        try {
+            for (String name : readManifest().values()) {
+                hash = hash * 31 + stamp(new File(shardDir(), name));
+            }
+        } catch (IOException e) {
+            // Unreadable manifest; the manifest stamp alone still changes with it
+        }
+        return "sharded:" + Long.toHexString(hash);
+    }
+
+    private static long stamp(File file) {
+        try {
+            return Files.getLastModifiedTime(file.toPath()).to(TimeUnit.NANOSECONDS) * 31 + file.length();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return number of shard files listed in the manifest
+     */
+    public static int shardCount() {
+        try {
+            return readManifest().size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void writeShard(String email, List<String> lines) throws IOException {
+        String name = shardName(email);
+        AtomicFileWriter.writeLines(new File(shardDir(), name), lines);
+
+        synchronized (MANIFEST_LOCK) {
+            Map<String, String> manifest = readManifest();
+            if (!manifest.containsKey(email)) {
+                manifest.put(email, name);
+                writeManifest(manifest, CatalogEditLog.readFormatHeader(manifestFile()));
+            }
+        }
+    }
+
+    /**
+     * Moves an existing single-file catalog into shards the first time sharded mode is used.
+     */
+    private static void migrateIfNeeded() {
+        if (manifestFile().exists()) {
+            return;
+        }
+        LAYOUT_LOCK.writeLock().lock();
+        try {
+            if (manifestFile().exists()) {
+                return;
+            }
+            ArrayList<String> lines = CatalogEditLog.readSingleFileLines();
+            writeAll(lines, CatalogEditLog.singleFileFormatVersion());
+            System.out.println("Migrated seller catalog into " + shardCount() + " per-seller files under " + shardDir().getPath());
+        } catch (IOException e) {
+            System.err.println("Warning: Unable to migrate seller catalog to sharded layout: " + e.getMessage());
+        } finally {
+            LAYOUT_LOCK.writeLock().unlock();
+        }
+    }
+
+    private static Map<String, String> readManifest() throws IOException {
+        Map<String, String> manifest = new LinkedHashMap<>();
+        for (String line : readFile(manifestFile())) {
+            String[] fields = line.split(MANIFEST_SEPARATOR, 2);
+            if (fields.length == 2) {
+                manifest.put(fields[0], fields[1]);
+            }
+        }
+        return manifest;
+    }
+
+    private static void writeManifest(Map<String, String> manifest, int formatVersion) throws IOException {
+        List<String> lines = new ArrayList<>(manifest.size() + 1);
+        if (formatVersion > 0) {
+            lines.add(CatalogEditLog.formatHeader(formatVersion));
+        }
+        for (Map.Entry<String, String> entry : manifest.entrySet()) {
+            lines.add(entry.getKey() + MANIFEST_SEPARATOR + entry.getValue());
+        }
+        AtomicFileWriter.writeLines(manifestFile(), lines);
+    }
+
+    /**
+     * Derives a file name from the email: readable characters kept, the rest replaced, and the
+     * email's hash appended so distinct emails do not end up sharing a shard.
+     */
+    static String shardName(String email) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < email.length() && sb.length() < 60; i++) {
+            char c = email.charAt(i);
+            sb.append(Character.isLetterOrDigit(c) || c == '.' || c == '-' || c == '@' ? c : '_');
+        }
+        return sb + "-" + Integer.toHexString(email.hashCode()) + ".txt";
+    }
+
+    private static File shardDir() {
+        return new File(FileConstants.SELLERS_SHARD_DIR);
+    }
+
+    private static File manifestFile() {
+        return new File(FileConstants.SELLERS_SHARD_DIR, "manifest.txt");
+    }
+
+    private static ArrayList<String> readFile(File file) throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        if (!file.exists()) {
+            return lines;
+        }
+        try (BufferedReader bfr = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = bfr.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
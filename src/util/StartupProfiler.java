@@ -0,0 +1,215 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records wall time, allocated bytes and GC time for each startup phase.
+ *
+ * Enabled by Marketplace's --profile-startup flag; when disabled, {@link #phase(String)} returns
+ * a shared no-op so instrumented code costs nothing. Allocation is measured on the thread that
+ * runs the phase (HotSpot's per-thread counter); GC time is JVM-wide, so phases that overlap
+ * on different threads may share it.
+ *
+ * Usage: StartupProfiler.time("loadMarket", Marketplace::loadMarket), or for work that returns
+ * a value, ArrayList<String> lines = StartupProfiler.time("readCatalog", CatalogEditLog::readLines).
+ * Checked exceptions thrown by the work pass through unchanged.
+ */
+public final class StartupProfiler {
+
+    /**
+     * A running phase; closing it records the measurements.
+     */
+    public interface Phase extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Work timed as a phase, which may throw a checked exception.
+     */
+    public interface Task<E extends Exception> {
+        void run() throws E;
+    }
+
+    /**
+     * Work timed as a phase that returns a value, which may throw a checked exception.
+     */
+    public interface Work<T, E extends Exception> {
+        T get() throws E;
+    }
+
+    /**
+     * Measurements for one finished phase.
+     */
+    public static class Record {
+        public final String name;
+        public final String thread;
+        public final long wallNanos;
+        public final long allocatedBytes; // -1 if the JVM cannot measure it
+        public final long gcMillis;
+
+        Record(String name, String thread, long wallNanos, long allocatedBytes, long gcMillis) {
+            this.name = name;
+            this.thread = thread;
+            this.wallNanos = wallNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.gcMillis = gcMillis;
+        }
+    }
+
+    private static final Phase NO_OP = () -> {};
+    private static final List<Record> RECORDS = new ArrayList<>();
+    private static volatile boolean enabled;
+    private static long startNanos;
+
+    private StartupProfiler() {}
+
+    /**
+     * Turns profiling on and starts the overall startup clock.
+     */
+    public static void enable() {
+        enabled = true;
+        startNanos = System.nanoTime();
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts timing a phase on the current thread.
+     * @param name phase name; use "parent.child" for sub-phases
+     * @return phase to close when the work is done
+     */
+    public static Phase phase(String name) {
+        if (!enabled) {
+            return NO_OP;
+        }
+        Thread thread = Thread.currentThread();
+        long wallStart = System.nanoTime();
+        long allocStart = allocatedBytes(thread);
+        long gcStart = gcMillis();
+        return () -> {
+            long alloc = allocStart < 0 ? -1 : allocatedBytes(thread) - allocStart;
+            Record record = new Record(name, thread.getName(), System.nanoTime() - wallStart, alloc, gcMillis() - gcStart);
+            synchronized (RECORDS) {
+                RECORDS.add(record);
+            }
+        };
+    }
+
+    /**
+     * Runs work on the current thread as a phase, recorded even if the work throws.
+     * @param name phase name; use "parent.child" for sub-phases
+     */
+    public static <E extends Exception> void time(String name, Task<E> task) throws E {
+        Phase phase = phase(name);
+        try {
+            task.run();
+        } finally {
+            phase.close();
+        }
+    }
+
+    /**
+     * Runs work on the current thread as a phase, recorded even if the work throws.
+     * @param name phase name; use "parent.child" for sub-phases
+     * @return what the work returned
+     */
+    public static <T, E extends Exception> T time(String name, Work<T, E> work) throws E {
+        Phase phase = phase(name);
+        try {
+            return work.get();
+        } finally {
+            phase.close();
+        }
+    }
+
+    /**
+     * @return finished phases, in completion order
+     */
+    public static List<Record> records() {
+        synchronized (RECORDS) {
+            return new ArrayList<>(RECORDS);
+        }
+    }
+
+    /**
+     * Prints a table of the recorded phases and the time since {@link #enable()}.
+     */
+    public static void printSummary() {
+        if (!enabled) {
+            return;
+        }
+        System.out.println();
+        System.out.println("=== Startup profile ===");
+        System.out.println(String.format("%-32s %10s %12s %8s  %s", "phase", "wall ms", "alloc KB", "gc ms", "thread"));
+        for (Record record : records()) {
+            System.out.println(String.format("%-32s %10.1f %12s %8d  %s", record.name, record.wallNanos / 1_000_000.0,
+                record.allocatedBytes < 0 ? "n/a" : String.valueOf(record.allocatedBytes / 1024),
+                record.gcMillis, record.thread));
+        }
+        System.out.println(String.format("%-32s %10.1f", "total incl. prompts", (System.nanoTime() - startNanos) / 1_000_000.0));
+        System.out.println();
+    }
+
+    /**
+     * Writes the recorded phases as JSON for regression tracking.
+     * @param file destination, replaced atomically
+     */
+    public static void writeJson(File file) {
+        if (!enabled) {
+            return;
+        }
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"timestamp\": ").append(System.currentTimeMillis()).append(",\n");
+        json.append("  \"javaVersion\": \"").append(escape(System.getProperty("java.version"))).append("\",\n");
+        json.append("  \"totalMillis\": ").append(String.format("%.3f", (System.nanoTime() - startNanos) / 1_000_000.0)).append(",\n");
+        json.append("  \"phases\": [");
+        List<Record> records = records();
+        for (int i = 0; i < records.size(); i++) {
+            Record record = records.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"name\": \"").append(escape(record.name))
+                .append("\", \"thread\": \"").append(escape(record.thread))
+                .append("\", \"wallMillis\": ").append(String.format("%.3f", record.wallNanos / 1_000_000.0))
+                .append(", \"allocatedBytes\": ").append(record.allocatedBytes)
+                .append(", \"gcMillis\": ").append(record.gcMillis).append("}");
+        }
+        json.append("\n  ]\n}\n");
+
+        try {
+            AtomicFileWriter.writeLines(file, List.of(json.toString().trim()));
+        } catch (IOException e) {
+            System.err.println("Warning: Unable to write startup profile: " + e.getMessage());
+        }
+    }
+
+    private static long allocatedBytes(Thread thread) {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(thread.getId());
+            }
+        }
+        return -1;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static String escape(String value) {
+        return value == null ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
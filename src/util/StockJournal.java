@@ -0,0 +1,394 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Write-ahead journal of stock sold, and the background writer that applies it to the
+ * Products table in batches.
+ *
+ * A purchase takes stock from the in-memory product, which is the source of truth for
+ * availability, then {@link #recordSale} appends one record to Stock.journal and returns without
+ * touching the database. Every -Dmarketplace.stock.flushIntervalMs milliseconds (default 500)
+ * the "stock-writer" thread applies all pending sales in one transaction, which also stores the
+ * journal's checkpoint (the last sequence number applied), then rewrites the journal to hold
+ * only the sales made since. At startup {@link #recover} applies whatever the journal still
+ * holds, i.e. the sales made after the last flush before a crash. Records the database already
+ * has are recognised by the checkpoint and skipped, so a crash between the commit and the
+ * journal rewrite never counts a sale twice. Appends are forced to disk per {@link FsyncPolicy}
+ * with group commit: a buyer appends under the lock and then waits for a sync outside it, and
+ * one sync covers every record appended before it started, so concurrent checkouts share fsyncs
+ * instead of queueing for one each.
+ *
+ * Records are matched to rows by store and product name, and applied as deltas. Seller edits
+ * therefore go through here too: a quantity change is journaled as an adjustment
+ * ({@link #recordAdjustment}) instead of overwriting the row, and a rename is written with
+ * {@link #runFlushed}, so no pending record is left under the old name.
+ *
+ * Record format (tab-separated, one per line):
+ *  #journal  journalId  nextSeq     (header; the checkpoint is kept per journal id)
+ *  seq  store  product  units
+ */
+public final class StockJournal {
+    private static final long FLUSH_INTERVAL_MILLIS = Long.getLong("marketplace.stock.flushIntervalMs", 500L);
+    private static final String HEADER = "#journal";
+    private static final String SEPARATOR = "\t";
+
+    // Guards the file, the pending records and the sequence; held only for an append
+    private static final Object LOCK = new Object();
+    // Serializes flushes, so records are applied in order and the journal rewritten once per batch
+    private static final Object FLUSH_LOCK = new Object();
+    // Group commit: guards syncing, syncedAppends and syncCount; never held together with LOCK
+    private static final Object SYNC_LOCK = new Object();
+
+    private static boolean loaded;
+    private static FileOutputStream out;
+    private static String journalId;
+    private static long nextSeq;
+    private static ArrayList<Record> pending = new ArrayList<>();
+    // Appends written to the file so far (under LOCK), and how many of them are known to be on disk
+    private static long appends;
+    private static long syncedAppends;
+    private static boolean syncing;
+    private static long syncCount;
+    private static volatile WriteBehindFlusher writer;
+
+    private StockJournal() {}
+
+    /**
+     * One sale: units of a product taken from a store's stock.
+     */
+    public static final class Record {
+        private final long seq;
+        private final String storeName;
+        private final String productName;
+        private final int units;
+
+        Record(long seq, String storeName, String productName, int units) {
+            this.seq = seq;
+            this.storeName = storeName;
+            this.productName = productName;
+            this.units = units;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public String getStoreName() {
+            return storeName;
+        }
+
+        public String getProductName() {
+            return productName;
+        }
+
+        public int getUnits() {
+            return units;
+        }
+
+        String toLine() {
+            return seq + SEPARATOR + CatalogEditLog.flatten(storeName) + SEPARATOR + CatalogEditLog.flatten(productName) + SEPARATOR + units;
+        }
+    }
+
+    /**
+     * Journals a sale for the database; the in-memory stock was already taken.
+     * @param storeName store sold from
+     * @param productName product sold
+     * @param units units sold
+     */
+    public static void recordSale(String storeName, String productName, int units) {
+        long appended = 0;
+        synchronized (LOCK) {
+            open();
+            Record record = new Record(nextSeq++, storeName, productName, units);
+            // Kept even if the append fails, so this run still brings the database up to date
+            pending.add(record);
+            if (out != null) {
+                try {
+                    out.write((record.toLine() + "\n").getBytes(StandardCharsets.UTF_8));
+                    appends++;
+                    if (FsyncPolicy.current().shouldSync(new File(FileConstants.STOCK_JOURNAL_FILE))) {
+                        appended = appends;
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error writing to the stock journal: " + e.getMessage());
+                }
+            }
+        }
+        if (appended > 0) {
+            awaitSync(appended);
+        }
+        WriteBehindFlusher current = writer;
+        if (current != null) {
+            current.markDirty();
+        }
+    }
+
+    /**
+     * Waits until the given append is on disk. The first waiter to find no sync running becomes
+     * the leader and forces the file once for every record appended so far; the others wait for
+     * it, and lead the next sync if theirs came too late for this one.
+     * @param appended value of {@link #appends} right after the caller's record was written
+     */
+    private static void awaitSync(long appended) {
+        while (true) {
+            synchronized (SYNC_LOCK) {
+                while (syncing && syncedAppends < appended) {
+                    try {
+                        SYNC_LOCK.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (syncedAppends >= appended) {
+                    return;
+                }
+                syncing = true;
+            }
+
+            long covered;
+            FileChannel channel;
+            synchronized (LOCK) {
+                covered = appends;
+                channel = out == null ? null : out.getChannel();
+            }
+            try {
+                if (channel != null) {
+                    channel.force(false);
+                }
+            } catch (ClosedChannelException e) {
+                // The journal was rewritten in the meantime, and the new file holds these records
+            } catch (IOException e) {
+                System.err.println("Error syncing the stock journal: " + e.getMessage());
+            } finally {
+                synchronized (SYNC_LOCK) {
+                    syncCount++;
+                    syncedAppends = Math.max(syncedAppends, covered);
+                    syncing = false;
+                    SYNC_LOCK.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of journal fsyncs made for purchases; with concurrent buyers, fewer than
+     * the records appended
+     */
+    public static long getSyncCount() {
+        synchronized (SYNC_LOCK) {
+            return syncCount;
+        }
+    }
+
+    /**
+     * Journals a stock change made by a seller, to be applied with the sales around it.
+     * @param storeName store of the product
+     * @param productName product name as stored in the Products table
+     * @param delta units added; negative to remove units
+     */
+    public static void recordAdjustment(String storeName, String productName, int delta) {
+        recordSale(storeName, productName, -delta);
+    }
+
+    /**
+     * Applies every pending record, then runs a write that changes how records are matched to
+     * rows (e.g. a product rename) while no new record can be appended. Purchases wait for the
+     * write to finish before journaling.
+     * @param write database write to run; returns whether it succeeded
+     * @return the write's result
+     * @throws SQLException if the pending records cannot be applied; the write is not run
+     */
+    public static boolean runFlushed(BooleanSupplier write) throws SQLException {
+        synchronized (FLUSH_LOCK) {
+            flush();
+            synchronized (LOCK) {
+                return write.getAsBoolean();
+            }
+        }
+    }
+
+    /**
+     * Applies every pending sale to the Products table in one transaction, then drops them from
+     * the journal. On failure they stay pending and the journal is untouched.
+     * @return number of sales applied
+     * @throws SQLException if the database update fails
+     */
+    public static int flush() throws SQLException {
+        synchronized (FLUSH_LOCK) {
+            List<Record> batch;
+            String id;
+            synchronized (LOCK) {
+                open();
+                if (pending.isEmpty()) {
+                    return 0;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                id = journalId;
+            }
+
+            int applied;
+            try {
+                applied = new ProductDAO().applyStockJournal(id, batch);
+            } catch (SQLException e) {
+                synchronized (LOCK) {
+                    batch.addAll(pending);
+                    pending = new ArrayList<>(batch);
+                }
+                throw e;
+            }
+
+            synchronized (LOCK) {
+                rewrite();
+            }
+            return applied;
+        }
+    }
+
+    /**
+     * Applies the sales a previous run journaled but did not get to the database, then starts
+     * the background writer. Call once the database tables exist.
+     * @return number of sales replayed
+     */
+    public static int recover() {
+        int replayed = 0;
+        try {
+            replayed = flush();
+            if (replayed > 0) {
+                System.out.println("Stock journal: applied " + replayed + " sales not yet in the database.");
+            }
+        } catch (SQLException e) {
+            System.err.println("Warning: Unable to replay the stock journal: " + e.getMessage());
+        }
+        start();
+        return replayed;
+    }
+
+    /**
+     * Starts the background writer, if not already running.
+     */
+    public static synchronized void start() {
+        if (writer != null) {
+            return;
+        }
+        writer = new WriteBehindFlusher("stock-writer", StockJournal::flush, FLUSH_INTERVAL_MILLIS);
+        if (getPendingCount() > 0) {
+            writer.markDirty();
+        }
+    }
+
+    /**
+     * Stops the background writer after a last flush and closes the journal. Sales that could
+     * not be written stay in the journal for the next {@link #recover}.
+     */
+    public static synchronized void stop() {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+        synchronized (LOCK) {
+            closeFile();
+            pending = new ArrayList<>();
+            loaded = false;
+        }
+    }
+
+    /**
+     * @return sales journaled but not yet applied to the database
+     */
+    public static int getPendingCount() {
+        synchronized (LOCK) {
+            open();
+            return pending.size();
+        }
+    }
+
+    // Caller holds LOCK. Loads the records a previous run left in the journal.
+    private static void open() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        File file = new File(FileConstants.STOCK_JOURNAL_FILE);
+        journalId = null;
+        nextSeq = 1;
+        pending = new ArrayList<>();
+        if (file.exists()) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split(SEPARATOR, -1);
+                    try {
+                        if (fields.length == 3 && HEADER.equals(fields[0])) {
+                            journalId = fields[1];
+                            nextSeq = Math.max(nextSeq, Long.parseLong(fields[2]));
+                        } else if (fields.length == 4) {
+                            Record record = new Record(Long.parseLong(fields[0]), fields[1], fields[2], Integer.parseInt(fields[3]));
+                            pending.add(record);
+                            nextSeq = Math.max(nextSeq, record.seq + 1);
+                        } else {
+                            throw new NumberFormatException();
+                        }
+                    } catch (NumberFormatException e) {
+                        // A record cut short by a crash mid-append was never acknowledged
+                        System.err.println("Warning: Skipping malformed stock journal line: " + line);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Warning: Unable to read the stock journal: " + e.getMessage());
+            }
+        }
+        if (journalId == null) {
+            // Also a new checkpoint: one left by another journal must not skip these records
+            journalId = UUID.randomUUID().toString();
+        }
+        rewrite();
+    }
+
+    // Caller holds LOCK. Replaces the journal with a header and the pending records.
+    private static void rewrite() {
+        closeFile();
+        File file = new File(FileConstants.STOCK_JOURNAL_FILE);
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER + SEPARATOR + journalId + SEPARATOR + nextSeq);
+        for (Record record : pending) {
+            lines.add(record.toLine());
+        }
+        try {
+            AtomicFileWriter.writeLines(file, lines);
+        } catch (IOException e) {
+            // The old journal is still in place; applied records in it are skipped on replay
+            System.err.println("Warning: Unable to rewrite the stock journal: " + e.getMessage());
+        }
+        try {
+            out = new FileOutputStream(file, true);
+        } catch (IOException e) {
+            System.err.println("Error opening the stock journal: " + e.getMessage());
+        }
+    }
+
+    // Caller holds LOCK
+    private static void closeFile() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // Nothing buffered; every record was written through
+            }
+            out = null;
+        }
+    }
+}
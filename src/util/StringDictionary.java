@@ -0,0 +1,59 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares one String instance per distinct value.
+ *
+ * Catalog loads split every line into fresh Strings, so the same store name, seller email or
+ * description ("No description provided") would otherwise be held once per product. Parsers
+ * and DAO row mappers pass such values through {@link #CATALOG}, which keeps a single copy.
+ * Product names are mostly unique and are not interned.
+ *
+ * Interning can be turned off with -Dmarketplace.intern=false, or {@link #setEnabled} for
+ * benchmarks comparing the two.
+ */
+public class StringDictionary {
+    /** Dictionary shared by everything that loads the catalog. */
+    public static final StringDictionary CATALOG = new StringDictionary();
+
+    private static volatile boolean enabled = !"false".equalsIgnoreCase(System.getProperty("marketplace.intern"));
+
+    private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+
+    /**
+     * @param value value to share, may be null
+     * @return the dictionary's instance equal to value, or value itself if it is new, null, or
+     * interning is disabled
+     */
+    public String intern(String value) {
+        if (value == null || !enabled) {
+            return value;
+        }
+        String existing = values.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    /**
+     * @return number of distinct values held
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Drops every held value; instances already handed out stay shared among their users.
+     */
+    public void clear() {
+        values.clear();
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns interning on or off, e.g. for benchmarks comparing heap footprint.
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+}
@@ -0,0 +1,154 @@
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Debounced write-behind for an expensive full-file write.
+ *
+ * Callers mark the data dirty instead of writing it. A background thread runs the write at most
+ * once per interval, so a burst of changes costs one write. Pending changes are flushed on
+ * {@link #close()} and, as a safety net, from a JVM shutdown hook. A failed write leaves the
+ * data dirty so the next interval retries it.
+ */
+public class WriteBehindFlusher implements AutoCloseable {
+
+    /**
+     * The write being deferred.
+     */
+    public interface Flush {
+        void run() throws Exception;
+    }
+
+    private final String name;
+    private final Flush flush;
+    private final ScheduledExecutorService scheduler;
+    private final Thread shutdownHook;
+    private final Object flushLock = new Object();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private final AtomicLong marks = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+
+    /**
+     * @param name thread name, also used in warnings
+     * @param flush the write to run when dirty
+     * @param intervalMillis minimum time between writes
+     */
+    public WriteBehindFlusher(String name, Flush flush, long intervalMillis) {
+        this.name = name;
+        this.flush = flush;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushIfDirty, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+
+        this.shutdownHook = new Thread(this::flushIfDirty, name + "-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Records that the data changed. Returns immediately; the write happens later.
+     */
+    public void markDirty() {
+        marks.incrementAndGet();
+        dirty.set(true);
+    }
+
+    /**
+     * @return true if changes are waiting to be written
+     */
+    public boolean isDirty() {
+        return dirty.get();
+    }
+
+    /**
+     * Writes now if there are pending changes.
+     * @return true if a write ran and succeeded
+     */
+    public boolean flushIfDirty() {
+        synchronized (flushLock) {
+            if (!dirty.getAndSet(false)) {
+                return false;
+            }
+            long start = System.nanoTime();
+            try {
+                flush.run();
+            } catch (Exception e) {
+                dirty.set(true);
+                failures.incrementAndGet();
+                System.err.println("Warning: " + name + " write failed, will retry: " + e.getMessage());
+                return false;
+            }
+            long nanos = System.nanoTime() - start;
+            flushes.incrementAndGet();
+            totalFlushNanos.addAndGet(nanos);
+            maxFlushNanos.accumulateAndGet(nanos, Math::max);
+            return true;
+        }
+    }
+
+    /**
+     * Stops the background thread and writes any pending changes.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushIfDirty();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // Already shutting down; the hook is running or has run
+        }
+    }
+
+    public long getMarkCount() {
+        return marks.get();
+    }
+
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * @return changes recorded per write actually performed
+     */
+    public double getCoalescingRatio() {
+        long count = flushes.get();
+        return count == 0 ? 0.0 : marks.get() / (double) count;
+    }
+
+    public double getAverageFlushMillis() {
+        long count = flushes.get();
+        return count == 0 ? 0.0 : totalFlushNanos.get() / (double) count / 1_000_000.0;
+    }
+
+    public double getMaxFlushMillis() {
+        return maxFlushNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d changes, %d writes (%.1f changes/write), avg %.2f ms, max %.2f ms, %d failed",
+            name, getMarkCount(), getFlushCount(), getCoalescingRatio(), getAverageFlushMillis(), getMaxFlushMillis(), getFailureCount());
+    }
+}
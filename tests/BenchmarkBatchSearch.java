@@ -0,0 +1,95 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmark comparing batch name/store search against sequential per-query calls.
+ * Runs against a generated catalog in a temporary data directory.
+ * Usage: java BenchmarkBatchSearch [lines] [queries]
+ */
+public class BenchmarkBatchSearch {
+
+    public static void main(String[] args) throws IOException {
+        int lineCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+        File dataDir = Files.createTempDirectory("bench-batch").toFile();
+        System.setProperty("marketplace.dataDir", dataDir.getPath());
+        writeCatalog(new File(FileConstants.SELLERS_FILE), lineCount);
+
+        List<String> names = new ArrayList<>();
+        List<String> stores = new ArrayList<>();
+        for (int i = 0; i < queryCount; i++) {
+            names.add("Product" + (i * 7 % lineCount));
+            stores.add("Store" + (i * 13 % lineCount));
+        }
+
+        System.out.println("=== Batch Search Benchmark (" + lineCount + " lines, " + queryCount + " queries) ===");
+
+        // Warm up the file cache and JIT
+        ProductSearchService.searchByNameBatch(names, null);
+        ProductSearchService.searchByName(names.get(0));
+
+        long start = System.nanoTime();
+        List<ArrayList<String>> sequentialNames = new ArrayList<>();
+        for (String name : names) {
+            sequentialNames.add(ProductSearchService.searchByName(name, null));
+        }
+        long sequentialNameNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        Map<String, ArrayList<String>> batchNames = ProductSearchService.searchByNameBatch(names, null);
+        long batchNameNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        List<ArrayList<String>> sequentialStores = new ArrayList<>();
+        for (String store : stores) {
+            sequentialStores.add(ProductSearchService.searchByStore(store, null));
+        }
+        long sequentialStoreNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        Map<String, ArrayList<String>> batchStores = ProductSearchService.searchByStoreBatch(stores, null);
+        long batchStoreNanos = System.nanoTime() - start;
+
+        boolean consistent = true;
+        for (int i = 0; i < queryCount; i++) {
+            consistent &= sequentialNames.get(i).equals(batchNames.get(names.get(i)));
+            consistent &= sequentialStores.get(i).equals(batchStores.get(stores.get(i)));
+        }
+
+        report("searchByName", sequentialNameNanos, batchNameNanos, queryCount);
+        report("searchByStore", sequentialStoreNanos, batchStoreNanos, queryCount);
+        System.out.println("Results identical: " + consistent);
+
+        new File(FileConstants.SELLERS_FILE).delete();
+        dataDir.delete();
+        if (!consistent) {
+            throw new AssertionError("Batch results differ from sequential results");
+        }
+    }
+
+    private static void writeCatalog(File file, int lineCount) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            for (int i = 0; i < lineCount; i++) {
+                String store = "Store" + i;
+                writer.write("seller" + (i % 50) + "@bench.com," + store + ",Product" + i + ",10,19.99,Generated product " + i
+                        + "," + store + "," + ProductCategory.values()[i % ProductCategory.values().length].name());
+                writer.newLine();
+            }
+        }
+    }
+
+    private static void report(String label, long sequentialNanos, long batchNanos, int queryCount) {
+        double sequentialMs = sequentialNanos / 1_000_000.0;
+        double batchMs = batchNanos / 1_000_000.0;
+        System.out.println(String.format("%-14s sequential: %9.2f ms (%8.0f queries/s) | batch: %8.2f ms (%10.0f queries/s) | speedup %.1fx",
+                label, sequentialMs, queryCount / (sequentialMs / 1000.0), batchMs, queryCount / (batchMs / 1000.0),
+                sequentialMs / Math.max(batchMs, 0.001)));
+    }
+}
@@ -0,0 +1,78 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Benchmark of write latency under each fsync policy, for full snapshot rewrites and for
+ * edit log appends. Runs against a generated catalog in a temporary data directory.
+ * Usage: java BenchmarkFsyncPolicy [lines] [writes]
+ */
+public class BenchmarkFsyncPolicy {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int lineCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int writes = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        File dataDir = Files.createTempDirectory("bench-fsync").toFile();
+        System.setProperty("marketplace.dataDir", dataDir.getPath());
+
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < lineCount; i++) {
+            lines.add("seller" + (i % 50) + "@test.com,Store" + i + ",Product" + i + ",5,9.99,Plain item,Store" + i + ",BOOKS_MEDIA");
+        }
+        Product product = new Product("Widget", 1, 2.50, "Small widget", "Store0", ProductCategory.ELECTRONICS);
+
+        System.out.println("=== Fsync Policy Benchmark (" + lineCount + " lines, " + writes + " writes) ===");
+        System.out.println(String.format("%-10s %16s %16s %16s", "policy", "snapshot avg", "snapshot p99", "log append avg"));
+
+        for (FsyncPolicy policy : FsyncPolicy.values()) {
+            FsyncPolicy.setCurrent(policy);
+            CatalogEditLog.writeSnapshot(lines);
+
+            long[] snapshotNanos = new long[writes];
+            for (int i = 0; i < writes; i++) {
+                long start = System.nanoTime();
+                CatalogEditLog.writeSnapshot(lines);
+                snapshotNanos[i] = System.nanoTime() - start;
+            }
+
+            long appendTotal = 0;
+            for (int i = 0; i < writes; i++) {
+                long start = System.nanoTime();
+                CatalogEditLog.appendAddProduct("seller0@test.com", "Store0", product);
+                appendTotal += System.nanoTime() - start;
+            }
+
+            Arrays.sort(snapshotNanos);
+            long snapshotTotal = 0;
+            for (long nanos : snapshotNanos) {
+                snapshotTotal += nanos;
+            }
+            System.out.println(String.format("%-10s %13.3f ms %13.3f ms %13.3f ms", policy,
+                snapshotTotal / (double) writes / 1_000_000.0,
+                snapshotNanos[(int) Math.min(writes - 1, Math.ceil(writes * 0.99) - 1)] / 1_000_000.0,
+                appendTotal / (double) writes / 1_000_000.0));
+        }
+
+        FsyncPolicy.setCurrent(FsyncPolicy.ALWAYS);
+        CatalogEditLog.writeSnapshot(lines);
+        File[] leftovers = dataDir.listFiles((dir, name) -> name.endsWith(".tmp"));
+        System.out.println("Temp files left behind: " + (leftovers == null ? 0 : leftovers.length));
+        System.out.println("Snapshot intact: " + CatalogEditLog.readLines().equals(lines));
+
+        // The last append of an INTERVAL burst is not synced inline; the background syncer catches it
+        FsyncPolicy.setCurrent(FsyncPolicy.INTERVAL);
+        CatalogEditLog.appendAddProduct("seller0@test.com", "Store0", product);
+        CatalogEditLog.appendAddProduct("seller0@test.com", "Store0", product);
+        TestSupport.check("burst leaves a write unsynced", FsyncPolicy.pendingSyncs() > 0);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (FsyncPolicy.pendingSyncs() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        TestSupport.check("unsynced write synced within the interval", FsyncPolicy.pendingSyncs() == 0);
+        FsyncPolicy.setCurrent(FsyncPolicy.ALWAYS);
+    }
+}
@@ -0,0 +1,91 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark of Marketplace.loadMarket with and without the snapshot image (cold vs. warm start),
+ * plus checks that stale or corrupt images fall back to a full parse.
+ * Runs against a generated catalog in a temporary data directory.
+ * Usage: java BenchmarkStartupImage [lines]
+ */
+public class BenchmarkStartupImage {
+
+    private static final String CHECK_IMAGE = "--check-image";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 2 && args[0].equals(CHECK_IMAGE)) {
+            // Second JVM of the restart check: exit status says whether the image was usable
+            System.setProperty("marketplace.dataDir", args[1]);
+            System.exit(CatalogSnapshotImage.load() != null ? 0 : 1);
+        }
+        int lineCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+        File dataDir = Files.createTempDirectory("bench-image").toFile();
+        System.setProperty("marketplace.dataDir", dataDir.getPath());
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FileConstants.SELLERS_FILE))) {
+            for (int i = 0; i < lineCount; i++) {
+                String store = "Store" + i;
+                writer.write("seller" + (i % 500) + "@test.com," + store);
+                for (int p = 0; p < 3; p++) {
+                    writer.write(",Item" + i + "-" + p + "," + (p + 1) + ",19.99,Generated item number " + p + "," + store + ",CLOTHING");
+                }
+                writer.write("\n");
+            }
+        }
+        System.out.println("=== Startup Image Benchmark (" + lineCount + " lines) ===");
+
+        double cold = timeLoad();
+        ArrayList<Seller> parsed = new ArrayList<>(Marketplace.sellers.getSellers());
+        CatalogSnapshotImage.save(Marketplace.sellers.getSellers());
+        double warm = timeLoad();
+        System.out.println(String.format("Cold %.1f ms, warm %.1f ms (%.1fx)", cold, warm, cold / warm));
+        TestSupport.check("image reproduces the parsed graph", sameGraph(parsed, Marketplace.sellers.getSellers()));
+
+        // Touch the catalog: the image is now stale and must be ignored
+        CatalogEditLog.appendStore("seller1@test.com", "Late Store");
+        TestSupport.check("stale image ignored", CatalogSnapshotImage.load() == null);
+        CatalogEditLog.compact();
+
+        CatalogSnapshotImage.save(parsed);
+        byte[] image = Files.readAllBytes(new File(FileConstants.SELLERS_IMAGE_FILE).toPath());
+        image[image.length / 2] ^= 0x55;
+        Files.write(new File(FileConstants.SELLERS_IMAGE_FILE).toPath(), image);
+        TestSupport.check("corrupt image rejected by checksum", CatalogSnapshotImage.load() == null);
+
+        // As at shutdown: flush the catalog, save the image, then load it in a fresh JVM
+        IncrementalCatalogWriter.write(parsed);
+        CatalogSnapshotImage.save(parsed);
+        Process restart = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(),
+                "-cp", System.getProperty("java.class.path"), BenchmarkStartupImage.class.getName(), CHECK_IMAGE, dataDir.getPath())
+                .inheritIO().start();
+        TestSupport.check("image usable after a restart", restart.waitFor() == 0);
+    }
+
+    private static double timeLoad() {
+        Marketplace.sellers.clear();
+        long start = System.nanoTime();
+        Marketplace.loadMarket();
+        return (System.nanoTime() - start) / 1_000_000.0;
+    }
+
+    private static boolean sameGraph(List<Seller> a, List<Seller> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int s = 0; s < a.size(); s++) {
+            if (!a.get(s).getEmail().equals(b.get(s).getEmail()) || a.get(s).getStores().size() != b.get(s).getStores().size()) {
+                return false;
+            }
+            for (int t = 0; t < a.get(s).getStores().size(); t++) {
+                if (!a.get(s).getStores().get(t).toString().equals(b.get(s).getStores().get(t).toString())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,105 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Heap-footprint report for string interning in the loaded catalog: loads the same generated
+ * catalog with StringDictionary off and on, and compares the String instances held for store
+ * names, seller emails and descriptions, and the retained heap.
+ * Usage: java BenchmarkStringDedup [lines]
+ */
+public class BenchmarkStringDedup {
+    private static final String[] DESCRIPTIONS = {
+        "No description provided", "No description provided", "No description provided",
+        "Breathable cotton blend", "Ships in two business days", "Limited edition"
+    };
+
+    public static void main(String[] args) throws IOException {
+        int lineCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+        File dataDir = Files.createTempDirectory("bench-dedup").toFile();
+        System.setProperty("marketplace.dataDir", dataDir.getPath());
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FileConstants.SELLERS_FILE))) {
+            for (int i = 0; i < lineCount; i++) {
+                // 200 stores, each spread over many lines
+                String store = "Store" + (i % 200);
+                writer.write("seller" + (i % 50) + "@test.com," + store);
+                for (int p = 0; p < 5; p++) {
+                    writer.write(",Item" + i + "-" + p + "," + (p + 1) + ",19.99," + DESCRIPTIONS[(i + p) % DESCRIPTIONS.length]
+                        + "," + store + ",CLOTHING");
+                }
+                writer.write("\n");
+            }
+        }
+        System.out.println("=== String Dedup Heap Report (" + lineCount + " lines) ===");
+
+        Report before = load(false);
+        Report after = load(true);
+        System.out.println(String.format("Without interning: %,d string instances (%,d bytes), heap %,d KB",
+            before.instances, before.stringBytes, before.heapBytes / 1024));
+        System.out.println(String.format("With interning:    %,d string instances (%,d bytes), heap %,d KB",
+            after.instances, after.stringBytes, after.heapBytes / 1024));
+        System.out.println(String.format("Saved %,d KB of string data, %,d KB of measured heap",
+            (before.stringBytes - after.stringBytes) / 1024, (before.heapBytes - after.heapBytes) / 1024));
+
+        TestSupport.check("same values either way", before.distinctValues == after.distinctValues);
+        TestSupport.check("one instance per distinct value", after.instances == after.distinctValues);
+        TestSupport.check("uninterned load holds copies", before.instances > after.instances * 10);
+    }
+
+    private static class Report {
+        long instances;
+        long distinctValues;
+        long stringBytes;
+        long heapBytes;
+    }
+
+    private static Report load(boolean intern) {
+        StringDictionary.setEnabled(intern);
+        StringDictionary.CATALOG.clear();
+        Marketplace.sellers.clear();
+        new File(FileConstants.SELLERS_IMAGE_FILE).delete(); // Always parse the text catalog
+        long baseline = usedHeap();
+        Marketplace.loadMarket();
+        Report report = new Report();
+        report.heapBytes = usedHeap() - baseline;
+
+        Set<String> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<String> values = new HashSet<>();
+        for (Seller seller : Marketplace.sellers) {
+            count(seller.getEmail(), seen, values, report);
+            for (Store store : seller.getStores()) {
+                count(store.getName(), seen, values, report);
+                for (Product product : store.getProducts()) {
+                    count(product.getStore(), seen, values, report);
+                    count(product.getDescription(), seen, values, report);
+                }
+            }
+        }
+        report.instances = seen.size();
+        report.distinctValues = values.size();
+        return report;
+    }
+
+    private static void count(String value, Set<String> seen, Set<String> values, Report report) {
+        values.add(value);
+        if (seen.add(value)) {
+            // String header and fields plus the Latin-1 byte array, 8-byte aligned
+            report.stringBytes += 24 + ((16 + value.length() + 7) / 8) * 8;
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
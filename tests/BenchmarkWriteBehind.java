@@ -0,0 +1,91 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark of checkout persistence: a synchronous Sellers.txt rewrite per checkout against the
+ * debounced write-behind flusher. Runs against a generated catalog in a temporary data directory.
+ * Usage: java BenchmarkWriteBehind [stores] [checkouts] [intervalMs]
+ */
+public class BenchmarkWriteBehind {
+
+    public static void main(String[] args) throws Exception {
+        int storeCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int checkouts = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        long intervalMillis = args.length > 2 ? Long.parseLong(args[2]) : 200;
+
+        File dataDir = Files.createTempDirectory("bench-write-behind").toFile();
+        System.setProperty("marketplace.dataDir", dataDir.getPath());
+        FsyncPolicy.setCurrent(FsyncPolicy.NEVER); // Measure the rewrite itself, not the disk
+
+        List<Seller> sellers = new ArrayList<>();
+        for (int i = 0; i < storeCount; i++) {
+            if (i % 20 == 0) {
+                sellers.add(new Seller("seller" + i + "@test.com"));
+            }
+            Store store = new Store("Store" + i);
+            for (int p = 0; p < 3; p++) {
+                store.addProduct(new Product("Item" + i + "-" + p, 100, 9.99, "Plain item", store.getName(), ProductCategory.BOOKS_MEDIA));
+            }
+            sellers.get(sellers.size() - 1).addStores(store);
+        }
+
+        System.out.println("=== Write-Behind Benchmark (" + storeCount + " stores, " + checkouts + " checkouts, "
+                + intervalMillis + " ms interval) ===");
+
+        long start = System.nanoTime();
+        for (int i = 0; i < checkouts; i++) {
+            checkout(sellers, i);
+            writeCatalog(sellers);
+        }
+        double syncMillis = (System.nanoTime() - start) / 1_000_000.0;
+        System.out.println(String.format("Synchronous rewrite: %.3f ms per checkout", syncMillis / checkouts));
+
+        WriteBehindFlusher flusher = new WriteBehindFlusher("bench-flusher", () -> writeCatalog(sellers), intervalMillis);
+        start = System.nanoTime();
+        for (int i = 0; i < checkouts; i++) {
+            synchronized (sellers) {
+                checkout(sellers, i);
+            }
+            flusher.markDirty();
+            Thread.sleep(1); // Customers do not check out back to back
+        }
+        double behindMillis = (System.nanoTime() - start) / 1_000_000.0;
+        flusher.close();
+        System.out.println(String.format("Write-behind:        %.3f ms per checkout (includes 1 ms think time)", behindMillis / checkouts));
+        System.out.println(flusher);
+
+        boolean persisted = CatalogEditLog.readLines().equals(renderLines(sellers));
+        System.out.println("Final state persisted on close: " + persisted);
+    }
+
+    private static void checkout(List<Seller> sellers, int i) {
+        Product product = sellers.get(0).getStores().get(0).getProducts().get(i % 3);
+        product.setQuantity(product.getQuantity() - 1);
+    }
+
+    private static void writeCatalog(List<Seller> sellers) throws IOException {
+        CatalogEditLog.writeSnapshot(() -> {
+            synchronized (sellers) {
+                return renderLines(sellers);
+            }
+        });
+    }
+
+    private static ArrayList<String> renderLines(List<Seller> sellers) {
+        ArrayList<String> lines = new ArrayList<>();
+        for (Seller seller : sellers) {
+            for (Store store : seller.getStores()) {
+                StringBuilder sb = new StringBuilder();
+                sb.append(seller.getEmail()).append(",").append(store.getName());
+                for (Product product : store.getProducts()) {
+                    sb.append(",").append(product.toCSV());
+                }
+                lines.add(sb.toString());
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,83 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for the binary catalog format: round trip, header, and size/load comparison
+ */
+public class TestBinaryCatalog {
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== Testing Binary Catalog Format ===\n");
+
+        File textFile = File.createTempFile("sellers", ".txt");
+        File binaryFile = File.createTempFile("sellers", ".bin");
+        textFile.deleteOnExit();
+        binaryFile.deleteOnExit();
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(textFile))) {
+            writer.write("legacy@test.com,Old Shop,Boot,4,59.99,Leather boot,Old Shop\n");
+            writer.write("empty@test.com,Empty Store\n");
+            for (int i = 0; i < 2000; i++) {
+                String store = "Store" + (i % 200);
+                ProductCategory category = ProductCategory.values()[i % ProductCategory.values().length];
+                writer.write("seller" + (i % 40) + "@test.com," + store + ",Item" + i + "," + (i % 25) + ",12.50,No description provided,"
+                        + store + "," + category.name() + "\n");
+            }
+        }
+
+        int sellers = CatalogBinaryConverter.convert(textFile, binaryFile);
+        CatalogBinaryReader.Header header = CatalogBinaryReader.readHeader(binaryFile);
+        System.out.println(header);
+        TestSupport.check("header seller count", header.sellerCount == sellers && sellers == 42);
+        TestSupport.check("header product count", header.productCount == 2001);
+        TestSupport.check("dictionary holds each store/category once", header.dictionarySize == 202 + ProductCategory.values().length);
+
+        ArrayList<Seller> fromText = CatalogBinaryConverter.parseTextFile(textFile);
+        ArrayList<Seller> fromBinary = CatalogBinaryReader.read(binaryFile);
+        TestSupport.check("same seller count", fromText.size() == fromBinary.size());
+
+        boolean identical = true;
+        for (int s = 0; s < fromText.size(); s++) {
+            Seller a = fromText.get(s);
+            Seller b = fromBinary.get(s);
+            identical &= a.getEmail().equals(b.getEmail()) && a.getStores().size() == b.getStores().size();
+            for (int t = 0; identical && t < a.getStores().size(); t++) {
+                identical &= a.getStores().get(t).toString().equals(b.getStores().get(t).toString());
+            }
+        }
+        TestSupport.check("round trip preserves stores and products", identical);
+        TestSupport.check("legacy product defaults to Shoes", fromBinary.get(0).getStores().get(0).getProducts().get(0).getCategory() == ProductCategory.SHOES);
+        TestSupport.check("binary file is smaller", binaryFile.length() < textFile.length());
+        System.out.println("Text: " + textFile.length() + " bytes, binary: " + binaryFile.length() + " bytes");
+
+        File notCatalog = File.createTempFile("not-catalog", ".bin");
+        notCatalog.deleteOnExit();
+        boolean rejected = false;
+        try {
+            CatalogBinaryReader.read(notCatalog);
+        } catch (IOException e) {
+            rejected = true;
+        }
+        TestSupport.check("rejects files without the catalog header", rejected);
+
+        // Default conversion reads the catalog as loaded, including edits still in the log
+        File dataDir = Files.createTempDirectory("binary-catalog").toFile();
+        System.setProperty("marketplace.dataDir", dataDir.getPath());
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FileConstants.SELLERS_FILE))) {
+            writer.write("toys@test.com,Toy Box,Robot,10,25.00,Wind-up robot,Toy Box,SPORTS_OUTDOORS\n");
+        }
+        CatalogEditLog.appendAddProduct("toys@test.com", "Toy Box",
+                new Product("Kite", 3, 12.00, "Red kite", "Toy Box", ProductCategory.SPORTS_OUTDOORS));
+        File catalogBinary = new File(dataDir, "Sellers.bin");
+        CatalogBinaryConverter.convertCatalog(catalogBinary);
+        List<Product> converted = CatalogBinaryReader.read(catalogBinary).get(0).getStores().get(0).getProducts();
+        TestSupport.check("catalog conversion includes logged edits", converted.size() == 2 && converted.get(1).getName().equals("Kite"));
+
+        System.out.println("\n=== Binary Catalog Tests Completed ===");
+    }
+}
@@ -0,0 +1,90 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for the seller catalog edit log: replay over the snapshot and compaction.
+ * Runs against a temporary data directory.
+ */
+public class TestCatalogEditLog {
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== Testing Catalog Edit Log ===\n");
+
+        File dataDir = Files.createTempDirectory("edit-log").toFile();
+        System.setProperty("marketplace.dataDir", dataDir.getPath());
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FileConstants.SELLERS_FILE))) {
+            writer.write("shoes@test.com,Foot Locker,Boot,4,59.99,Leather boot,Foot Locker\n");
+            writer.write("toys@test.com,Toy Box,Robot,10,25.00,Wind-up robot,Toy Box,SPORTS_OUTDOORS\n");
+        }
+
+        ArrayList<String> before = CatalogEditLog.readLines();
+        TestSupport.check("empty log returns snapshot unchanged", before.size() == 2
+                && before.get(0).equals("shoes@test.com,Foot Locker,Boot,4,59.99,Leather boot,Foot Locker"));
+
+        Product robot = new Product("Robot", 10, 25.00, "Wind-up robot", "Toy Box", ProductCategory.SPORTS_OUTDOORS);
+        Product robotSale = new Product("Robot", 8, 19.99, "Wind-up robot", "Toy Box", ProductCategory.SPORTS_OUTDOORS);
+        Product kite = new Product("Kite", 3, 12.00, "Red kite", "Toy Box", ProductCategory.SPORTS_OUTDOORS);
+        Product cap = new Product("Cap", 5, 15.00, "Baseball cap", "Hat Rack", ProductCategory.CLOTHING);
+
+        CatalogEditLog.appendEditProduct("toys@test.com", "Toy Box", robot, robotSale);
+        CatalogEditLog.appendAddProduct("toys@test.com", "Toy Box", kite);
+        CatalogEditLog.appendSeller("new@test.com");
+        CatalogEditLog.appendStore("new@test.com", "Hat Rack");
+        CatalogEditLog.appendAddProduct("new@test.com", "Hat Rack", cap);
+        CatalogEditLog.appendRemoveProduct("toys@test.com", "Toy Box", kite);
+        TestSupport.check("log holds six records", CatalogEditLog.pendingRecords() == 6);
+        TestSupport.check("snapshot untouched by appends", Files.readAllLines(new File(FileConstants.SELLERS_FILE).toPath()).size() == 2);
+
+        ArrayList<String> replayed = CatalogEditLog.readLines();
+        TestSupport.check("untouched line kept verbatim", replayed.get(0).equals(before.get(0)));
+        TestSupport.check("edit and remove applied", replayed.get(1).equals("toys@test.com,Toy Box," + robotSale.toCSV()));
+        TestSupport.check("new seller line appended", replayed.size() == 4 && replayed.get(2).equals("new@test.com,"));
+        TestSupport.check("new seller's store appended", replayed.get(3).equals("new@test.com,Hat Rack," + cap.toCSV()));
+
+        ArrayList<Product> products = ProductSearchService.searchByNameAsProducts("Cap");
+        TestSupport.check("search sees logged edits", products.size() == 1 && products.get(0).getStore().equals("Hat Rack"));
+
+        int folded = CatalogEditLog.compact();
+        TestSupport.check("compaction folds every record", folded == 6 && CatalogEditLog.pendingRecords() == 0);
+        TestSupport.check("compacted snapshot matches replay", CatalogEditLog.readLines().equals(replayed));
+        TestSupport.check("log file removed", !new File(FileConstants.SELLERS_LOG_FILE).exists());
+
+        // A snapshot rewrite racing a seller's add must not end up with the product twice
+        Seller toys = new Seller("toys@test.com", false);
+        toys.addStores("Toy Box");
+        Thread adder = new Thread(() -> toys.writeToSellerFileAddProduct("Toy Box", "Yo-yo", 6, 4.50, "Wooden yo-yo", ProductCategory.SPORTS_OUTDOORS));
+        boolean[] addedDuringRewrite = new boolean[1];
+        CatalogEditLog.rewriteSnapshot(snapshot -> {
+            adder.start();
+            try {
+                adder.join(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Store store = toys.searchStore("Toy Box");
+            addedDuringRewrite[0] = !store.getProducts().isEmpty();
+            AtomicFileWriter.writeLines(snapshot, List.of(IncrementalCatalogWriter.renderLine(toys, store)));
+        });
+        try {
+            adder.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ArrayList<String> afterRace = CatalogEditLog.readLines();
+        TestSupport.check("add waits for the snapshot rewrite", !addedDuringRewrite[0] && CatalogEditLog.pendingRecords() == 1);
+        TestSupport.check("raced add replays once", afterRace.size() == 1 && afterRace.get(0).split("Yo-yo", -1).length == 2);
+
+        // Rewriting identical content leaves size and (often) mtime alone; the fingerprint must still move
+        String fingerprint = CatalogEditLog.fingerprint();
+        List<String> same = Files.readAllLines(new File(FileConstants.SELLERS_FILE).toPath());
+        CatalogEditLog.rewriteSnapshot(snapshot -> AtomicFileWriter.writeLines(snapshot, same));
+        TestSupport.check("fingerprint changes on a same-size rewrite", !CatalogEditLog.fingerprint().equals(fingerprint));
+
+        System.out.println("\n=== Catalog Edit Log Tests Completed ===");
+    }
+}
@@ -0,0 +1,76 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Test class for the seller catalog format version header: stamping on migration and on
+ * clean scans, skipping the header on read, and keeping it through compaction and persists.
+ * Runs against a temporary data directory.
+ */
+public class TestCatalogFormatVersion {
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== Testing Catalog Format Version ===\n");
+
+        File dataDir = Files.createTempDirectory("format-version").toFile();
+        System.setProperty("marketplace.dataDir", dataDir.getPath());
+        FsyncPolicy.setCurrent(FsyncPolicy.NEVER);
+        File sellersFile = new File(FileConstants.SELLERS_FILE);
+
+        // Legacy lines: five fields per product, no category
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(sellersFile))) {
+            writer.write("old@test.com,Shoe Shop,Runner,4,59.99,Light shoe,Shoe Shop\n");
+            writer.write("old@test.com,Empty Shop\n");
+        }
+        TestSupport.check("legacy file is unmarked", CatalogEditLog.formatVersion() == 0);
+
+        Marketplace.sellers.clear();
+        Marketplace.loadMarket();
+        List<String> raw = Files.readAllLines(sellersFile.toPath());
+        TestSupport.check("migration stamps the file", raw.get(0).equals("#format-version=" + CatalogEditLog.FORMAT_VERSION)
+            && CatalogEditLog.formatVersion() == CatalogEditLog.FORMAT_VERSION);
+        TestSupport.check("readers skip the header", CatalogEditLog.readLines().size() == 2
+            && CatalogEditLog.readLines().get(0).startsWith("old@test.com,Shoe Shop,Runner"));
+        Store shoeShop = Marketplace.sellers.get(0).searchStore("Shoe Shop");
+        TestSupport.check("migrated product loaded", shoeShop.getProducts().size() == 1
+            && shoeShop.getProducts().get(0).getCategory() == ProductCategory.SHOES);
+
+        // Stamped file: loads without the legacy scan and gives the same graph
+        Marketplace.sellers.clear();
+        StartupProfiler.enable();
+        Marketplace.loadMarket();
+        boolean scanned = false;
+        for (StartupProfiler.Record record : StartupProfiler.records()) {
+            scanned |= record.name.equals("loadMarket.legacyScan");
+        }
+        TestSupport.check("stamped file skips legacy detection", !scanned);
+        TestSupport.check("stamped file loads the same products", Marketplace.sellers.get(0).searchStore("Shoe Shop").getProducts().size() == 1);
+
+        CatalogEditLog.appendStore("old@test.com", "Late Shop");
+        CatalogEditLog.compact();
+        TestSupport.check("compaction keeps the stamp", CatalogEditLog.formatVersion() == CatalogEditLog.FORMAT_VERSION
+            && CatalogEditLog.readLines().contains("old@test.com,Late Shop"));
+
+        List<Seller> sellers = CatalogBinaryConverter.parseTextFile(sellersFile);
+        TestSupport.check("binary converter ignores the header", sellers.size() == 1);
+        IncrementalCatalogWriter.index(sellers);
+        sellers.get(0).getStores().get(0).markDirty();
+        IncrementalCatalogWriter.write(sellers);
+        TestSupport.check("incremental persist keeps the stamp", CatalogEditLog.formatVersion() == CatalogEditLog.FORMAT_VERSION
+            && CatalogEditLog.readLines().size() == 3);
+
+        // Unmarked file already in the current format: stamped after one clean scan
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(sellersFile))) {
+            writer.write("new@test.com,Book Shop,Novel,2,12.50,Paperback,Book Shop,BOOKS_MEDIA\n");
+        }
+        Marketplace.sellers.clear();
+        Marketplace.loadMarket();
+        TestSupport.check("clean unmarked file gets stamped", CatalogEditLog.formatVersion() == CatalogEditLog.FORMAT_VERSION
+            && CatalogEditLog.readLines().size() == 1);
+
+        System.out.println("\n=== Catalog Format Version Tests Completed ===");
+    }
+}
@@ -0,0 +1,82 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for the per-store and per-seller category counters: totals kept in step as
+ * sales are recorded and as stores join or leave a seller, concurrent recording from several
+ * stores, and dashboard time compared with a scan of every sale.
+ */
+public class TestCategoryCounters {
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("=== Testing Category Counters ===\n");
+
+        Seller seller = new Seller("owner@test.com", false);
+        seller.addStores("Shoes R Us");
+        Store shoes = seller.searchStore("Shoes R Us");
+        Product shoe = new Product("Trail Shoe", 10, 79.99, "Grippy", "Shoes R Us", ProductCategory.SHOES);
+        shoes.getSalesLedger().record("a@test.com", shoe, 2, 15998, 1L);
+
+        int shoeOrdinal = ProductCategory.SHOES.ordinal();
+        TestSupport.check("store totals", shoes.getSalesLedger().getTotals().getSales(shoeOrdinal) == 1
+            && shoes.getSalesLedger().getTotals().getCents(shoeOrdinal) == 15998);
+        TestSupport.check("seller totals follow the store", seller.getCategoryTotals().getCents(shoeOrdinal) == 15998);
+
+        // A store with earlier sales joins, then leaves
+        Store books = new Store("Bookworm");
+        Product novel = new Product("Novel", 5, 12.50, "Paperback", "Bookworm", ProductCategory.BOOKS_MEDIA);
+        books.getSalesLedger().record("b@test.com", novel, 1, 1250, 2L);
+        seller.addStores(books);
+        int bookOrdinal = ProductCategory.BOOKS_MEDIA.ordinal();
+        TestSupport.check("joining store brings its sales", seller.getCategoryTotals().getSales(bookOrdinal) == 1);
+        seller.removeStore("Bookworm");
+        TestSupport.check("leaving store takes its sales", seller.getCategoryTotals().getSales(bookOrdinal) == 0
+            && seller.getCategoryTotals().getSales(shoeOrdinal) == 1);
+
+        // Concurrent purchases in different stores of one seller
+        int threadCount = 8;
+        int salesPerThread = 50000;
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            String storeName = "Branch" + t;
+            seller.addStores(storeName);
+            Store branch = seller.searchStore(storeName);
+            Product item = new Product("Item", 1, 1.00, "Plain", storeName, ProductCategory.HOME_GARDEN);
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < salesPerThread; i++) {
+                    branch.getSalesLedger().record("c@test.com", item, 1, 100, i);
+                }
+            }));
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double recordMillis = (System.nanoTime() - start) / 1_000_000.0;
+        int homeOrdinal = ProductCategory.HOME_GARDEN.ordinal();
+        TestSupport.check("no lost updates under concurrency", seller.getCategoryTotals().getSales(homeOrdinal) == (long) threadCount * salesPerThread
+            && seller.getCategoryTotals().getCents(homeOrdinal) == 100L * threadCount * salesPerThread);
+
+        start = System.nanoTime();
+        String metrics = seller.getCategoryBasedMetrics();
+        double counterMillis = (System.nanoTime() - start) / 1_000_000.0;
+        start = System.nanoTime();
+        long scanned = 0;
+        for (Store store : seller.getStores()) {
+            SalesLedger ledger = store.getSalesLedger();
+            for (int i = 0; i < ledger.size(); i++) {
+                scanned += ledger.getAmountCents(i);
+            }
+        }
+        double scanMillis = (System.nanoTime() - start) / 1_000_000.0;
+        TestSupport.check("dashboard matches a full scan", metrics.contains(String.format("Grand Total: %d sales, $%.2f revenue",
+            1L + threadCount * salesPerThread, scanned / 100.0)));
+        System.out.println(String.format("%d threads recorded %d sales in %.1f ms; dashboard %.2f ms vs. scanning all sales %.2f ms",
+            threadCount, threadCount * salesPerThread, recordMillis, counterMillis, scanMillis));
+
+        System.out.println("\n=== Category Counters Tests Completed ===");
+    }
+}
@@ -0,0 +1,171 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Two-phase checkout: every line's stock is reserved before the order is stored, a short,
+ * delisted or dearer line releases what was reserved and charges nothing, a failed order commit
+ * rolls the stock back (to a flash sale's own stripes, or through the journal once the sale has
+ * ended), and concurrent checkouts racing for the last units never oversell. Uses the H2
+ * database in the working directory and a temporary data directory for the stock journal.
+ */
+public class TestCheckoutPipeline {
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Testing Checkout Pipeline ===\n");
+        File dataDir = Files.createTempDirectory("checkout").toFile();
+        System.setProperty("marketplace.dataDir", dataDir.getPath());
+        DatabaseManager.initializeTables();
+        UserDAO userDAO = new UserDAO();
+        OrderDAO orderDAO = new OrderDAO();
+        ProductDAO productDAO = new ProductDAO();
+        String storeName = "Checkout Store " + System.nanoTime();
+
+        Store store = new Store(storeName);
+        Product socks = listed(store, productDAO, "Socks", 50, 4.50);
+        Product boots = listed(store, productDAO, "Boots", 3, 120.00);
+        CheckoutPipeline pipeline = new CheckoutPipeline(name -> store.getName().equalsIgnoreCase(name) ? store : null);
+        Customer buyer = customer(userDAO, "buyer-" + System.nanoTime() + "@test.com");
+        int userId = userDAO.getUserId(buyer.getEmail());
+
+        // Everything in stock: one order with a detail per line, stock taken, points awarded
+        buyer.addToCart(socks, 4);
+        buyer.addToCart(boots, 2);
+        int pendingBefore = StockJournal.getPendingCount();
+        CheckoutPipeline.Result result = pipeline.run(buyer);
+        TestSupport.check("checkout succeeds", result.isSuccess() && result.getOrderId() > 0 && orderCount(userId) == 1);
+        TestSupport.check("total at current prices", result.getTotalCents() == 4 * 450 + 2 * 12000);
+        TestSupport.check("order and details stored together", orderDAO.getOrderDetails(result.getOrderId()).size() == 2
+            && orderDAO.getOrderById(result.getOrderId()).getTotalPrice() == 258.00);
+        TestSupport.check("stock taken", socks.getQuantity() == 46 && boots.getQuantity() == 1);
+        TestSupport.check("sales journaled and in the ledger", StockJournal.getPendingCount() == pendingBefore + 2
+            && store.getRevenueCents() == result.getTotalCents());
+        TestSupport.check("reward points for the order", userDAO.getRewardPoints(userId) == 258);
+        TestSupport.check("every stage timed", result.getStageNanos(CheckoutPipeline.Stage.REWARD) > 0);
+        buyer.clearShoppingCart();
+
+        // A short line releases the lines reserved before it; nothing is stored
+        int ordersBefore = orderCount(userId);
+        buyer.addToCart(socks, 5);
+        buyer.addToCart(boots, 2);
+        result = pipeline.run(buyer);
+        TestSupport.check("short line fails the reserve stage", result.getFailedStage() == CheckoutPipeline.Stage.RESERVE
+            && result.getRejected().size() == 1 && result.getRejected().get(0).getProduct() == boots);
+        TestSupport.check("earlier reservation released", socks.getQuantity() == 46 && boots.getQuantity() == 1);
+        TestSupport.check("no order stored", orderCount(userId) == ordersBefore);
+        buyer.clearShoppingCart();
+
+        // A delisted line stops the checkout before any stock is touched
+        Product hat = listed(store, productDAO, "Hat", 5, 20.00);
+        buyer.addToCart(socks, 1);
+        buyer.addToCart(hat, 1);
+        store.removeProduct(hat);
+        result = pipeline.run(buyer);
+        TestSupport.check("delisted line fails the resolve stage", result.getFailedStage() == CheckoutPipeline.Stage.RESOLVE
+            && result.getRejected().size() == 1 && socks.getQuantity() == 46);
+        buyer.clearShoppingCart();
+
+        // A price rise since the line was added fails the checkout until the customer accepts it
+        ordersBefore = orderCount(userId);
+        ShoppingCart.Line raised = buyer.addToCart(socks, 2);
+        socks.setPrice(5.00);
+        result = pipeline.run(buyer);
+        TestSupport.check("price rise fails the price stage", result.getFailedStage() == CheckoutPipeline.Stage.PRICE
+            && result.getRejected().size() == 1 && result.getRejected().get(0) == raised);
+        TestSupport.check("price rise charges nothing", orderCount(userId) == ordersBefore && socks.getQuantity() == 46);
+        raised.acceptPrice();
+        result = pipeline.run(buyer);
+        TestSupport.check("accepted price goes through", result.isSuccess() && result.getTotalCents() == 2 * 500
+            && socks.getQuantity() == 44);
+        buyer.clearShoppingCart();
+
+        // Units reserved from a flash sale go back to it, or are journaled back if it has ended
+        Product drop = listed(store, productDAO, "Drop", 20, 60.00);
+        store.startFlashSale(drop, 4);
+        StripedStock sale = drop.getFlashSale();
+        TestSupport.check("reserved from the sale", store.reserve(drop, 3, sale) == Product.Take.FROM_FLASH_SALE);
+        store.release(drop, 3, sale);
+        TestSupport.check("released into the running sale", sale.sold() == 0 && drop.getQuantity() == 20);
+        store.reserve(drop, 3, sale);
+        pendingBefore = StockJournal.getPendingCount();
+        store.endFlashSale(drop); // Counts the reserved units as sold
+        store.release(drop, 3, sale);
+        TestSupport.check("release after the sale ended journals the units back",
+            StockJournal.getPendingCount() == pendingBefore + 2 && drop.getQuantity() == 20);
+        StockJournal.flush();
+        TestSupport.check("database stock unchanged", productDAO.getQuantities().get(storeName + "\tDrop") == 20);
+
+        // The order commit fails (unknown user): reserved stock goes back
+        Customer stranger = new Customer("nobody-" + System.nanoTime() + "@test.com");
+        stranger.addToCart(socks, 3);
+        result = pipeline.run(stranger);
+        TestSupport.check("commit failure rolls back", result.getFailedStage() == CheckoutPipeline.Stage.COMMIT
+            && socks.getQuantity() == 44);
+
+        // Checkouts racing for the last units: all-or-nothing per cart, no oversell
+        Product scarf = listed(store, productDAO, "Scarf", 10, 15.00);
+        int buyers = 16;
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < buyers; i++) {
+            Customer racer = customer(userDAO, "racer-" + i + "-" + System.nanoTime() + "@test.com");
+            racer.addToCart(socks, 1);
+            racer.addToCart(scarf, 1);
+            customers.add(racer);
+        }
+        AtomicInteger succeeded = new AtomicInteger();
+        CountDownLatch startLine = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (Customer racer : customers) {
+            Thread thread = new Thread(() -> {
+                try {
+                    startLine.await();
+                    if (pipeline.run(racer).isSuccess()) {
+                        succeeded.incrementAndGet();
+                    }
+                    DatabaseManager.closeConnection();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        startLine.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        TestSupport.check("only the units in stock were sold", succeeded.get() == 10 && scarf.getQuantity() == 0);
+        TestSupport.check("losing carts released their other line", socks.getQuantity() == 44 - succeeded.get());
+
+        System.out.println(CheckoutPipeline.describeStageTimes());
+        StockJournal.stop();
+        System.out.println("\n=== Checkout Pipeline Tests Completed ===");
+    }
+
+    private static int orderCount(int userId) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM Orders WHERE user_id = ?")) {
+            pstmt.setInt(1, userId);
+            ResultSet rs = pstmt.executeQuery();
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static Product listed(Store store, ProductDAO productDAO, String name, int quantity, double price) {
+        Product product = new Product(name, quantity, price, name + " for testing", store.getName(), ProductCategory.CLOTHING);
+        store.addProduct(product);
+        productDAO.addProduct(product);
+        return product;
+    }
+
+    private static Customer customer(UserDAO userDAO, String email) {
+        userDAO.createUser(email, "password123", email, "customer");
+        return new Customer(email);
+    }
+}
@@ -0,0 +1,143 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multi-threaded stress test of the marketplace model: no overselling under concurrent
+ * purchases, browsing while the catalog changes, concurrent seller registration, and the
+ * contention of purchases on one hot store versus spread over per-store locks.
+ * Purchases go through Store.takeStock and Store.recordSale, the in-memory half of
+ * processPurchase, so no database is needed.
+ */
+public class TestConcurrentModel {
+    private static final int THREADS = 8;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Testing Concurrent Model ===\n");
+
+        // Concurrent buyers of one product
+        Store store = new Store("Flash");
+        Product shoe = new Product("Trail Shoe", 1000, 79.99, "Grippy", "Flash", ProductCategory.SHOES);
+        store.addProduct(shoe);
+        AtomicInteger sold = new AtomicInteger();
+        run(THREADS, t -> {
+            for (int i = 0; i < 200; i++) {
+                if (store.takeStock(shoe, 1) >= 0) {
+                    store.recordSale(shoe, 1, "buyer" + t + "@test.com");
+                    sold.incrementAndGet();
+                }
+            }
+        });
+        TestSupport.check("no oversell", sold.get() == 1000 && shoe.getQuantity() == 0);
+        TestSupport.check("revenue is exact", store.getRevenueCents() == 1000 * 7999L);
+        TestSupport.check("every sale recorded", store.getSalesLedger().size() == 1000);
+
+        // Browsing while sellers add products
+        Store busy = new Store("Busy");
+        int perWriter = 2000;
+        run(THREADS, t -> {
+            if (t % 2 == 0) {
+                for (int i = 0; i < perWriter; i++) {
+                    busy.addProduct(new Product("Sku" + t + "-" + i, 1, 1.0, "Bulk", "Busy", ProductCategory.HOME_GARDEN));
+                }
+            } else {
+                for (int i = 0; i < perWriter; i++) {
+                    int count = 0;
+                    for (Product product : busy.getProducts()) {
+                        count += product.getQuantity();
+                    }
+                    busy.findProduct("Sku0-" + (count % perWriter));
+                }
+            }
+        });
+        TestSupport.check("all writes kept", busy.getProducts().size() == THREADS / 2 * perWriter);
+        TestSupport.check("index complete", busy.findProduct("Sku6-1999") != null && busy.findProduct("sku0-0") != null);
+
+        // Sellers registering while others look stores up
+        SellerRegistry registry = new SellerRegistry();
+        run(THREADS, t -> {
+            for (int i = 0; i < 250; i++) {
+                Seller seller = new Seller("s" + t + "-" + i + "@test.com", false);
+                registry.add(seller);
+                seller.addStores("Shop " + t + "-" + i);
+                registry.findStore("Shop 0-" + i);
+            }
+        });
+        boolean allFound = registry.size() == THREADS * 250;
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < 250; i++) {
+                Store found = registry.findStore("shop " + t + "-" + i);
+                allFound &= found != null && registry.findSeller("s" + t + "-" + i + "@test.com").getStores().contains(found);
+            }
+        }
+        TestSupport.check("registry consistent", allFound);
+
+        // Contention: every thread on one store, then one store per thread
+        int purchases = 100000;
+        Store hot = new Store("Hot");
+        Product hotItem = new Product("Item", Integer.MAX_VALUE, 1.0, "x", "Hot", ProductCategory.BOOKS_MEDIA);
+        hot.addProduct(hotItem);
+        double oneStore = run(THREADS, t -> {
+            for (int i = 0; i < purchases; i++) {
+                hot.takeStock(hotItem, 1);
+            }
+        });
+        Store[] stores = new Store[THREADS];
+        Product[] items = new Product[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            stores[t] = new Store("Store" + t);
+            items[t] = new Product("Item", Integer.MAX_VALUE, 1.0, "x", "Store" + t, ProductCategory.BOOKS_MEDIA);
+            stores[t].addProduct(items[t]);
+        }
+        double striped = run(THREADS, t -> {
+            for (int i = 0; i < purchases; i++) {
+                stores[t].takeStock(items[t], 1);
+            }
+        });
+        TestSupport.check("hot store count exact", hotItem.getQuantity() == Integer.MAX_VALUE - THREADS * purchases);
+        System.out.println(String.format("%d threads x %d purchases: one store %.1f ms, one store per thread %.1f ms (%.1fx)",
+            THREADS, purchases, oneStore, striped, oneStore / striped));
+
+        System.out.println("\n=== Concurrent Model Tests Completed ===");
+    }
+
+    interface Task {
+        void run(int thread) throws Exception;
+    }
+
+    /**
+     * Runs the task on several threads started together. Also used by TestFlashSale.
+     * @return wall time in milliseconds
+     */
+    static double run(int threads, Task task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    task.run(id);
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double millis = (System.nanoTime() - begin) / 1_000_000.0;
+        if (!failures.isEmpty()) {
+            failures.peek().printStackTrace();
+        }
+        TestSupport.check("no thread failed", failures.isEmpty());
+        return millis;
+    }
+}
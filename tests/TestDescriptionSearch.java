@@ -0,0 +1,46 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for tokenized, ranked description search
+ */
+public class TestDescriptionSearch {
+
+    public static void main(String[] args) {
+        System.out.println("=== Testing Description Search ===\n");
+
+        List<String> lines = new ArrayList<>();
+        lines.add("seller@test.com,Runner Hub,Trail Shoe,10,89.99,Lightweight trail running shoe with grippy sole,Runner Hub,SHOES"
+                + ",Road Shoe,5,79.99,Cushioned road running shoe,Runner Hub,SHOES");
+        lines.add("seller@test.com,Gadget Shop,Headphones,3,199.99,Wireless noise cancelling headphones for running,Gadget Shop,ELECTRONICS");
+        lines.add("other@test.com,Book Nook,Novel,7,14.99,A long novel,Book Nook,BOOKS_MEDIA");
+
+        DescriptionIndex index = DescriptionIndex.build(lines);
+        TestSupport.check("indexes every product on every line", index.size() == 4);
+
+        // Test 1: partial keyword query matches, whole-string equality is not required
+        List<DescriptionIndex.Hit> hits = index.search("trail running", null, 10);
+        TestSupport.check("keyword query finds matches", hits.size() == 3);
+        TestSupport.check("best match ranked first", hits.get(0).getProduct().getName().equals("Trail Shoe"));
+        TestSupport.check("scores are descending", hits.get(0).getScore() >= hits.get(1).getScore()
+                && hits.get(1).getScore() >= hits.get(2).getScore());
+
+        // Test 2: case and punctuation are ignored
+        hits = index.search("WIRELESS, Headphones!", null, 10);
+        TestSupport.check("case-insensitive match", hits.size() == 1 && hits.get(0).getProduct().getName().equals("Headphones"));
+
+        // Test 3: category filter applies per product
+        hits = index.search("running", ProductCategory.ELECTRONICS, 10);
+        TestSupport.check("category filter", hits.size() == 1 && hits.get(0).getProduct().getCategory() == ProductCategory.ELECTRONICS);
+
+        // Test 4: top-K bound
+        hits = index.search("running shoe", null, 2);
+        TestSupport.check("top-K bounds result size", hits.size() == 2);
+
+        // Test 5: no overlap means no results
+        TestSupport.check("unknown term returns nothing", index.search("submarine", null, 10).isEmpty());
+        TestSupport.check("blank query returns nothing", index.search("   ", null, 10).isEmpty());
+
+        System.out.println("\n=== Description Search Tests Completed ===");
+    }
+}
@@ -0,0 +1,152 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flash-sale mode: a hot product's stock split across striped counters. Checks that concurrent
+ * buyers never oversell or undersell, that multi-unit buys rebalance dry stripes, that sales
+ * starting and ending under traffic lose no units, that ending a sale journals its total, and
+ * that a catalog write during a sale records the stock still on sale.
+ * Ends with a throughput comparison of one counter versus striped counters.
+ * Usage: java TestFlashSale [threads]
+ */
+public class TestFlashSale {
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(8, Runtime.getRuntime().availableProcessors());
+        System.out.println("=== Testing Flash Sale ===\n");
+        File dataDir = Files.createTempDirectory("flash-sale").toFile();
+        System.setProperty("marketplace.dataDir", dataDir.getPath());
+
+        // Single-unit buyers drain the stripes exactly
+        Product drop = product("Drop", 100000);
+        drop.startFlashSale(8);
+        AtomicLong bought = new AtomicLong();
+        TestConcurrentModel.run(threads, t -> {
+            while (drop.take(1) != Product.Take.OUT_OF_STOCK) {
+                bought.incrementAndGet();
+            }
+        });
+        TestSupport.check("every unit sold once", bought.get() == 100000 && drop.getQuantity() == 0);
+        TestSupport.check("sale reports units sold", drop.endFlashSale() == 100000 && drop.getFlashSale() == null);
+
+        // Multi-unit buyers: no stripe holds enough near the end, so stripes are pooled
+        Product bundle = product("Bundle", 1000);
+        bundle.startFlashSale(16);
+        StripedStock stripes = bundle.getFlashSale();
+        AtomicLong units = new AtomicLong();
+        TestConcurrentModel.run(threads, t -> {
+            while (bundle.take(7) != Product.Take.OUT_OF_STOCK) {
+                units.addAndGet(7);
+            }
+        });
+        TestSupport.check("no oversell in bundles", units.get() + bundle.getQuantity() == 1000);
+        TestSupport.check("buyers only turned away when fewer than 7 left", bundle.getQuantity() < 7);
+        TestSupport.check("dry stripes rebalanced", stripes.getRebalanceCount() > 0);
+        bundle.endFlashSale();
+        TestSupport.check("leftover back on the product", bundle.getQuantity() == 1000 - units.get());
+
+        // Sales starting and ending while buyers are active lose and duplicate nothing
+        Product toggled = product("Toggled", 200000);
+        AtomicLong fromStock = new AtomicLong();
+        AtomicLong fromSales = new AtomicLong();
+        AtomicLong reportedBySales = new AtomicLong();
+        AtomicBoolean buying = new AtomicBoolean(true);
+        Thread toggler = new Thread(() -> {
+            while (buying.get()) {
+                toggled.startFlashSale(4);
+                Thread.yield();
+                reportedBySales.addAndGet(toggled.endFlashSale());
+            }
+        });
+        toggler.start();
+        TestConcurrentModel.run(threads, t -> {
+            for (int i = 0; i < 20000; i++) {
+                Product.Take take = toggled.take(1);
+                if (take == Product.Take.FROM_STOCK) {
+                    fromStock.incrementAndGet();
+                } else if (take == Product.Take.FROM_FLASH_SALE) {
+                    fromSales.incrementAndGet();
+                }
+            }
+        });
+        buying.set(false);
+        toggler.join();
+        long sold = fromStock.get() + fromSales.get();
+        TestSupport.check("every take succeeded", sold == threads * 20000L);
+        TestSupport.check("stock conserved across toggles", toggled.getQuantity() == 200000 - sold);
+        TestSupport.check("sales account for their own units", reportedBySales.get() == fromSales.get());
+
+        // Ending a sale journals its total as one record
+        Store store = new Store("Drops");
+        Product sneaker = product("Sneaker", 50);
+        store.addProduct(sneaker);
+        store.startFlashSale(sneaker, 4);
+        for (int i = 0; i < 12; i++) {
+            sneaker.take(1);
+        }
+        int pendingBefore = StockJournal.getPendingCount();
+        TestSupport.check("end returns units sold", store.endFlashSale(sneaker) == 12);
+        TestSupport.check("one journal record for the sale", StockJournal.getPendingCount() == pendingBefore + 1);
+        TestSupport.check("seller edits apply during a sale", setDuringSale(sneaker));
+
+        // Replacing a product mid-sale ends the sale, so its units are still journaled
+        store.startFlashSale(sneaker, 4);
+        sneaker.take(3);
+        pendingBefore = StockJournal.getPendingCount();
+        Product edited = product("Sneaker", 40);
+        store.setProduct(sneaker, edited);
+        TestSupport.check("replaced product's sale ended", sneaker.getFlashSale() == null
+            && StockJournal.getPendingCount() == pendingBefore + 1);
+
+        // A catalog write during a sale records the stock held in the stripes, not the emptied field
+        Seller owner = new Seller("drops-owner@test.com", false);
+        Store shelf = new Store("Shelf");
+        Product hat = product("Hat", 50);
+        shelf.addProduct(hat);
+        owner.addStores(shelf);
+        shelf.startFlashSale(hat, 4);
+        hat.take(2);
+        IncrementalCatalogWriter.write(Collections.singletonList(owner));
+        String line = CatalogEditLog.readLines().get(0);
+        TestSupport.check("written line has the sale's stock", line.contains(",Hat,48,") && hat.toString().contains("Quantity: 48"));
+        shelf.endFlashSale(hat);
+
+        // Throughput: every thread buying the same product
+        int purchases = 2_000_000 / threads;
+        Product single = product("Single", Integer.MAX_VALUE);
+        double oneCounter = TestConcurrentModel.run(threads, t -> {
+            for (int i = 0; i < purchases; i++) {
+                single.take(1);
+            }
+        });
+        Product striped = product("Striped", Integer.MAX_VALUE);
+        striped.startFlashSale(StripedStock.DEFAULT_STRIPES);
+        double stripedMillis = TestConcurrentModel.run(threads, t -> {
+            for (int i = 0; i < purchases; i++) {
+                striped.take(1);
+            }
+        });
+        TestSupport.check("striped count exact", striped.endFlashSale() == (long) purchases * threads);
+        System.out.println(String.format("%d threads x %d purchases on %d CPUs: one counter %.1f ms (%.0f/ms), %d stripes %.1f ms (%.0f/ms)",
+            threads, purchases, Runtime.getRuntime().availableProcessors(), oneCounter, purchases * threads / oneCounter,
+            StripedStock.DEFAULT_STRIPES, stripedMillis, purchases * threads / stripedMillis));
+
+        StockJournal.stop();
+        System.out.println("\n=== Flash Sale Tests Completed ===");
+    }
+
+    private static boolean setDuringSale(Product product) {
+        product.startFlashSale(4);
+        product.take(5);
+        product.setQuantity(100);
+        boolean seen = product.getQuantity() == 100;
+        product.take(10);
+        return seen && product.endFlashSale() == 15 && product.getQuantity() == 90;
+    }
+
+    private static Product product(String name, int quantity) {
+        return new Product(name, quantity, 120.0, "Limited", "Drops", ProductCategory.SHOES);
+    }
+}
@@ -0,0 +1,123 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for dirty tracking and incremental persistence of the seller file.
+ * Runs against a temporary data directory.
+ * Usage: java TestIncrementalCatalogWriter [stores]
+ */
+public class TestIncrementalCatalogWriter {
+
+    public static void main(String[] args) throws IOException {
+        int storeCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        System.out.println("=== Testing Incremental Catalog Writer ===\n");
+
+        File dataDir = Files.createTempDirectory("incremental").toFile();
+        System.setProperty("marketplace.dataDir", dataDir.getPath());
+        FsyncPolicy.setCurrent(FsyncPolicy.NEVER);
+
+        List<Seller> sellers = new ArrayList<>();
+        for (int i = 0; i < storeCount; i++) {
+            if (i % 10 == 0) {
+                sellers.add(new Seller("seller" + i + "@test.com"));
+            }
+            Store store = new Store("Store" + i);
+            for (int p = 0; p < 4; p++) {
+                store.addProduct(new Product("Item" + i + "-" + p, 50, 4.25, "Plain item", store.getName(), ProductCategory.HOME_GARDEN));
+            }
+            sellers.get(sellers.size() - 1).addStores(store);
+        }
+
+        IncrementalCatalogWriter.Result first = IncrementalCatalogWriter.write(sellers);
+        System.out.println(first);
+        TestSupport.check("first write serializes everything", first.storesSerialized == storeCount && first.storesCopied == 0);
+        TestSupport.check("file matches full render", CatalogEditLog.readLines().equals(render(sellers)));
+
+        IncrementalCatalogWriter.Result idle = IncrementalCatalogWriter.write(sellers);
+        TestSupport.check("nothing dirty skips the write", idle.skipped);
+
+        Store middle = sellers.get(sellers.size() / 2).getStores().get(0);
+        Product product = middle.getProducts().get(1);
+        middle.setProduct(product, new Product(product.getName(), 7, 99.50, "Marked down", middle.getName(), ProductCategory.HOME_GARDEN));
+        sellers.get(0).addStores(new Store("Brand New Store"));
+
+        long start = System.nanoTime();
+        IncrementalCatalogWriter.Result second = IncrementalCatalogWriter.write(sellers);
+        long incrementalNanos = System.nanoTime() - start;
+        System.out.println(second);
+        TestSupport.check("only changed stores serialized", second.storesSerialized == 2 && second.storesCopied == storeCount - 1);
+        TestSupport.check("spliced file matches full render", CatalogEditLog.readLines().equals(render(sellers)));
+
+        CatalogEditLog.appendAddProduct("seller0@test.com", "Store0",
+            new Product("Logged", 1, 1.00, "From the log", "Store0", ProductCategory.HOME_GARDEN));
+        sellers.get(0).getStores().get(0).addProduct(new Product("Logged", 1, 1.00, "From the log", "Store0", ProductCategory.HOME_GARDEN));
+        IncrementalCatalogWriter.write(sellers);
+        TestSupport.check("logged edit folded and log removed", CatalogEditLog.pendingRecords() == 0
+            && CatalogEditLog.readLines().equals(render(sellers)));
+
+        CatalogEditLog.writeSnapshot(render(sellers));
+        IncrementalCatalogWriter.Result stale = IncrementalCatalogWriter.write(sellers);
+        TestSupport.check("foreign rewrite forces full serialization", stale.storesCopied == 0 && stale.storesSerialized == storeCount + 1);
+
+        List<Seller> reloaded = new ArrayList<>();
+        for (Seller seller : sellers) {
+            Seller copy = new Seller(seller.getEmail());
+            for (Store store : seller.getStores()) {
+                Store storeCopy = new Store(store.getName());
+                for (Product p : store.getProducts()) {
+                    storeCopy.addProduct(p);
+                }
+                copy.addStores(storeCopy);
+            }
+            reloaded.add(copy);
+        }
+        int indexed = IncrementalCatalogWriter.index(reloaded);
+        TestSupport.check("index matches every loaded store", indexed == storeCount + 1);
+        reloaded.get(3).getStores().get(2).markDirty();
+        IncrementalCatalogWriter.Result afterLoad = IncrementalCatalogWriter.write(reloaded);
+        TestSupport.check("after index only the dirty store is serialized", afterLoad.storesSerialized == 1);
+
+        // A store edited while its line is being written must stay dirty for the next persist
+        boolean[] armed = {true};
+        Store racing = new Store("Racing Store") {
+            @Override
+            public List<Product> getProducts() {
+                List<Product> rendered = super.getProducts();
+                if (armed[0]) {
+                    armed[0] = false;
+                    Product old = rendered.get(0);
+                    setProduct(old, new Product(old.getName(), 1, 1.00, "Changed mid-persist", getName(), ProductCategory.HOME_GARDEN));
+                }
+                return rendered;
+            }
+        };
+        racing.addProduct(new Product("Racer", 9, 9.00, "Before", "Racing Store", ProductCategory.HOME_GARDEN));
+        reloaded.get(0).addStores(racing);
+        IncrementalCatalogWriter.write(reloaded);
+        TestSupport.check("store changed during a persist stays dirty", !armed[0] && racing.isDirty());
+        IncrementalCatalogWriter.write(reloaded);
+        TestSupport.check("next persist writes the change", CatalogEditLog.readLines().equals(render(reloaded))
+            && CatalogEditLog.readLines().toString().contains("Changed mid-persist"));
+
+        start = System.nanoTime();
+        CatalogEditLog.writeSnapshot(render(sellers));
+        long fullNanos = System.nanoTime() - start;
+        System.out.println(String.format("One-store change: incremental %.2f ms, full rewrite %.2f ms",
+            incrementalNanos / 1_000_000.0, fullNanos / 1_000_000.0));
+
+        System.out.println("\n=== Incremental Catalog Writer Tests Completed ===");
+    }
+
+    private static ArrayList<String> render(List<Seller> sellers) {
+        ArrayList<String> lines = new ArrayList<>();
+        for (Seller seller : sellers) {
+            for (Store store : seller.getStores()) {
+                lines.add(IncrementalCatalogWriter.renderLine(seller, store));
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,46 @@
+import java.io.File;
+import java.nio.file.Files;
+
+/**
+ * Server mode end to end: starts MarketplaceServer on a free port over a temporary copy of the
+ * bundled data, drives many simultaneous customer sessions through it with
+ * MarketplaceLoadClient, and checks every session was served its own menus to completion.
+ * Usage: java TestMarketplaceServer [sessions]
+ */
+public class TestMarketplaceServer {
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        System.out.println("=== Testing Marketplace Server ===\n");
+
+        File dataDir = Files.createTempDirectory("server-test").toFile();
+        System.setProperty("marketplace.dataDir", dataDir.getPath());
+        FileConstants.bootstrapLegacyFilesIfNeeded();
+        Marketplace.startStartupPipeline();
+        Marketplace.finishStartup();
+
+        try (MarketplaceServer server = new MarketplaceServer(0)) {
+            server.start();
+            System.out.println("Session threads: " + (server.usesVirtualThreads() ? "virtual" : "platform"));
+
+            MarketplaceLoadClient.Result result = new MarketplaceLoadClient(server.getPort(), "test@example.com", "password123", 2).run(sessions);
+            System.out.println(String.format("%d sessions: signed in together in %.1f ms, all done in %.1f ms (%.1f sessions/s), browse p50 %.1f ms, p99 %.1f ms",
+                sessions, result.signInMillis, result.totalMillis, result.sessionsPerSecond(),
+                result.browsePercentileMillis(0.5), result.browsePercentileMillis(0.99)));
+            TestSupport.check("every session signed in concurrently", result.signedIn == sessions);
+            TestSupport.check("every session completed", result.completed == sessions);
+            TestSupport.check("sessions received the marketplace", result.bytesReceived > sessions * 1024L);
+
+            MarketplaceLoadClient.Result wrongPassword = new MarketplaceLoadClient(server.getPort(), "test@example.com", "not-the-password", 1).run(3);
+            TestSupport.check("failed sign-in does not reach the menus", wrongPassword.signedIn == 0 && wrongPassword.completed == 0);
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (server.getActiveSessions() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            TestSupport.check("no session left open", server.getActiveSessions() == 0);
+            TestSupport.check("sessions counted", server.getSessionsServed() == sessions + 3);
+        }
+
+        System.out.println("\n=== Marketplace Server Tests Completed ===");
+    }
+}
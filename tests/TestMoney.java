@@ -0,0 +1,90 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Test class for cents-based money: parsing and formatting, exact sums where doubles drift,
+ * DECIMAL(10,2) round trips, and reading prices from both binary catalog versions.
+ */
+public class TestMoney {
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Testing Money ===\n");
+
+        TestSupport.check("parse plain amounts", Money.parse("19.99") == 1999 && Money.parse("5") == 500
+            && Money.parse("0.5") == 50 && Money.parse(" 12.30 ") == 1230 && Money.parse("-0.05") == -5);
+        TestSupport.check("parse rounds past cents", Money.parse("1.005") == 101 && Money.parse("2.994") == 299);
+        TestSupport.check("parse exponent", Money.parse("1e2") == 10000);
+        boolean rejected = false;
+        try {
+            Money.parse("abc");
+        } catch (NumberFormatException e) {
+            rejected = true;
+        }
+        TestSupport.check("parse rejects text", rejected);
+
+        Locale previous = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+        try {
+            TestSupport.check("format ignores locale", Money.format(123450).equals("1234.50") && Money.format(7).equals("0.07")
+                && Money.format(-205).equals("-2.05"));
+            Product product = new Product("Sock", 3, 4.5, "Wool", "Outdoors", ProductCategory.CLOTHING);
+            TestSupport.check("CSV price uses a dot", product.toCSV().equals("Sock,3,4.50,Wool,Outdoors,CLOTHING"));
+        } finally {
+            Locale.setDefault(previous);
+        }
+
+        TestSupport.check("BigDecimal round trip", Money.toBigDecimal(1999).equals(new BigDecimal("19.99"))
+            && Money.fromBigDecimal(new BigDecimal("19.99")) == 1999 && Money.fromBigDecimal(null) == 0);
+
+        // Ten dimes: 0.1 summed as doubles is 0.9999999999999999
+        double doubleSum = 0;
+        long centsSum = 0;
+        Product dime = new Product("Dime", 1, 0.10, "Coin", "Bank", ProductCategory.BOOKS_MEDIA);
+        for (int i = 0; i < 10; i++) {
+            doubleSum += dime.getPrice();
+            centsSum += dime.getPriceCents();
+        }
+        TestSupport.check("doubles drift", doubleSum != 1.0);
+        TestSupport.check("cents are exact", centsSum == 100 && Money.format(centsSum).equals("1.00"));
+        TestSupport.check("times", Money.times(1999, 3) == 5997);
+
+        Product parsed = DataMigrationService.parseProductFromNewFormat(
+            "Tent,2,199.95,Two person,Outdoors,SPORTS_OUTDOORS".split(","));
+        TestSupport.check("parser reads cents", parsed.getPriceCents() == 19995);
+
+        // Version 1 binary catalogs stored prices as doubles
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(CatalogBinaryWriter.MAGIC);
+        out.writeShort(1);
+        out.writeInt(1);
+        out.writeInt(1);
+        out.writeInt(1);
+        out.writeInt(2);
+        out.writeUTF("Outdoors");
+        out.writeUTF("SHOES");
+        out.writeUTF("owner@test.com");
+        out.writeInt(1);
+        out.writeInt(0);
+        out.writeInt(1);
+        out.writeUTF("Trail Shoe");
+        out.writeInt(4);
+        out.writeDouble(79.99);
+        out.writeUTF("Grippy");
+        out.writeInt(1);
+        out.flush();
+        ArrayList<Seller> v1 = CatalogBinaryReader.read(new ByteArrayInputStream(bytes.toByteArray()));
+        TestSupport.check("version 1 catalog read", v1.get(0).getStores().get(0).getProducts().get(0).getPriceCents() == 7999);
+
+        ByteArrayOutputStream current = new ByteArrayOutputStream();
+        CatalogBinaryWriter.write(v1, current);
+        ArrayList<Seller> v2 = CatalogBinaryReader.read(new ByteArrayInputStream(current.toByteArray()));
+        TestSupport.check("current catalog round trip", v2.get(0).getStores().get(0).getProducts().get(0).getPriceCents() == 7999);
+
+        System.out.println("\n=== Money Tests Completed ===");
+    }
+}
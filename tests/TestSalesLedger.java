@@ -0,0 +1,59 @@
+/**
+ * Test class for the structured sales ledger: recording sales, rendering the display lines,
+ * and the seller category analytics that read the ledger, plus their time on many sales.
+ */
+public class TestSalesLedger {
+
+    public static void main(String[] args) {
+        System.out.println("=== Testing Sales Ledger ===\n");
+
+        Seller seller = new Seller("owner@test.com", false);
+        seller.addStores("Outdoors");
+        Store store = seller.searchStore("Outdoors");
+        Product shoe = new Product("Trail Shoe", 10, 79.99, "Grippy", "Outdoors", ProductCategory.SHOES);
+        Product tent = new Product("Tent", 3, 199.95, "Two person", "Outdoors", ProductCategory.SPORTS_OUTDOORS);
+        store.addProduct(shoe);
+        store.addProduct(tent);
+
+        SalesLedger ledger = store.getSalesLedger();
+        ledger.record("a@test.com", shoe, 2, 15998, 1000L);
+        ledger.record("b@test.com", tent, 1, 19995, 2000L);
+        ledger.record("a@test.com", shoe, 1, 7999, 3000L);
+
+        TestSupport.check("rows recorded", ledger.size() == 3);
+        TestSupport.check("fields read back", ledger.getQuantity(1) == 1 && ledger.getAmountCents(1) == 19995
+            && ledger.getCategory(1) == ProductCategory.SPORTS_OUTDOORS && ledger.getTimestamp(2) == 3000L);
+        TestSupport.check("repeat customer shares an id", ledger.getCustomerId(0) == ledger.getCustomerId(2)
+            && ledger.getCustomerId(0) != ledger.getCustomerId(1));
+        TestSupport.check("product ids by identity", ledger.getProductId(0) == ledger.getProductId(2));
+        TestSupport.check("display line", store.getSales().get(0).equals("a@test.com bought 2 Trail Shoe .Revenue generated: 159.98"));
+        SalesLedger copy = new SalesLedger();
+        copy.record("a@test.com", shoe, 2, 15998, 1000L);
+        copy.record("b@test.com", tent, 1, 19995, 2000L);
+        boolean same = copy.sameSales(ledger);
+        copy.record("b@test.com", shoe, 1, 7999, 3000L);
+        TestSupport.check("ledgers compared by row", !same && !copy.sameSales(ledger) && ledger.sameSales(ledger));
+
+        // Category survives the product leaving the store
+        store.removeProduct(tent);
+        String breakdown = seller.getSalesBreakdownByCategory("Outdoors");
+        System.out.println(breakdown);
+        TestSupport.check("breakdown per category", breakdown.contains("Shoes: 2 sales, $239.97 revenue")
+            && breakdown.contains("Sports & Outdoors: 1 sales, $199.95 revenue"));
+        TestSupport.check("breakdown total", breakdown.contains("Total: 3 sales, $439.92 revenue"));
+        TestSupport.check("overall metrics", seller.getCategoryBasedMetrics().contains("Grand Total: 3 sales, $439.92 revenue"));
+
+        // Analytics time on a busy store
+        int saleCount = 200000;
+        for (int i = 0; i < saleCount; i++) {
+            ledger.record("buyer" + (i % 1000) + "@test.com", i % 2 == 0 ? shoe : tent, 1, 999, i);
+        }
+        long start = System.nanoTime();
+        String metrics = seller.getCategoryBasedMetrics();
+        double millis = (System.nanoTime() - start) / 1_000_000.0;
+        TestSupport.check("metrics over many sales", metrics.contains("Grand Total: " + (saleCount + 3) + " sales"));
+        System.out.println(String.format("Category metrics over %d sales: %.1f ms", ledger.size(), millis));
+
+        System.out.println("\n=== Sales Ledger Tests Completed ===");
+    }
+}
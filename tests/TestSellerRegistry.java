@@ -0,0 +1,98 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Test class for the hash-indexed seller registry: lookups by email and store name, index
+ * consistency as stores and sellers are added and removed, and load/lookup time on a
+ * generated catalog. Runs against a temporary data directory.
+ */
+public class TestSellerRegistry {
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== Testing Seller Registry ===\n");
+
+        SellerRegistry registry = new SellerRegistry();
+        Seller alice = new Seller("alice@test.com", false);
+        Seller bob = new Seller("bob@test.com", false);
+        registry.add(alice);
+        registry.add(bob);
+        alice.addStores("Corner Shop");
+        bob.addStores("corner shop");
+        bob.addStores("Bob's Books");
+
+        TestSupport.check("seller found by email", registry.findSeller("bob@test.com") == bob);
+        TestSupport.check("unknown seller is null", registry.findSeller("carol@test.com") == null);
+        TestSupport.check("store found case-insensitively", registry.findStore("BOB'S BOOKS") == bob.searchStore("bob's books"));
+        TestSupport.check("first seller's store wins on duplicate names", registry.findStore("Corner Shop") == alice.getStores().get(0));
+
+        alice.removeStore("CORNER SHOP");
+        TestSupport.check("removed store leaves seller", alice.getStores().isEmpty() && !alice.checkIfStoreExists("Corner Shop"));
+        TestSupport.check("next store with the name takes over", registry.findStore("corner shop") == bob.getStores().get(0));
+
+        registry.set(0, new Seller("alice@test.com", false));
+        TestSupport.check("replaced seller reindexed", registry.findSeller("alice@test.com") == registry.get(0));
+        registry.remove(bob);
+        TestSupport.check("removed seller's stores unindexed", registry.findStore("Bob's Books") == null && registry.findSeller("bob@test.com") == null);
+        bob.addStores("After Removal");
+        TestSupport.check("detached seller no longer updates the registry", registry.findStore("After Removal") == null);
+        boolean readOnly;
+        try {
+            registry.getSellers().add(bob);
+            readOnly = false;
+        } catch (UnsupportedOperationException e) {
+            readOnly = true;
+        }
+        TestSupport.check("list view cannot bypass the indexes", readOnly && registry.size() == 1);
+        registry.clear();
+        TestSupport.check("clear empties the indexes", registry.findSeller("alice@test.com") == null);
+
+        // Load a generated catalog through loadMarket and time store lookups
+        File dataDir = Files.createTempDirectory("registry").toFile();
+        System.setProperty("marketplace.dataDir", dataDir.getPath());
+        FsyncPolicy.setCurrent(FsyncPolicy.NEVER);
+        int lineCount = 20000;
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FileConstants.SELLERS_FILE))) {
+            for (int i = 0; i < lineCount; i++) {
+                writer.write("seller" + (i % 2000) + "@test.com,Store" + i + ",Item" + i + ",3,9.99,Plain,Store" + i + ",BOOKS_MEDIA\n");
+            }
+        }
+        Marketplace.sellers.clear();
+        long start = System.nanoTime();
+        Marketplace.loadMarket();
+        double loadMillis = (System.nanoTime() - start) / 1_000_000.0;
+        TestSupport.check("every seller loaded once", Marketplace.sellers.size() == 2001);
+
+        start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < lineCount; i += 10) {
+            if (Marketplace.sellers.findStore("store" + i) != null) {
+                found++;
+            }
+        }
+        long indexedNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < lineCount; i += 10) {
+            linearFind("store" + i);
+        }
+        long linearNanos = System.nanoTime() - start;
+        TestSupport.check("indexed lookups find every store", found == lineCount / 10);
+        System.out.println(String.format("Load %d lines: %.1f ms; %d store lookups: indexed %.2f ms, linear scan %.2f ms",
+            lineCount, loadMillis, found, indexedNanos / 1_000_000.0, linearNanos / 1_000_000.0));
+
+        System.out.println("\n=== Seller Registry Tests Completed ===");
+    }
+
+    private static Store linearFind(String storeName) {
+        for (Seller seller : Marketplace.sellers) {
+            for (Store store : seller.getStores()) {
+                if (store.getName().equalsIgnoreCase(storeName)) {
+                    return store;
+                }
+            }
+        }
+        return null;
+    }
+}
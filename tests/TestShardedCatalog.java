@@ -0,0 +1,88 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test class for the per-seller sharded catalog layout: migration, per-seller edits,
+ * parallel loading and shard-level persistence. Runs against a temporary data directory.
+ */
+public class TestShardedCatalog {
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== Testing Sharded Catalog Layout ===\n");
+
+        File dataDir = Files.createTempDirectory("sharded").toFile();
+        System.setProperty("marketplace.dataDir", dataDir.getPath());
+        FsyncPolicy.setCurrent(FsyncPolicy.NEVER);
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(FileConstants.SELLERS_FILE))) {
+            writer.write("solo@test.com,\n");
+            for (int i = 0; i < 300; i++) {
+                writer.write("seller" + (i % 30) + "@test.com,Store" + i + ",Item" + i + ",5,3.50,Plain item,Store" + i + ",BOOKS_MEDIA\n");
+            }
+        }
+        ArrayList<String> singleFile = CatalogEditLog.readLines();
+
+        System.setProperty(ShardedCatalogStore.LAYOUT_PROPERTY, "sharded");
+        TestSupport.check("catalog exists after migration", CatalogEditLog.catalogExists());
+        TestSupport.check("one shard per seller", ShardedCatalogStore.shardCount() == 31);
+        ArrayList<String> sharded = CatalogEditLog.readLines();
+        TestSupport.check("migration keeps every line", sharded.size() == singleFile.size() && sharded.containsAll(singleFile));
+        TestSupport.check("Sellers.txt left in place", new File(FileConstants.SELLERS_FILE).exists());
+
+        Map<String, FileTime> before = shardTimes();
+        Product added = new Product("Extra", 2, 8.00, "Added later", "Store7", ProductCategory.BOOKS_MEDIA);
+        CatalogEditLog.appendAddProduct("seller7@test.com", "Store7", added);
+        Map<String, FileTime> after = shardTimes();
+        int changed = 0;
+        for (Map.Entry<String, FileTime> entry : after.entrySet()) {
+            if (!entry.getValue().equals(before.get(entry.getKey()))) {
+                changed++;
+            }
+        }
+        TestSupport.check("edit rewrites only the seller's shard", changed == 1);
+        TestSupport.check("edit visible to readers", CatalogEditLog.readLines().contains(
+            "seller7@test.com,Store7,Item7,5,3.50,Plain item,Store7,BOOKS_MEDIA," + added.toCSV()));
+        TestSupport.check("no edit log in sharded mode", !new File(FileConstants.SELLERS_LOG_FILE).exists());
+
+        CatalogEditLog.appendSeller("new@test.com");
+        CatalogEditLog.appendStore("new@test.com", "Fresh Store");
+        TestSupport.check("new seller gets a shard", ShardedCatalogStore.shardCount() == 32
+            && CatalogEditLog.readLines().contains("new@test.com,Fresh Store"));
+
+        List<Seller> sellers = CatalogBinaryConverter.parseTextFile(new File(FileConstants.SELLERS_FILE));
+        IncrementalCatalogWriter.index(sellers);
+        sellers.get(3).getStores().get(0).markDirty();
+        IncrementalCatalogWriter.Result result = IncrementalCatalogWriter.write(sellers);
+        System.out.println(result);
+        TestSupport.check("persist rewrites only dirty sellers' shards", result.storesSerialized == sellers.get(3).getStores().size());
+
+        long start = System.nanoTime();
+        ArrayList<String> loaded = CatalogEditLog.readLines();
+        long shardedNanos = System.nanoTime() - start;
+        System.setProperty(ShardedCatalogStore.LAYOUT_PROPERTY, "single");
+        start = System.nanoTime();
+        CatalogEditLog.readLines();
+        long singleNanos = System.nanoTime() - start;
+        System.out.println(String.format("Load %d lines: sharded %.2f ms, single file %.2f ms",
+            loaded.size(), shardedNanos / 1_000_000.0, singleNanos / 1_000_000.0));
+
+        System.out.println("\n=== Sharded Catalog Tests Completed ===");
+    }
+
+    private static Map<String, FileTime> shardTimes() throws IOException {
+        Map<String, FileTime> times = new HashMap<>();
+        File[] shards = new File(FileConstants.SELLERS_SHARD_DIR).listFiles((dir, name) -> !name.equals("manifest.txt"));
+        for (File shard : shards) {
+            times.put(shard.getName(), Files.getLastModifiedTime(shard.toPath()));
+        }
+        return times;
+    }
+}
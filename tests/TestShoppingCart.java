@@ -0,0 +1,124 @@
+/**
+ * Test class for ShoppingCart: quantity aggregation by product identity, lines that follow
+ * catalog edits through shared entries, totals at current prices, add/remove time on a large
+ * cart, and heap used per cart line.
+ */
+public class TestShoppingCart {
+
+    public static void main(String[] args) {
+        System.out.println("=== Testing Shopping Cart ===\n");
+
+        ShoppingCart cart = new ShoppingCart();
+        Store outdoors = new Store("Outdoors");
+        Product shoe = new Product("Trail Shoe", 10, 79.99, "Grippy", "Outdoors", ProductCategory.SHOES);
+        Product tent = new Product("Tent", 3, 199.95, "Two person", "Outdoors", ProductCategory.SPORTS_OUTDOORS);
+        outdoors.addProduct(shoe);
+        outdoors.addProduct(tent);
+
+        cart.add(shoe, 2);
+        cart.add(tent, 1);
+        TestSupport.check("two lines", cart.size() == 2);
+        TestSupport.check("total kept exactly", cart.getTotal() == 359.93);
+
+        // Same product again through a copy: quantity aggregates on the catalog product's line
+        Product copy = new Product("trail shoe", 10, 59.99, "Grippy", "outdoors", ProductCategory.SHOES);
+        ShoppingCart.Line line = cart.add(copy, 1);
+        TestSupport.check("same product aggregates", cart.size() == 2 && cart.getQuantity(shoe) == 3);
+        TestSupport.check("line refers to the catalog product", line.getProduct() == shoe && cart.getTotal() == 439.92);
+
+        // A copy added before the listed product was ever referenced does not take its place
+        Product boots = new Product("Hiking Boot", 6, 120.00, "Ankle", "Outdoors", ProductCategory.SHOES);
+        outdoors.addProduct(boots);
+        ShoppingCart other = new ShoppingCart();
+        ShoppingCart.Line copied = other.add(new Product("Hiking Boot", 6, 99.00, "Ankle", "Outdoors", ProductCategory.SHOES), 1);
+        TestSupport.check("copy is not listed", copied.getProduct() == null);
+        ShoppingCart.Line bootsLine = other.add(boots, 1);
+        TestSupport.check("listed product resolves the id", bootsLine == copied && copied.getProduct() == boots
+            && copied.getUnitPriceCents() == 12000);
+
+        // A price change reaches the cart without touching it
+        shoe.setPrice(59.99);
+        TestSupport.check("cart sees current price", line.getUnitPrice() == 59.99 && line.getAddedPriceCents() == 7999
+            && cart.getTotal() == 379.92);
+        TestSupport.check("entry shared, not copied", line.getEntry() == shoe.getEntry());
+
+        cart.setQuantity(tent, 2);
+        TestSupport.check("quantity update adjusts total", cart.getQuantity(tent) == 2 && cart.getTotal() == 579.87);
+        TestSupport.check("remove drops the whole line", cart.remove(shoe) && cart.getQuantity(shoe) == 0 && cart.getTotal() == 399.90);
+        TestSupport.check("setQuantity 0 removes", cart.setQuantity(tent, 0) && cart.isEmpty() && cart.getTotal() == 0.0);
+
+        Customer customer = new Customer("buyer@test.com");
+        customer.addToCart(new Product("Tent", 1, 199.95, "Two person", "Outdoors", ProductCategory.SPORTS_OUTDOORS));
+        customer.addToCart(new Product("Tent", 2, 199.95, "Two person", "Outdoors", ProductCategory.SPORTS_OUTDOORS));
+        Product asProduct = customer.getShoppingCart().toProducts().get(0);
+        TestSupport.check("cart items carry cart quantity", customer.getShoppingCart().size() == 1 && asProduct.getQuantity() == 3);
+
+        // Seller edits replace the Product in its store; the cart line follows by id
+        Store store = new Store("Boot Barn");
+        Product boot = new Product("Ranch Boot", 4, 150.00, "Leather", "Boot Barn", ProductCategory.SHOES);
+        store.addProduct(boot);
+        ShoppingCart.Line bootLine = cart.add(boot, 2);
+        Product edited = new Product("Ranch Boot II", 1, 135.00, "Leather", "Boot Barn", ProductCategory.SHOES);
+        store.setProduct(boot, edited);
+        TestSupport.check("edit reaches the line", bootLine.getProduct() == edited && bootLine.getName().equals("Ranch Boot II")
+            && bootLine.getUnitPriceCents() == 13500);
+        TestSupport.check("stock change visible", bootLine.getProduct().getQuantity() < bootLine.getQuantity());
+        store.removeProduct(edited);
+        TestSupport.check("removed product resolves to nothing", bootLine.getProduct() == null
+            && bootLine.getName().equals("Ranch Boot"));
+        TestSupport.check("cart drops a line by id", cart.remove(bootLine.getId()) && cart.isEmpty());
+
+        // Large B2B cart
+        int lineCount = 20000;
+        ShoppingCart big = new ShoppingCart();
+        Product[] products = new Product[lineCount];
+        Store warehouse = new Store("Warehouse");
+        for (int i = 0; i < lineCount; i++) {
+            products[i] = new Product("Sku" + i, 100, 0.10, "Bulk", "Warehouse", ProductCategory.HOME_GARDEN);
+            warehouse.addProduct(products[i]);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < lineCount; i++) {
+            big.add(products[i], 5);
+        }
+        for (int i = 0; i < lineCount; i += 2) {
+            big.remove(products[i]);
+        }
+        double millis = (System.nanoTime() - start) / 1_000_000.0;
+        TestSupport.check("large cart total", big.size() == lineCount / 2 && big.getTotal() == lineCount / 2 * 0.5);
+        System.out.println(String.format("%d adds and %d removes: %.1f ms", lineCount, lineCount / 2, millis));
+
+        // Heap held by many sessions' carts over one shared catalog
+        int sessions = 2000;
+        int linesPerCart = 10;
+        Product[] catalog = new Product[200];
+        Store mall = new Store("Mall");
+        for (int i = 0; i < catalog.length; i++) {
+            catalog[i] = new Product("Item" + i, 1000, 12.50, "Shared", "Mall", ProductCategory.HOME_GARDEN);
+            mall.addProduct(catalog[i]);
+            CatalogEntries.idOf(catalog[i]);
+        }
+        long before = usedHeap();
+        ShoppingCart[] carts = new ShoppingCart[sessions];
+        for (int s = 0; s < sessions; s++) {
+            carts[s] = new ShoppingCart();
+            for (int i = 0; i < linesPerCart; i++) {
+                carts[s].add(catalog[(s * 7 + i * 13) % catalog.length], 1 + i);
+            }
+        }
+        long bytes = usedHeap() - before;
+        TestSupport.check("carts hold every line", carts[sessions - 1].size() == linesPerCart);
+        System.out.println(String.format("%d carts x %d lines: %.0f bytes per cart, %.0f per line",
+            sessions, linesPerCart, (double) bytes / sessions, (double) bytes / (sessions * linesPerCart)));
+
+        System.out.println("\n=== Shopping Cart Tests Completed ===");
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,164 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free stock and the stock journal: concurrent buyers never oversell the in-memory count,
+ * sales reach the Products table only when the journal is flushed, a restart replays the
+ * unflushed journal exactly once and reloads in-memory stock from the table, and seller edits
+ * never overwrite pending sales. Uses the H2 database in the working directory and a temporary
+ * data directory for the journal.
+ */
+public class TestStockJournal {
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Testing Stock Journal ===\n");
+        File dataDir = Files.createTempDirectory("stock-journal").toFile();
+        System.setProperty("marketplace.dataDir", dataDir.getPath());
+        DatabaseManager.initializeTables();
+        ProductDAO productDAO = new ProductDAO();
+        String storeName = "Journal Store " + System.nanoTime();
+
+        // Concurrent buyers take stock without a lock; the database waits for the flush
+        Store store = new Store(storeName);
+        Product boots = new Product("Boots", 100, 50.0, "Waterproof", storeName, ProductCategory.SHOES);
+        store.addProduct(boots);
+        int bootsId = productDAO.addProduct("Boots", "SHOES", 50.0, 100, storeName, "Waterproof");
+        AtomicInteger sold = new AtomicInteger();
+        List<Thread> buyers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread buyer = new Thread(() -> {
+                while (store.takeStock(boots, 1) >= 0) {
+                    StockJournal.recordSale(storeName, "Boots", 1);
+                    sold.incrementAndGet();
+                }
+            });
+            buyer.start();
+            buyers.add(buyer);
+        }
+        for (Thread buyer : buyers) {
+            buyer.join();
+        }
+        TestSupport.check("no oversell", sold.get() == 100 && boots.getQuantity() == 0);
+        TestSupport.check("sales journaled, database untouched", StockJournal.getPendingCount() == 100
+            && productDAO.getProductById(bootsId).getQuantity() == 100);
+        TestSupport.check("flush applies every sale", StockJournal.flush() == 100);
+        TestSupport.check("database caught up", productDAO.getProductById(bootsId).getQuantity() == 0);
+        File journal = new File(FileConstants.STOCK_JOURNAL_FILE);
+        TestSupport.check("journal emptied after flush", Files.readAllLines(journal.toPath()).size() == 1);
+
+        // Group commit: with every append synced, concurrent buyers share fsyncs
+        FsyncPolicy.setCurrent(FsyncPolicy.ALWAYS);
+        long syncsBefore = StockJournal.getSyncCount();
+        long groupStart = System.nanoTime();
+        List<Thread> syncing = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread buyer = new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    StockJournal.recordSale(storeName, "Boots", 0);
+                }
+            });
+            buyer.start();
+            syncing.add(buyer);
+        }
+        for (Thread buyer : syncing) {
+            buyer.join();
+        }
+        long syncs = StockJournal.getSyncCount() - syncsBefore;
+        System.out.println(String.format("400 synced appends from 8 threads: %d fsyncs in %.1f ms",
+            syncs, (System.nanoTime() - groupStart) / 1_000_000.0));
+        TestSupport.check("concurrent appends share fsyncs", syncs > 0 && syncs < 400);
+        StockJournal.flush();
+
+        // Crash before the flush: the next start replays the journal
+        int hatId = productDAO.addProduct("Hat", "ACCESSORIES", 15.0, 50, storeName, "Wool");
+        for (int i = 0; i < 5; i++) {
+            StockJournal.recordSale(storeName, "Hat", 1);
+        }
+        List<String> unflushed = Files.readAllLines(journal.toPath());
+        StockJournal.stop(); // No writer running, so nothing is flushed
+        TestSupport.check("unflushed sales not in database", productDAO.getProductById(hatId).getQuantity() == 50);
+        TestSupport.check("restart replays the journal", StockJournal.recover() == 5);
+        TestSupport.check("replayed sales applied", productDAO.getProductById(hatId).getQuantity() == 45);
+        StockJournal.stop();
+
+        // Crash after the commit but before the journal rewrite: nothing is applied twice
+        writeLines(journal, unflushed);
+        TestSupport.check("applied records skipped", StockJournal.recover() == 0);
+        TestSupport.check("no double decrement", productDAO.getProductById(hatId).getQuantity() == 45);
+        StockJournal.stop();
+
+        // A record cut short mid-append is dropped
+        try (FileWriter writer = new FileWriter(journal, true)) {
+            writer.write("99\t" + storeName + "\tHa");
+        }
+        TestSupport.check("torn record skipped", StockJournal.getPendingCount() == 0);
+        StockJournal.recordSale(storeName, "Hat", 2);
+        TestSupport.check("sequence continues after restart", StockJournal.flush() == 1
+            && productDAO.getProductById(hatId).getQuantity() == 43);
+
+        // After a crash the catalog files can lag the database: startup takes stock from the table
+        Marketplace.sellers.clear();
+        Seller owner = new Seller("journal-owner@test.com", false);
+        Store reloaded = new Store(storeName);
+        reloaded.addProduct(new Product("Hat", 50, 15.0, "Wool", storeName, ProductCategory.ACCESSORIES));
+        owner.addStores(reloaded);
+        Marketplace.sellers.add(owner);
+        Marketplace.loadStockFromDatabase();
+        TestSupport.check("stock reloaded from the database", reloaded.findProduct("Hat").getQuantity() == 43);
+        Marketplace.sellers.clear();
+
+        // A seller edit with sales still pending: the rename applies them under the old name
+        // first, and the new quantity is journaled as a delta instead of written over them
+        UserDAO userDAO = new UserDAO();
+        String sellerEmail = "journal-seller-" + System.nanoTime() + "@test.com";
+        userDAO.createUser(sellerEmail, "password123", sellerEmail, "seller");
+        Seller seller = new Seller(sellerEmail);
+        seller.addStores(store);
+        int capId = productDAO.addProduct("Cap", "ACCESSORIES", 12.0, 30, storeName, "Cotton");
+        Product cap = new Product("Cap", 30, 12.0, "Cotton", storeName, ProductCategory.ACCESSORIES);
+        store.addProduct(cap);
+        store.takeStock(cap, 4);
+        StockJournal.recordSale(storeName, "Cap", 4);
+        TestSupport.check("edit accepted", seller.editProductDB(capId, productDAO.getProductById(capId), "Cap Deluxe", "Cotton",
+            storeName, 50, 12.0, ProductCategory.ACCESSORIES, userDAO.getUserId(sellerEmail)));
+        TestSupport.check("rename applied the pending sale", StockJournal.getPendingCount() == 1);
+        StockJournal.flush();
+        TestSupport.check("edited quantity lands as set", productDAO.getProductById(capId).getQuantity() == 50
+            && store.findProduct("Cap Deluxe").getQuantity() == 50);
+
+        // Purchase cost: journaled versus the old synchronous database update
+        int purchases = 200;
+        int scarfId = productDAO.addProduct("Scarf", "ACCESSORIES", 9.0, purchases * 2, storeName, "Silk");
+        long start = System.nanoTime();
+        for (int i = 0; i < purchases; i++) {
+            int left = purchases * 2 - i;
+            productDAO.updateProduct(scarfId, "quantity", String.valueOf(left), String.valueOf(left - 1), -1);
+        }
+        double synchronous = (System.nanoTime() - start) / 1_000_000.0;
+        start = System.nanoTime();
+        for (int i = 0; i < purchases; i++) {
+            StockJournal.recordSale(storeName, "Scarf", 1);
+        }
+        double journaled = (System.nanoTime() - start) / 1_000_000.0;
+        start = System.nanoTime();
+        StockJournal.flush();
+        double batch = (System.nanoTime() - start) / 1_000_000.0;
+        TestSupport.check("batched flush lands", productDAO.getProductById(scarfId).getQuantity() == 0);
+        System.out.println(String.format("%d purchases: synchronous DB updates %.1f ms, journaled %.1f ms (+ %.1f ms batched flush)",
+            purchases, synchronous, journaled, batch));
+        StockJournal.stop();
+
+        System.out.println("\n=== Stock Journal Tests Completed ===");
+    }
+
+    private static void writeLines(File file, List<String> lines) throws Exception {
+        try (FileWriter writer = new FileWriter(file)) {
+            for (String line : lines) {
+                writer.write(line + "\n");
+            }
+        }
+    }
+}
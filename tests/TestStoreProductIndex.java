@@ -0,0 +1,83 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Test class for Store's name-indexed product lookups and Product's identity-based
+ * equals/hashCode, plus lookup timing on a store with many SKUs.
+ */
+public class TestStoreProductIndex {
+
+    public static void main(String[] args) {
+        System.out.println("=== Testing Store Product Index ===\n");
+
+        Product shoe = new Product("Trail Shoe", 5, 80.00, "Grippy", "Outdoors", ProductCategory.SHOES);
+        Product edited = new Product("TRAIL SHOE", 2, 70.00, "Marked down", "outdoors", ProductCategory.SHOES);
+        TestSupport.check("equal by name and store, ignoring case and state", shoe.equals(edited) && shoe.hashCode() == edited.hashCode());
+        TestSupport.check("different store is a different product",
+            !shoe.equals(new Product("Trail Shoe", 5, 80.00, "Grippy", "Downtown", ProductCategory.SHOES)));
+        Product dotted = new Product("\u0130", 1, 1.00, "Dotted capital I", "Outdoors", ProductCategory.SHOES);
+        Product plain = new Product("i", 1, 1.00, "Plain i", "Outdoors", ProductCategory.SHOES);
+        TestSupport.check("equal products hash alike, even where case folding differs",
+            !dotted.equals(plain) || dotted.hashCode() == plain.hashCode());
+        Set<Product> set = new HashSet<>();
+        set.add(shoe);
+        TestSupport.check("usable as a hash key", set.contains(edited));
+
+        Store store = new Store("Outdoors");
+        store.addProduct(shoe);
+        store.addProduct(new Product("Tent", 1, 200.00, "Two person", "Outdoors", ProductCategory.SPORTS_OUTDOORS));
+        TestSupport.check("found case-insensitively", store.findProduct("trail shoe") == shoe);
+        TestSupport.check("checkForProduct uses identity", store.checkForProduct(edited));
+
+        Product boots = new Product("Boots", 3, 120.00, "Waterproof", "Outdoors", ProductCategory.SHOES);
+        store.setProduct(edited, boots);
+        TestSupport.check("setProduct replaces in place", store.getProducts().get(0) == boots
+            && store.findProduct("Trail Shoe") == null && store.findProduct("boots") == boots);
+
+        // Same-named products: the first one is found, the next takes over once it is removed
+        Product firstTent = store.findProduct("Tent");
+        Product secondTent = new Product("tent", 4, 150.00, "Second listing", "Outdoors", ProductCategory.SPORTS_OUTDOORS);
+        store.addProduct(secondTent);
+        TestSupport.check("first duplicate wins", store.findProduct("TENT") == firstTent);
+        store.removeProduct(firstTent);
+        TestSupport.check("next duplicate takes over", store.findProduct("Tent") == secondTent && store.getProducts().size() == 2);
+
+        store.clearProducts();
+        TestSupport.check("clear empties the index", store.findProduct("Boots") == null && store.getProducts().isEmpty());
+
+        ArrayList<Product> replacement = new ArrayList<>();
+        replacement.add(new Product("Lamp", 2, 30.00, "Desk lamp", "Outdoors", ProductCategory.HOME_GARDEN));
+        store.setProducts(replacement);
+        TestSupport.check("setProducts reindexes", store.findProduct("lamp") == replacement.get(0));
+
+        // Lookup timing on a large store
+        int skuCount = 50000;
+        Store big = new Store("Warehouse");
+        for (int i = 0; i < skuCount; i++) {
+            big.addProduct(new Product("Sku" + i, 10, 1.00, "Bulk item", "Warehouse", ProductCategory.HOME_GARDEN));
+        }
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < skuCount; i += 50) {
+            if (big.findProduct("sku" + i) != null) {
+                found++;
+            }
+        }
+        long indexedNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < skuCount; i += 50) {
+            for (Product product : big.getProducts()) {
+                if (product.getName().equalsIgnoreCase("sku" + i)) {
+                    break;
+                }
+            }
+        }
+        long linearNanos = System.nanoTime() - start;
+        TestSupport.check("indexed lookups find every SKU", found == skuCount / 50);
+        System.out.println(String.format("%d lookups in a %d-SKU store: indexed %.2f ms, linear scan %.2f ms",
+            found, skuCount, indexedNanos / 1_000_000.0, linearNanos / 1_000_000.0));
+
+        System.out.println("\n=== Store Product Index Tests Completed ===");
+    }
+}
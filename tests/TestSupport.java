@@ -0,0 +1,18 @@
+/**
+ * Shared helpers for the test and benchmark programs.
+ */
+public final class TestSupport {
+    private TestSupport() {}
+
+    /**
+     * Prints the check's result and stops the run on the first failure.
+     * @param name what is being checked
+     * @param passed whether it held
+     */
+    public static void check(String name, boolean passed) {
+        System.out.println((passed ? "PASS: " : "FAIL: ") + name);
+        if (!passed) {
+            throw new AssertionError(name);
+        }
+    }
+}